@@ -10,6 +10,9 @@ COMPONENT="$WORKING_DIR"
 export CLASSPATH
 export COMPONENT
 
+# The number of bytes per page of the tables, which must be entered as the page size of QueryMain.
+PAGE_SIZE=${1:-4096}
+
 echo "Query environment setup successfully!"
 
 # Begin to compile the project.
@@ -30,15 +33,32 @@ echo "Project has been built successfully!"
 echo "Begin to prepare fixtures for test cases"
 
 cd classes/
+
+# Reads the page size recorded in the header of a table file.
+pageSizeOf() {
+    od -An -tu1 -j4 -N4 "$1" | awk '{print (($1 * 256 + $2) * 256 + $3) * 256 + $4}'
+}
+
 for file in *.det; do
     tableName=${file%.det}
     echo "Generates fixtures for table named ${tableName}:"
     if [[ -e ${tableName}.md && -e ${tableName}.stat && -e ${tableName}.tbl && -e ${tableName}.txt ]]; then
         echo "Fixtures for table ${tableName} already exists!"
-        continue
+    else
+        java RandomDB ${tableName} 10000
+        rm -f ${tableName}.tbl
+    fi
+    # Converts the table into pages of the given size, dropping the indexes of the previous table file.
+    if [[ ! -e ${tableName}.tbl || `pageSizeOf ${tableName}.tbl` != ${PAGE_SIZE} ]]; then
+        rm -f ${tableName}.*.idx
+        java ConvertTxtToTbl ${tableName} ${PAGE_SIZE}
     fi
-    java RandomDB ${tableName} 10000
-    java ConvertTxtToTbl ${tableName}
+    # Builds an index on every primary key & foreign key column, unless it already exists.
+    for colName in `awk 'NR > 2 && ($4 == "PK" || $4 == "FK") {print $1}' ${file}`; do
+        if [[ ! -e ${tableName}.${colName}.idx ]]; then
+            java BuildIndex ${tableName} ${colName}
+        fi
+    done
     echo ""
 done
 
@@ -7,9 +7,13 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.util.Date;
+import java.util.HashMap;
 
 import qp.operators.Debug;
 import qp.operators.Operator;
+import qp.operators.Scan;
+import qp.operators.Sort;
+import qp.optimizer.BufferAllocator;
 import qp.optimizer.BufferManager;
 import qp.optimizer.RandomII;
 import qp.optimizer.RandomOptimizer;
@@ -18,8 +22,11 @@ import qp.parser.Scanner;
 import qp.parser.parser;
 import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.BufferPool;
+import qp.utils.PageFileReader;
 import qp.utils.SQLQuery;
 import qp.utils.Schema;
+import qp.utils.SpillManager;
 import qp.utils.Tuple;
 
 /**
@@ -38,11 +45,57 @@ public class QueryMain {
      */
     public static void main(String[] args) {
         // Premature exit if the number of supplied arguments is wrong.
-        if (args.length != 2) {
-            System.out.println("usage: java QueryMain <queryFileName> <resultFile>");
+        if (args.length < 2 || args.length > 6) {
+            System.out.println("usage: java QueryMain <queryFileName> <resultFile> [memoryMappedTables] [spillDirectories] [replacementPolicy] [sortThreads]");
             System.exit(1);
         }
 
+        // Selects the tables (separated by commas) to be scanned by memory-mapping their files.
+        if (args.length >= 3) {
+            for (String tableName : args[2].split(",")) {
+                if (!tableName.trim().isEmpty()) {
+                    Scan.setMemoryMapped(tableName.trim(), true);
+                }
+            }
+        }
+
+        // Selects the directories (separated by commas) over which the temporary files are striped.
+        if (args.length >= 4 && !args[3].trim().isEmpty()) {
+            String[] dirNames = args[3].split(",");
+            for (int i = 0; i < dirNames.length; i++) {
+                dirNames[i] = dirNames[i].trim();
+            }
+            SpillManager.setDirectories(dirNames);
+        }
+
+        // Selects the replacement policy of the buffer pool, i.e., LRU (by default), CLOCK or MRU.
+        if (args.length >= 5 && !args[4].trim().isEmpty()) {
+            switch (args[4].trim().toUpperCase()) {
+                case "LRU":
+                    BufferManager.setReplacementPolicy(BufferPool.LRU);
+                    break;
+                case "CLOCK":
+                    BufferManager.setReplacementPolicy(BufferPool.CLOCK);
+                    break;
+                case "MRU":
+                    BufferManager.setReplacementPolicy(BufferPool.MRU);
+                    break;
+                default:
+                    System.out.println("Unknown replacement policy: " + args[4]);
+                    System.exit(1);
+            }
+        }
+
+        // Selects the number of threads used by each sort; 1 (by default) to sort sequentially.
+        if (args.length == 6) {
+            try {
+                Sort.setParallelism(Integer.parseInt(args[5].trim()));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number of sort threads: " + args[5]);
+                System.exit(1);
+            }
+        }
+
         // Asks user to enter the number of bytes per page.
         System.out.println("enter the number of bytes per page");
         BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
@@ -85,12 +138,28 @@ public class QueryMain {
         SQLQuery sqlQuery = p.getSQLQuery();
         int numOfJoin = sqlQuery.getNumJoin();
 
+        // Checks whether the tables are stored in pages of the given size, by which their pages are counted.
+        for (Object table : sqlQuery.getFromList()) {
+            String tableName = (String) table;
+            try {
+                int tablePageSize = PageFileReader.readPageSize(tableName + ".tbl");
+                if (tablePageSize != Batch.getPageSize()) {
+                    System.out.printf("Table %s is stored in pages of %d bytes; run \"java ConvertTxtToTbl %s %d\" first.\n",
+                            tableName, tablePageSize, tableName, Batch.getPageSize());
+                    System.exit(1);
+                }
+            } catch (IOException e) {
+                System.out.printf("Table %s cannot be read due to %s\n", tableName, e.toString());
+                System.exit(1);
+            }
+        }
+
         /*
          * If there are joins, then assigns buffers to each join operator while preparing
          * the plan. As buffer manager is not implemented, just input the number of buffers
          * available.
          */
-        if (numOfJoin != 0 || sqlQuery.getIsDistinct() || sqlQuery.isGroupby()) {
+        if (numOfJoin != 0 || sqlQuery.getIsDistinct() || sqlQuery.isGroupby() || sqlQuery.hasAggregates()) {
             System.out.println("enter the number of buffers available");
 
             try {
@@ -124,8 +193,9 @@ public class QueryMain {
             System.exit(1);
         }
 
-        // Prepares the execution plan.
-        Operator root = RandomOptimizer.makeExecPlan(logicalRoot);
+        // Divides the buffers among the operators by their estimated costs, and prepares the execution plan.
+        HashMap<Operator, Integer> allocation = new BufferAllocator(logicalRoot, BufferManager.getNumOfBuffers()).allocate();
+        Operator root = RandomOptimizer.makeExecPlan(logicalRoot, allocation);
 
         // Prints the final execution plan.
         System.out.println("----------------------Execution Plan----------------");
@@ -184,6 +254,11 @@ public class QueryMain {
         long endTime = System.currentTimeMillis();
         double executionTime = (endTime - startTime) / 1000.0;
         System.out.println("Execution time = " + executionTime);
+        System.out.println("Bytes spilled = " + SpillManager.getTotalBytesSpilled());
+        BufferPool pool = BufferPool.getInstance();
+        if (pool != null) {
+            System.out.println("Buffer pool hits = " + pool.getNumOfHits() + ", misses = " + pool.getNumOfMisses());
+        }
 
     }
 
@@ -195,7 +270,7 @@ public class QueryMain {
     private static void printSchema(Schema schema) {
         for (int i = 0; i < numOfAttrs; i++) {
             Attribute attr = schema.getAttribute(i);
-            out.print(attr.getTabName() + "." + attr.getColName() + "  ");
+            out.print(attr.getDisplayName() + "  ");
         }
         out.println();
     }
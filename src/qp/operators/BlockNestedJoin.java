@@ -1,23 +1,24 @@
 package qp.operators;
 
-import java.io.EOFException;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.Arrays;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
-import qp.utils.Tuple;
+import qp.utils.PageFileReader;
+import qp.utils.PageFileWriter;
+import qp.utils.SpillManager;
 
 /**
- * Implements the block-based nested loop join algorithm.
+ * Implements the block-based nested loop join algorithm. Each block of left pages is indexed by an
+ * in-memory hash table on the join attribute when it is loaded, so that each right tuple is
+ * matched by one probe instead of being compared with every tuple in the block.
  */
 public class BlockNestedJoin extends Join {
     // The number of tuples per batch.
     private int batchSize;
+    // The number of tuples per batch in the right table.
+    private int rightBatchSize;
 
     /**
      * Defines some fields useful during the execution of the block-based nested
@@ -28,10 +29,10 @@ public class BlockNestedJoin extends Join {
     // Index of the join attribute in right table
     private int rightIndex;
 
-    // The file name where the right table is materialize
+    // The file name where the right table is materialize; null if the right table is a base table
     private String rightFileName;
     // File pointer to the right hand materialized file
-    private ObjectInputStream in;
+    private PageFileReader in;
     // To get unique fileNum for this operation
     private static int fileNum = 0;
 
@@ -42,10 +43,23 @@ public class BlockNestedJoin extends Join {
     // The output buffer.
     private Batch outBatch;
 
-    // Cursor for left side buffer
-    private int leftCursor;
+    // The page of each tuple in the left block, by its position in the block.
+    private Batch[] blockBatches;
+    // The index of each tuple in the left block within its page.
+    private int[] blockIndices;
+    // The hash code of the join attribute of each tuple in the left block.
+    private int[] blockHashes;
+    // The position of the next tuple in the same hash bucket of the left block; -1 at the end.
+    private int[] blockChains;
+    // The position of the first tuple in each hash bucket of the left block; -1 if empty.
+    private int[] buckets;
+
     // Cursor for right side buffer
     private int rightCursor;
+    // The hash code of the join attribute of the right tuple being probed.
+    private int probeHash;
+    // The position of the next left tuple to check against the right tuple being probed; -1 if none.
+    private int matchCursor;
     // Whether end of stream is reached for the left table
     private boolean eosLeft;
     // Whether end of stream is reached for the right table
@@ -66,7 +80,7 @@ public class BlockNestedJoin extends Join {
     /**
      * Opens this operator by performing the following operations:
      * 1. Finds the index of the join attributes;
-     * 2. Materializes the right hand side into a file;
+     * 2. Materializes the right hand side into a file, unless it is a base table;
      * 3. Opens the connections.
      *
      * @return true if the operator is opened successfully.
@@ -76,6 +90,7 @@ public class BlockNestedJoin extends Join {
         // Selects the number of tuples per page based tuple size.
         int tupleSize = schema.getTupleSize();
         batchSize = Batch.getPageSize() / tupleSize;
+        rightBatchSize = Batch.getPageSize() / right.getSchema().getTupleSize();
 
         // Gets the join attribute from left & right table.
         Attribute leftAttr = con.getLeft();
@@ -85,28 +100,35 @@ public class BlockNestedJoin extends Join {
         Batch rightPage;
 
         // Initializes the cursors of input buffers for both sides.
-        leftCursor = 0;
+        rightBatch = null;
         rightCursor = 0;
+        matchCursor = -1;
         eosLeft = false;
         // Right stream would be repetitively scanned. If it reaches the end, we have to start new scan.
         eosRight = true;
 
+        // A base table scanned repeatedly reads its pages through the buffer pool rather than
+        // ahead of time, so that they may be cached between the passes.
+        if (right.getOpType() == OpType.SCAN) {
+            ((Scan) right).setReadAhead(false);
+        }
+
         // Materializes the right table for the algorithm to perform.
         if (!right.open()) {
             return false;
+        } else if (right.getOpType() == OpType.SCAN) {
+            // A base table is scanned again directly whenever its next pass starts.
+            rightFileName = null;
         } else {
-            /*
-             * If the right operator is not a base table, then materializes the intermediate result
-             * from right into a file.
-             */
-            // if(right.getCondType() != OpType.SCAN){
+            // If the right operator is not a base table, then materializes the intermediate result
+            // from right into a file.
             fileNum++;
-            rightFileName = "BNJtemp-" + fileNum;
+            rightFileName = SpillManager.getPath("BNJ-" + fileNum, "BNJtemp-" + fileNum);
             try {
-                ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(rightFileName));
+                PageFileWriter out = new PageFileWriter(rightFileName, right.getSchema(), Batch.getPageSize());
                 rightPage = right.next();
                 while (rightPage != null) {
-                    out.writeObject(rightPage);
+                    out.write(rightPage);
                     rightPage = right.next();
                 }
                 out.close();
@@ -114,13 +136,13 @@ public class BlockNestedJoin extends Join {
                 System.out.println("BlockNestedJoin: writing the temporary file error");
                 return false;
             }
-            // }
-
-            if (!right.close()) {
-                return false;
-            }
+        }
 
+        if (!right.close()) {
+            return false;
         }
+        // The block of left pages is held in memory instead of caching pages.
+        reserveFrames(numOfBuffer - 2);
         return left.open();
     }
 
@@ -140,99 +162,140 @@ public class BlockNestedJoin extends Join {
         outBatch = new Batch(batchSize);
         while (!outBatch.isFull()) {
             // Checks whether we need to read a new block of pages from the left table.
-            if (leftCursor == 0 && eosRight) {
-                leftBatches = new Batch[numOfBuffer - 2];
-                leftBatches[0] = left.next();
-                // Checks if there is no more pages from the left table.
-                if (leftBatches[0] == null) {
+            if (eosRight) {
+                if (!readLeftBlock()) {
                     eosLeft = true;
                     return outBatch;
                 }
-                for (int i = 1; i < leftBatches.length; i++) {
-                    leftBatches[i] = left.next();
-                    if (leftBatches[i] == null) {
-                        break;
-                    }
-                }
 
                 // Starts the scanning of right table whenever a new block of left pages comes.
-                try {
-                    in = new ObjectInputStream(new FileInputStream(rightFileName));
-                    eosRight = false;
-                } catch (IOException io) {
-                    System.err.println("BlockNestedJoin:error in reading the file");
-                    System.exit(1);
-                }
+                openRight();
             }
 
-            int numOfLeftTuple = leftBatches[0].size();
-            for (int i = 1; i < leftBatches.length; i++) {
-                if (leftBatches[i] == null) {
-                    break;
+            // Checks the remaining left tuples in the hash bucket of the right tuple being probed.
+            if (matchCursor >= 0) {
+                int position = matchCursor;
+                matchCursor = blockChains[position];
+                Batch leftBatch = blockBatches[position];
+                int leftTupleIndex = blockIndices[position];
+                // Adds the tuple if satisfying the join condition.
+                if (blockHashes[position] == probeHash
+                        && leftBatch.checkJoin(leftTupleIndex, rightBatch, rightCursor - 1, leftIndex, rightIndex)) {
+                    outBatch.add(leftBatch.joinWith(leftTupleIndex, rightBatch, rightCursor - 1));
                 }
-                numOfLeftTuple += leftBatches[i].size();
+                continue;
             }
 
-            // Continuously probe the right table until we hit the end-of-stream.
-            while (!eosRight) {
-                try {
-                    if (leftCursor == 0 && rightCursor == 0) {
-                        rightBatch = (Batch) in.readObject();
-                    }
-
-                    for (int i = leftCursor; i < numOfLeftTuple; i++) {
-                        int leftBatchIndex = i / leftBatches[0].size();
-                        int leftTupleIndex = i % leftBatches[0].size();
-                        Tuple leftTuple = leftBatches[leftBatchIndex].elementAt(leftTupleIndex);
-
-                        for (int j = rightCursor; j < rightBatch.size(); j++) {
-                            Tuple rightTuple = rightBatch.elementAt(j);
-
-                            // Adds the tuple if satisfying the join condition.
-                            if (leftTuple.checkJoin(rightTuple, leftIndex, rightIndex)) {
-                                Tuple outTuple = leftTuple.joinWith(rightTuple);
-                                outBatch.add(outTuple);
-
-                                // Checks whether the output buffer is full.
-                                if (outBatch.isFull()) {
-                                    if (i == numOfLeftTuple - 1 && j == rightBatch.size() - 1) {
-                                        leftCursor = 0;
-                                        rightCursor = 0;
-                                    } else if (i != numOfLeftTuple - 1 && j == rightBatch.size() - 1) {
-                                        leftCursor = i + 1;
-                                        rightCursor = 0;
-                                    } else {
-                                        leftCursor = i;
-                                        rightCursor = j + 1;
-                                    }
-
-                                    // Returns since we have already produced a complete page of matching tuples.
-                                    return outBatch;
-                                }
-                            }
-                        }
-                        rightCursor = 0;
-                    }
-                    leftCursor = 0;
-                } catch (EOFException e) {
-                    try {
-                        in.close();
-                    } catch (IOException io) {
-                        System.out.println("BlockNestedJoin: error in temporary file reading");
-                    }
-                    eosRight = true;
-                } catch (ClassNotFoundException c) {
-                    System.out.println("BlockNestedJoin: some error in deserialization");
-                    System.exit(1);
-                } catch (IOException io) {
-                    System.out.println("BlockNestedJoin: temporary file reading error");
-                    System.exit(1);
-                }
+            // Reads in the next right page if the current one has been probed.
+            if (rightBatch == null || rightCursor == rightBatch.size()) {
+                rightBatch = nextRight();
+                rightCursor = 0;
+                continue;
             }
+
+            // Probes the hash table of the left block with the next right tuple.
+            probeHash = rightBatch.hashCodeAt(rightCursor, rightIndex);
+            matchCursor = buckets[probeHash & (buckets.length - 1)];
+            rightCursor++;
         }
         return outBatch;
     }
 
+    /**
+     * Reads the next block of left pages, and builds the hash table on the join attribute of
+     * its tuples.
+     *
+     * @return false if there is no more pages from the left table.
+     */
+    private boolean readLeftBlock() {
+        leftBatches = new Batch[numOfBuffer - 2];
+        int numOfLeftTuple = 0;
+        for (int i = 0; i < leftBatches.length; i++) {
+            leftBatches[i] = left.next();
+            if (leftBatches[i] == null) {
+                break;
+            }
+            numOfLeftTuple += leftBatches[i].size();
+        }
+        if (leftBatches[0] == null) {
+            return false;
+        }
+
+        // Uses a power of two buckets, at least as many as the tuples.
+        int numOfBuckets = Integer.highestOneBit(Math.max(numOfLeftTuple, 1) * 2 - 1);
+        buckets = new int[numOfBuckets];
+        Arrays.fill(buckets, -1);
+        blockBatches = new Batch[numOfLeftTuple];
+        blockIndices = new int[numOfLeftTuple];
+        blockHashes = new int[numOfLeftTuple];
+        blockChains = new int[numOfLeftTuple];
+
+        // Inserts the tuples in reverse, so that each bucket lists its tuples in their input order.
+        int position = numOfLeftTuple;
+        for (int i = leftBatches.length - 1; i >= 0; i--) {
+            if (leftBatches[i] == null) {
+                continue;
+            }
+            for (int j = leftBatches[i].size() - 1; j >= 0; j--) {
+                position--;
+                int hash = leftBatches[i].hashCodeAt(j, leftIndex);
+                int bucket = hash & (numOfBuckets - 1);
+                blockBatches[position] = leftBatches[i];
+                blockIndices[position] = j;
+                blockHashes[position] = hash;
+                blockChains[position] = buckets[bucket];
+                buckets[bucket] = position;
+            }
+        }
+
+        rightBatch = null;
+        rightCursor = 0;
+        matchCursor = -1;
+        return true;
+    }
+
+    /**
+     * Starts a new pass over the right table, either by scanning the base table again or by
+     * reading the materialized file.
+     */
+    private void openRight() {
+        eosRight = false;
+        if (rightFileName == null) {
+            if (!right.open()) {
+                System.err.println("BlockNestedJoin: error in scanning the right table");
+                System.exit(1);
+            }
+            return;
+        }
+        try {
+            in = new PageFileReader(rightFileName, right.getSchema());
+        } catch (IOException io) {
+            System.err.println("BlockNestedJoin:error in reading the file");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the next page of the current pass over the right table.
+     *
+     * @return the next page of the right table; null if the pass has ended.
+     */
+    private Batch nextRight() {
+        Batch page = null;
+        try {
+            // The scan of a base table closes itself once it ends.
+            page = rightFileName == null ? right.next() : in.nextColumnBatch(rightBatchSize);
+            if (page == null && rightFileName != null) {
+                in.close();
+            }
+        } catch (IOException io) {
+            System.out.println("BlockNestedJoin: temporary file reading error");
+            System.exit(1);
+        }
+        eosRight = page == null;
+        return page;
+    }
+
     /**
      * Closes this operator by deleting the file generated.
      *
@@ -240,8 +303,12 @@ public class BlockNestedJoin extends Join {
      */
     @Override
     public boolean close() {
-        File f = new File(rightFileName);
-        f.delete();
+        releaseFrames();
+        if (rightFileName != null) {
+            SpillManager.release(rightFileName);
+        } else if (!eosRight) {
+            right.close();
+        }
         return true;
     }
 }
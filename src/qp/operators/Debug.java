@@ -1,9 +1,11 @@
 package qp.operators;
 
 import java.util.Date;
+import java.util.Vector;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.CompoundCondition;
 import qp.utils.Condition;
 import qp.utils.Schema;
 import qp.utils.Tuple;
@@ -30,6 +32,20 @@ public class Debug {
      * @param con is the condition to be printed.
      */
     public static void PPrint(Condition con) {
+        // Prints each operand of a compound condition within a pair of brackets.
+        if (con instanceof CompoundCondition) {
+            Vector<Condition> operands = ((CompoundCondition) con).getOperands();
+            System.out.print("(");
+            for (int i = 0; i < operands.size(); i++) {
+                if (i > 0) {
+                    System.out.print(con.getOperator() == Condition.AND ? " && " : " || ");
+                }
+                PPrint(operands.elementAt(i));
+            }
+            System.out.print(")");
+            return;
+        }
+
         Attribute lhs = con.getLeft();
         Object rhs = con.getRight();
         int expressionType = con.getOperator();
@@ -105,7 +121,7 @@ public class Debug {
                         System.out.print("SortMergeJoin(");
                         break;
                     case JoinType.HASH_JOIN:
-                        System.out.print("HashJoin(");
+                        System.out.print(node instanceof HybridHashJoin ? "HybridHashJoin(" : "HashJoin(");
                         break;
                     case JoinType.INDEX_NESTED_JOIN:
                         System.out.print("IndexNestedJoin(");
@@ -132,12 +148,12 @@ public class Debug {
                 System.out.print(")");
                 break;
             case OpType.DISTINCT:
-                System.out.print("Distinct(");
+                System.out.print(node instanceof HashDistinct ? "HashDistinct(" : "Distinct(");
                 PPrint(((Distinct) node).getBase());
                 System.out.print(")");
                 break;
             case OpType.GROUPBY:
-                System.out.print("GroupBy(");
+                System.out.print(node instanceof HashGroupby ? "HashGroupBy(" : "GroupBy(");
                 PPrint(((Groupby) node).getBase());
                 System.out.print(")");
                 break;
@@ -52,6 +52,8 @@ public class Distinct extends Operator {
         }
 
         sortedBase = new Sort(base, projectList, numOfBuffer);
+        // Drops the duplicates as early as in the sorted runs, keeping the first tuple of each key.
+        sortedBase.setCombiner((tuple1, tuple2) -> tuple1);
         return sortedBase.open();
     }
 
@@ -118,6 +120,24 @@ public class Distinct extends Operator {
         this.numOfBuffer = numOfBuffer;
     }
 
+    /**
+     * Getter for numOfBuffer.
+     *
+     * @return the number of buffer pages available.
+     */
+    public int getNumOfBuffer() {
+        return numOfBuffer;
+    }
+
+    /**
+     * Getter for projectList.
+     *
+     * @return the project list based on which the duplicates are distinguished.
+     */
+    public Vector getProjectList() {
+        return projectList;
+    }
+
     /**
      * Getter for base.
      *
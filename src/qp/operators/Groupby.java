@@ -1,21 +1,682 @@
 package qp.operators;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Vector;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
 import qp.utils.Schema;
+import qp.utils.Tuple;
 
 /**
- * Defines a groupby operator which groups the table records by attribute(s).
+ * Defines a groupby operator which groups the table records by attribute(s), and computes the
+ * aggregates (i.e., COUNT, SUM, AVG, MIN and MAX) of each group. The output has one tuple per
+ * group, made up of the group-by attributes followed by the aggregates. Without any group-by
+ * attribute, the whole input forms a single group, which is output even if the input is empty
+ * with a COUNT of 0 and null for the other aggregates.
+ *
+ * SUM and AVG are accumulated in a long over an INT attribute and in a double over a REAL one. A
+ * SUM over an INT attribute is then narrowed to an INT by keeping its low 32 bits, i.e., it wraps
+ * around on overflow like the int arithmetic of Java, whichever implementation is used.
+ *
+ * This implementation sorts the input on the group-by attributes. Each tuple is first turned into
+ * the partial aggregates of a group of its own (with AVG kept as a SUM and a COUNT, and each SUM
+ * kept as the low and the high word of its 64-bit value), which the sort combines whenever two of
+ * the same group meet, so that the sorted runs hold about one tuple per group; see
+ * {@link HashGroupby} for the hash-based one.
  */
-public class Groupby extends Distinct {
+public class Groupby extends Operator {
+    // The type of the column holding the high word of a SUM in the partial aggregates.
+    private static final int SUM_HIGH_WORD = -1;
+
+    // The attributes by which the tuples are grouped.
+    private final Vector groupbyList;
+    // The aggregates computed for each group, e.g., SUM(CART.amount).
+    private final Vector<Attribute> aggregates;
+    // The base operator.
+    private Operator base;
+    // The number of buffers available.
+    private int numOfBuffer;
+
+    // The number of tuples per batch.
+    int batchSize;
+    // The indices of the group-by attributes in the input.
+    int[] groupIndices;
+    // The aggregate function of each aggregate.
+    int[] aggTypes;
+    // The index of the aggregated attribute of each aggregate in the input.
+    int[] aggIndices;
+    // The data type of each aggregate in the output.
+    int[] outTypes;
+
+    // The aggregate function of each column of the partial aggregates, i.e., COUNT, SUM (the low
+    // word), SUM_HIGH_WORD, MIN or MAX.
+    private int[] partialTypes;
+    // Whether the attribute aggregated into each column of the partial aggregates is a REAL.
+    private boolean[] partialIsReal;
+    // The index in the input of the attribute aggregated into each column of the partial aggregates.
+    private int[] partialSources;
+    // The index of the first column of the partial aggregates of each aggregate.
+    private int[] partialIndices;
+
+    // The partial aggregates sorted on the group-by attributes, or the input if there is no group-by attribute.
+    private Operator sortedBase;
+    // The input batch.
+    private Batch inBatch;
+    // The index of the next tuple in the input batch.
+    private int inIndex;
+    // The aggregates of the single group without any group-by attribute; null before the first tuple.
+    private Accumulator accumulator;
+    // Records whether we have reached end-of-stream.
+    private boolean eos;
+
     /**
      * Creates a new GROUP_BY operator.
      *
+     * @param base        is the base operator.
+     * @param groupbyList is the list of group-by attributes.
+     * @param aggregates  is the list of aggregates.
+     */
+    public Groupby(Operator base, Vector groupbyList, Vector<Attribute> aggregates) {
+        super(OpType.GROUPBY);
+        this.base = base;
+        this.groupbyList = groupbyList;
+        this.aggregates = aggregates;
+    }
+
+    /**
+     * Calculates the schema of the output, i.e., the group-by attributes followed by the
+     * aggregates. COUNT is an INT, AVG is a REAL, SUM has the type of its (numeric) attribute,
+     * and MIN & MAX have the same metadata as their attribute.
+     *
+     * @param baseSchema is the schema of the input.
+     * @return the output schema.
+     */
+    public Schema computeSchema(Schema baseSchema) {
+        Schema outSchema = baseSchema.subSchema(groupbyList);
+        int tupleSize = outSchema.getTupleSize();
+        for (Attribute aggregate : aggregates) {
+            int index = baseSchema.indexOf(aggregate.getBaseAttribute());
+            if (index < 0) {
+                System.err.printf("Groupby: attribute %s is not found in the input\n", aggregate.getDisplayName());
+                System.exit(1);
+            }
+
+            Attribute attr = makeAggregateAttribute(baseSchema.getAttribute(index), aggregate.getAggType());
+            outSchema.add(attr);
+            tupleSize += attr.getAttrSize();
+        }
+        outSchema.setTupleSize(tupleSize);
+        return outSchema;
+    }
+
+    /**
+     * Creates the metadata of an aggregate over an attribute.
+     *
+     * @param baseAttr is the aggregated attribute in the input.
+     * @param aggType  is the aggregate function.
+     * @return the metadata of the aggregate.
+     */
+    private static Attribute makeAggregateAttribute(Attribute baseAttr, int aggType) {
+        Attribute attr = (Attribute) baseAttr.clone();
+        attr.setAggType(aggType);
+        switch (aggType) {
+            case Attribute.COUNT:
+                attr.setType(Attribute.INT);
+                attr.setAttrSize(4);
+                attr.setKeyType(-1);
+                break;
+            case Attribute.AVG:
+            case Attribute.SUM:
+                if (attr.getType() != Attribute.INT && attr.getType() != Attribute.REAL) {
+                    System.err.printf("Groupby: %s requires a numeric attribute\n", attr.getDisplayName());
+                    System.exit(1);
+                }
+                if (aggType == Attribute.AVG) {
+                    attr.setType(Attribute.REAL);
+                }
+                attr.setAttrSize(4);
+                attr.setKeyType(-1);
+                break;
+            default:
+                break;
+        }
+        return attr;
+    }
+
+    /**
+     * Opens this operator by sorting the partial aggregates on the group-by attributes.
+     *
+     * @return true if the operator is opened successfully.
+     */
+    @Override
+    public boolean open() {
+        initialize();
+        inBatch = null;
+        inIndex = 0;
+        accumulator = null;
+        eos = false;
+
+        // Without any group-by attribute, the whole input is a single group and needs no sorting.
+        if (groupbyList.isEmpty()) {
+            sortedBase = base;
+        } else {
+            Sort sort = new Sort(new PartialAggregation(initializePartials()), groupbyList, numOfBuffer);
+            sort.setCombiner(this::combinePartials);
+            sortedBase = sort;
+        }
+        return sortedBase.open();
+    }
+
+    /**
+     * Finds the indices of the group-by and the aggregated attributes in the input.
+     */
+    void initialize() {
+        batchSize = Batch.getPageSize() / schema.getTupleSize();
+        Schema baseSchema = base.getSchema();
+
+        groupIndices = new int[groupbyList.size()];
+        for (int i = 0; i < groupbyList.size(); i++) {
+            groupIndices[i] = baseSchema.indexOf((Attribute) groupbyList.elementAt(i));
+        }
+
+        aggTypes = new int[aggregates.size()];
+        aggIndices = new int[aggregates.size()];
+        outTypes = new int[aggregates.size()];
+        for (int i = 0; i < aggregates.size(); i++) {
+            aggTypes[i] = aggregates.elementAt(i).getAggType();
+            aggIndices[i] = baseSchema.indexOf(aggregates.elementAt(i).getBaseAttribute());
+            outTypes[i] = schema.typeOf(groupIndices.length + i);
+        }
+    }
+
+    /**
+     * Lays out the partial aggregates, i.e., the group-by attributes followed by one column for
+     * each COUNT, MIN and MAX, two columns (the low and the high word) for each SUM, and three
+     * columns (the two words of a SUM and a COUNT) for each AVG.
+     *
+     * @return the schema of the partial aggregates.
+     */
+    private Schema initializePartials() {
+        Schema baseSchema = base.getSchema();
+        Schema partialSchema = baseSchema.subSchema(groupbyList);
+        int tupleSize = partialSchema.getTupleSize();
+        Vector<Integer> types = new Vector<>();
+        Vector<Integer> sources = new Vector<>();
+        partialIndices = new int[aggTypes.length];
+        for (int i = 0; i < aggTypes.length; i++) {
+            partialIndices[i] = types.size();
+            if (aggTypes[i] == Attribute.SUM || aggTypes[i] == Attribute.AVG) {
+                types.add(Attribute.SUM);
+                types.add(SUM_HIGH_WORD);
+                sources.add(aggIndices[i]);
+                sources.add(aggIndices[i]);
+            }
+            if (aggTypes[i] == Attribute.AVG) {
+                types.add(Attribute.COUNT);
+                sources.add(aggIndices[i]);
+            } else if (aggTypes[i] != Attribute.SUM) {
+                types.add(aggTypes[i]);
+                sources.add(aggIndices[i]);
+            }
+        }
+
+        partialTypes = new int[types.size()];
+        partialSources = new int[types.size()];
+        partialIsReal = new boolean[types.size()];
+        for (int j = 0; j < partialTypes.length; j++) {
+            partialTypes[j] = types.elementAt(j);
+            partialSources[j] = sources.elementAt(j);
+            partialIsReal[j] = baseSchema.typeOf(partialSources[j]) == Attribute.REAL;
+            Attribute attr;
+            if (partialTypes[j] == Attribute.SUM || partialTypes[j] == SUM_HIGH_WORD) {
+                // Each word of a SUM is stored as an INT.
+                attr = makeAggregateAttribute(baseSchema.getAttribute(partialSources[j]), Attribute.SUM);
+                attr.setType(Attribute.INT);
+            } else {
+                attr = makeAggregateAttribute(baseSchema.getAttribute(partialSources[j]), partialTypes[j]);
+            }
+            partialSchema.add(attr);
+            tupleSize += attr.getAttrSize();
+        }
+        partialSchema.setTupleSize(tupleSize);
+        return partialSchema;
+    }
+
+    /**
+     * Turns an input tuple into the partial aggregates of a group of its own.
+     *
+     * @param tuple is the input tuple.
+     * @return the partial aggregates.
+     */
+    private Tuple makePartials(Tuple tuple) {
+        Vector<Object> data = new Vector<>(groupIndices.length + partialTypes.length);
+        for (int index : groupIndices) {
+            data.add(tuple.dataAt(index));
+        }
+        for (int j = 0; j < partialTypes.length; j++) {
+            Object value = tuple.dataAt(partialSources[j]);
+            switch (partialTypes[j]) {
+                case Attribute.COUNT:
+                    data.add(1);
+                    break;
+                case Attribute.SUM:
+                    data.add((int) toSumBits(value));
+                    break;
+                case SUM_HIGH_WORD:
+                    data.add((int) (toSumBits(value) >>> 32));
+                    break;
+                default:
+                    data.add(value);
+                    break;
+            }
+        }
+        return new Tuple(data);
+    }
+
+    /**
+     * Converts a value into the 64-bit representation of a SUM, i.e., a long for an INT and the
+     * bits of a double for a REAL.
+     *
+     * @param value is the value of an INT or a REAL attribute.
+     * @return the 64-bit representation.
+     */
+    private static long toSumBits(Object value) {
+        return value instanceof Float ? Double.doubleToRawLongBits((Float) value) : (long) (Integer) value;
+    }
+
+    /**
+     * Reads the 64-bit representation of a SUM from its low and high words.
+     *
+     * @param partials is the partial aggregates.
+     * @param index    is the index of the low word.
+     * @return the 64-bit representation.
+     */
+    private static long sumBitsAt(Tuple partials, int index) {
+        return ((long) (Integer) partials.dataAt(index + 1) << 32) | ((Integer) partials.dataAt(index) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads the value of a SUM from the partial aggregates.
+     *
+     * @param partials is the partial aggregates.
+     * @param index    is the index of the low word.
+     * @param isReal   is true if the aggregated attribute is a REAL.
+     * @return the value of the SUM.
+     */
+    private static double sumAt(Tuple partials, int index, boolean isReal) {
+        long bits = sumBitsAt(partials, index);
+        return isReal ? Double.longBitsToDouble(bits) : bits;
+    }
+
+    /**
+     * Combines the partial aggregates of two parts of the same group.
+     *
+     * @param partials1 is the partial aggregates of a part of the group.
+     * @param partials2 is the partial aggregates of another part of the group.
+     * @return the partial aggregates of both parts.
+     */
+    @SuppressWarnings("unchecked")
+    private Tuple combinePartials(Tuple partials1, Tuple partials2) {
+        Vector<Object> data = new Vector<>(partials1.getData());
+        for (int j = 0; j < partialTypes.length; j++) {
+            int index = groupIndices.length + j;
+            Object value1 = partials1.dataAt(index);
+            Object value2 = partials2.dataAt(index);
+            switch (partialTypes[j]) {
+                case Attribute.COUNT:
+                    data.set(index, (Integer) value1 + (Integer) value2);
+                    break;
+                case Attribute.SUM:
+                    long bits1 = sumBitsAt(partials1, index);
+                    long bits2 = sumBitsAt(partials2, index);
+                    long sum = partialIsReal[j] ? Double.doubleToRawLongBits(Double.longBitsToDouble(bits1) + Double.longBitsToDouble(bits2)) : bits1 + bits2;
+                    data.set(index, (int) sum);
+                    data.set(index + 1, (int) (sum >>> 32));
+                    break;
+                case Attribute.MIN:
+                    if (((Comparable<Object>) value2).compareTo(value1) < 0) {
+                        data.set(index, value2);
+                    }
+                    break;
+                case Attribute.MAX:
+                    if (((Comparable<Object>) value2).compareTo(value1) > 0) {
+                        data.set(index, value2);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new Tuple(data);
+    }
+
+    /**
+     * Creates the output tuple of a group from its partial aggregates.
+     *
+     * @param partials is the partial aggregates of the whole group.
+     * @return the output tuple.
+     */
+    private Tuple finishPartials(Tuple partials) {
+        Vector<Object> data = new Vector<>(groupIndices.length + aggTypes.length);
+        for (int i = 0; i < groupIndices.length; i++) {
+            data.add(partials.dataAt(i));
+        }
+        for (int i = 0; i < aggTypes.length; i++) {
+            int index = groupIndices.length + partialIndices[i];
+            boolean isReal = partialIsReal[partialIndices[i]];
+            switch (aggTypes[i]) {
+                case Attribute.SUM:
+                    data.add(isReal ? (Object) (float) sumAt(partials, index, true) : (Object) (int) sumBitsAt(partials, index));
+                    break;
+                case Attribute.AVG:
+                    data.add((float) (sumAt(partials, index, isReal) / (Integer) partials.dataAt(index + 2)));
+                    break;
+                default:
+                    data.add(partials.dataAt(index));
+                    break;
+            }
+        }
+        return new Tuple(data);
+    }
+
+    /**
+     * Outputs the aggregates of the next groups. The sort has combined the partial aggregates of
+     * each group into a single tuple, while the single group without any group-by attribute is
+     * output once the input is exhausted.
+     *
+     * @return the next page of groups.
+     */
+    @Override
+    public Batch next() {
+        if (eos) {
+            close();
+            return null;
+        }
+
+        Batch outBatch = new Batch(batchSize);
+        while (!outBatch.isFull()) {
+            Tuple tuple = nextInput();
+            if (tuple == null) {
+                if (groupbyList.isEmpty()) {
+                    outBatch.add(makeTuple(new ArrayList<>(), accumulator != null ? accumulator : new Accumulator(aggTypes.length)));
+                    accumulator = null;
+                }
+                eos = true;
+                break;
+            }
+
+            if (!groupbyList.isEmpty()) {
+                outBatch.add(finishPartials(tuple));
+                continue;
+            }
+            if (accumulator == null) {
+                accumulator = new Accumulator(aggTypes.length);
+            }
+            accumulator.add(tuple, aggTypes, aggIndices);
+        }
+
+        if (outBatch.isEmpty()) {
+            close();
+            return null;
+        }
+        return outBatch;
+    }
+
+    /**
+     * Reads the next tuple from the sorted partial aggregates, or from the input if there is no
+     * group-by attribute.
+     *
+     * @return the next tuple; null if the input is exhausted.
+     */
+    private Tuple nextInput() {
+        while (inBatch == null || inIndex == inBatch.size()) {
+            if (eos) {
+                return null;
+            }
+            inBatch = sortedBase.next();
+            inIndex = 0;
+            if (inBatch == null) {
+                return null;
+            }
+        }
+        return inBatch.elementAt(inIndex++);
+    }
+
+    /**
+     * Extracts the values of the group-by attributes of a tuple.
+     *
+     * @param tuple is the input tuple.
+     * @return the values of the group-by attributes.
+     */
+    List<Object> keyOf(Tuple tuple) {
+        List<Object> key = new ArrayList<>(groupIndices.length);
+        for (int index : groupIndices) {
+            key.add(tuple.dataAt(index));
+        }
+        return key;
+    }
+
+    /**
+     * Creates the output tuple of a group.
+     *
+     * @param values      is the values of the group-by attributes.
+     * @param accumulator is the aggregates of the group.
+     * @return the output tuple.
+     */
+    Tuple makeTuple(List<Object> values, Accumulator accumulator) {
+        Vector<Object> data = new Vector<>(values);
+        for (int i = 0; i < aggTypes.length; i++) {
+            data.add(accumulator.result(i, aggTypes[i], outTypes[i]));
+        }
+        return new Tuple(data);
+    }
+
+    @Override
+    public boolean close() {
+        eos = true;
+        return sortedBase == null || sortedBase == base || sortedBase.close();
+    }
+
+    /**
+     * Setter for numOfBuffer.
+     *
+     * @param numOfBuffer is the number of buffer pages available.
+     */
+    public void setNumOfBuffer(int numOfBuffer) {
+        this.numOfBuffer = numOfBuffer;
+    }
+
+    /**
+     * Getter for numOfBuffer.
+     *
+     * @return the number of buffer pages available.
+     */
+    public int getNumOfBuffer() {
+        return numOfBuffer;
+    }
+
+    /**
+     * Getter for groupbyList.
+     *
+     * @return the list of group-by attributes.
+     */
+    public Vector getGroupbyList() {
+        return groupbyList;
+    }
+
+    /**
+     * Getter for aggregates.
+     *
+     * @return the list of aggregates.
+     */
+    public Vector<Attribute> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Getter for base.
+     *
+     * @return the base operator.
+     */
+    public Operator getBase() {
+        return base;
+    }
+
+    /**
+     * Setter for base.
+     *
      * @param base is the base operator.
      */
-    public Groupby(Operator base, Vector groupbyList) {
-        super(base, groupbyList);
+    public void setBase(Operator base) {
+        this.base = base;
+    }
+
+    @Override
+    public Object clone() {
+        Operator newBase = (Operator) base.clone();
+        Vector<Attribute> newGroupbyList = new Vector<>();
+        for (int i = 0; i < groupbyList.size(); i++) {
+            Attribute attribute = (Attribute) ((Attribute) groupbyList.elementAt(i)).clone();
+            newGroupbyList.add(attribute);
+        }
+        Vector<Attribute> newAggregates = new Vector<>();
+        for (Attribute aggregate : aggregates) {
+            newAggregates.add((Attribute) aggregate.clone());
+        }
+
+        Groupby newGroupby = new Groupby(newBase, newGroupbyList, newAggregates);
+        newGroupby.setSchema(newGroupby.computeSchema(newBase.getSchema()));
+        return newGroupby;
+    }
+
+    /**
+     * Provides the input tuples as partial aggregates to be sorted.
+     */
+    private class PartialAggregation extends Operator {
+        /**
+         * Creates the operator over the input of the groupby operator.
+         *
+         * @param partialSchema is the schema of the partial aggregates.
+         */
+        PartialAggregation(Schema partialSchema) {
+            super(OpType.GROUPBY);
+            schema = partialSchema;
+        }
+
+        @Override
+        public boolean open() {
+            return base.open();
+        }
+
+        @Override
+        public Batch next() {
+            Batch inBatch = base.next();
+            if (inBatch == null) {
+                return null;
+            }
+            Batch outBatch = new Batch(Batch.getPageSize() / schema.getTupleSize());
+            for (int i = 0; i < inBatch.size(); i++) {
+                outBatch.add(makePartials(inBatch.elementAt(i)));
+            }
+            return outBatch;
+        }
+
+        @Override
+        public boolean close() {
+            return base.close();
+        }
+    }
+
+    /**
+     * Accumulates the aggregates of a group, one tuple at a time.
+     */
+    static class Accumulator {
+        // The number of tuples added for each aggregate.
+        private final long[] counts;
+        // The running sum of each SUM and AVG over an INT attribute.
+        private final long[] intSums;
+        // The running sum of each SUM and AVG over a REAL attribute.
+        private final double[] realSums;
+        // The running minimum or maximum of each MIN and MAX.
+        private final Object[] extremes;
+
+        /**
+         * Creates the empty aggregates of a new group.
+         *
+         * @param numOfAggregates is the number of aggregates.
+         */
+        Accumulator(int numOfAggregates) {
+            counts = new long[numOfAggregates];
+            intSums = new long[numOfAggregates];
+            realSums = new double[numOfAggregates];
+            extremes = new Object[numOfAggregates];
+        }
+
+        /**
+         * Adds a tuple to the aggregates.
+         *
+         * @param tuple      is the tuple.
+         * @param aggTypes   is the aggregate function of each aggregate.
+         * @param aggIndices is the index of the aggregated attribute of each aggregate.
+         */
+        @SuppressWarnings("unchecked")
+        void add(Tuple tuple, int[] aggTypes, int[] aggIndices) {
+            for (int i = 0; i < aggTypes.length; i++) {
+                Object value = tuple.dataAt(aggIndices[i]);
+                counts[i]++;
+                switch (aggTypes[i]) {
+                    case Attribute.SUM:
+                    case Attribute.AVG:
+                        if (value instanceof Integer) {
+                            intSums[i] += (Integer) value;
+                        } else {
+                            realSums[i] += (Float) value;
+                        }
+                        break;
+                    case Attribute.MIN:
+                        if (extremes[i] == null || ((Comparable<Object>) value).compareTo(extremes[i]) < 0) {
+                            extremes[i] = value;
+                        }
+                        break;
+                    case Attribute.MAX:
+                        if (extremes[i] == null || ((Comparable<Object>) value).compareTo(extremes[i]) > 0) {
+                            extremes[i] = value;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Computes the final value of an aggregate, which is null for an aggregate other than
+         * COUNT if no tuple has been added.
+         *
+         * @param i       is the index of the aggregate.
+         * @param aggType is the aggregate function.
+         * @param outType is the data type of the aggregate in the output.
+         * @return the value of the aggregate.
+         */
+        Object result(int i, int aggType, int outType) {
+            switch (aggType) {
+                case Attribute.COUNT:
+                    return (int) counts[i];
+                case Attribute.SUM:
+                    if (counts[i] == 0) {
+                        return null;
+                    }
+                    return outType == Attribute.INT ? (Object) (int) intSums[i] : (Object) (float) realSums[i];
+                case Attribute.AVG:
+                    if (counts[i] == 0) {
+                        return null;
+                    }
+                    return (float) ((intSums[i] + realSums[i]) / counts[i]);
+                default:
+                    return extremes[i];
+            }
+        }
     }
 }
@@ -0,0 +1,315 @@
+package qp.operators;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Vector;
+
+import qp.utils.Attribute;
+import qp.utils.Batch;
+import qp.utils.PageFileReader;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+/**
+ * Implements DISTINCT by hashing instead of sorting. The keys seen so far are kept in an
+ * in-memory hash table, and a tuple with a new key is output right away, so the first results
+ * are produced before the input is exhausted. Once the table is full, it is frozen: duplicates
+ * of the keys in it are still dropped, while tuples with other keys are partitioned to disk by
+ * hashing. Each partition is then processed in the same way with an empty table, using a
+ * different hash function if it has to be partitioned again.
+ */
+public class HashDistinct extends Distinct {
+    // The maximum recursion depth of partitioning, beyond which the table grows without bound.
+    private static final int MAX_PARTITION_DEPTH = 4;
+    // To get unique fileNum for this operation.
+    private static int fileNum = 0;
+
+    // The estimated number of pages of distinct tuples, used to size the hash table.
+    private int numOfDistinctPages;
+
+    // The indices of all attributes in the project list.
+    private final Vector<Integer> keyIndices = new Vector<>();
+    // The number of tuples per batch.
+    private int batchSize;
+    // The number of partitions into which the tuples are spilled.
+    private int numOfPartitions;
+    // The maximum number of keys kept in the hash table.
+    private int capacity;
+    // The keys of the tuples output from the current input.
+    private HashSet<List<Object>> table;
+    // The recursion depth of the current input, which is 0 for the base operator.
+    private int depth;
+
+    // The input batch of the base operator.
+    private Batch inBatch;
+    // The index of the next tuple in the input batch.
+    private int inIndex;
+    // Whether the base operator is exhausted.
+    private boolean baseExhausted;
+    // The partition being processed; null while reading the base operator.
+    private SpillPartition currentPartition;
+    // The stream of the partition being processed.
+    private PageFileReader partitionReader;
+    // The partitions spilled from the current input; null while the table is not full.
+    private SpillPartition[] spilled;
+    // The partitions which are yet to be processed.
+    private final Deque<SpillPartition> pendingPartitions = new ArrayDeque<>();
+
+    // Records whether we have reached end-of-stream.
+    private boolean eos;
+    // The unique fileNum of this operation.
+    private int distinctID;
+    // The number of sets of partitions generated so far, to get unique file names.
+    private int numOfSpills = 0;
+
+    /**
+     * Instantiates a new hash-based distinct operator.
+     *
+     * @param distinct is the base distinct operator.
+     */
+    public HashDistinct(Distinct distinct) {
+        super(distinct.getBase(), distinct.getProjectList());
+        schema = distinct.getSchema();
+        setNumOfBuffer(distinct.getNumOfBuffer());
+    }
+
+    /**
+     * Setter for numOfDistinctPages.
+     *
+     * @param numOfDistinctPages is the estimated number of pages of distinct tuples.
+     */
+    public void setNumOfDistinctPages(int numOfDistinctPages) {
+        this.numOfDistinctPages = numOfDistinctPages;
+    }
+
+    /**
+     * Calculates the number of partitions into which the tuples are spilled once the hash table
+     * is full, such that each of them is expected to fit in memory later. No buffer is set aside
+     * for partitioning if all distinct tuples are expected to fit in memory.
+     *
+     * @param numOfDistinctPages is the estimated number of pages of distinct tuples.
+     * @param numOfBuffer        is the number of buffer pages available.
+     * @return the number of partitions; 0 if no spilling is expected.
+     */
+    public static int getNumOfPartitions(int numOfDistinctPages, int numOfBuffer) {
+        // One input buffer and one output buffer are always reserved.
+        if (numOfDistinctPages <= numOfBuffer - 2) {
+            return 0;
+        }
+        int numOfPartitions = (int) Math.ceil(1.0 * (numOfDistinctPages - numOfBuffer + 2) / Math.max(numOfBuffer - 3, 1));
+        return Math.min(Math.max(numOfPartitions, 2), Math.max(numOfBuffer - 3, 2));
+    }
+
+    /**
+     * Calculates the number of pages of keys held by the hash table.
+     *
+     * @param numOfDistinctPages is the estimated number of pages of distinct tuples.
+     * @param numOfBuffer        is the number of buffer pages available.
+     * @return the number of pages of the hash table.
+     */
+    public static int getNumOfTablePages(int numOfDistinctPages, int numOfBuffer) {
+        return Math.max(numOfBuffer - 2 - getNumOfPartitions(numOfDistinctPages, numOfBuffer), 1);
+    }
+
+    /**
+     * Opens this operator by finding the indices of the attributes in the project list.
+     *
+     * @return true if the operator is opened successfully.
+     */
+    @Override
+    public boolean open() {
+        batchSize = Batch.getPageSize() / schema.getTupleSize();
+        keyIndices.clear();
+        for (int i = 0; i < getProjectList().size(); i++) {
+            Attribute attribute = (Attribute) getProjectList().elementAt(i);
+            keyIndices.add(schema.indexOf(attribute));
+        }
+
+        int numOfBuffer = getNumOfBuffer();
+        numOfPartitions = Math.max(getNumOfPartitions(numOfDistinctPages, numOfBuffer), 2);
+        capacity = getNumOfTablePages(numOfDistinctPages, numOfBuffer) * batchSize;
+        table = new HashSet<>();
+        depth = 0;
+        inBatch = null;
+        inIndex = 0;
+        baseExhausted = false;
+        eos = false;
+        fileNum++;
+        distinctID = fileNum;
+        reserveFrames(numOfBuffer);
+        return getBase().open();
+    }
+
+    /**
+     * Outputs the tuples whose keys are not yet in the hash table, moving on to the spilled
+     * partitions after the base operator is exhausted.
+     *
+     * @return the next page of distinct tuples.
+     */
+    @Override
+    public Batch next() {
+        if (eos) {
+            close();
+            return null;
+        }
+
+        Batch outBatch = new Batch(batchSize);
+        while (!outBatch.isFull()) {
+            Tuple tuple = nextInput();
+            if (tuple == null) {
+                if (!nextPartition()) {
+                    eos = true;
+                    break;
+                }
+                continue;
+            }
+
+            List<Object> key = keyOf(tuple);
+            if (table.contains(key)) {
+                continue;
+            }
+            if (spilled == null && (table.size() < capacity || depth >= MAX_PARTITION_DEPTH)) {
+                table.add(key);
+                outBatch.add(tuple);
+            } else {
+                spill(tuple, key);
+            }
+        }
+
+        if (outBatch.isEmpty()) {
+            close();
+            return null;
+        }
+        return outBatch;
+    }
+
+    /**
+     * Reads the next tuple from the current input.
+     *
+     * @return the next tuple; null if the current input is exhausted.
+     */
+    private Tuple nextInput() {
+        if (currentPartition != null) {
+            try {
+                return partitionReader.next();
+            } catch (IOException e) {
+                System.err.printf("HashDistinct: error in reading the partition file due to %s\n", e.toString());
+                System.exit(1);
+                return null;
+            }
+        }
+        while (!baseExhausted && (inBatch == null || inIndex == inBatch.size())) {
+            inBatch = getBase().next();
+            inIndex = 0;
+            baseExhausted = inBatch == null;
+        }
+        return baseExhausted ? null : inBatch.elementAt(inIndex++);
+    }
+
+    /**
+     * Finishes the current input, and moves on to the next partition which is yet to be processed.
+     *
+     * @return true if there is a next partition; false if all tuples have been processed.
+     */
+    private boolean nextPartition() {
+        if (currentPartition != null) {
+            closeReader();
+        }
+        if (spilled != null) {
+            for (SpillPartition partition : spilled) {
+                partition.closeWriter();
+                if (partition.isEmpty()) {
+                    partition.delete();
+                } else {
+                    pendingPartitions.push(partition);
+                }
+            }
+            spilled = null;
+        }
+        if (pendingPartitions.isEmpty()) {
+            return false;
+        }
+
+        currentPartition = pendingPartitions.pop();
+        partitionReader = currentPartition.openReader();
+        table = new HashSet<>();
+        depth = currentPartition.getDepth();
+        return true;
+    }
+
+    /**
+     * Writes a tuple whose key is not in the full hash table into its partition, creating the
+     * partitions of the current input first if necessary.
+     *
+     * @param tuple is the tuple to be spilled.
+     * @param key   is the key of the tuple.
+     */
+    private void spill(Tuple tuple, List<Object> key) {
+        if (spilled == null) {
+            spilled = new SpillPartition[numOfPartitions];
+            numOfSpills++;
+            for (int i = 0; i < numOfPartitions; i++) {
+                String name = "HDtemp-" + distinctID + "-" + numOfSpills + "-" + i;
+                spilled[i] = new SpillPartition(SpillManager.getPath("HD-" + distinctID, name), schema, depth + 1);
+            }
+        }
+        spilled[HashJoin.partitionOf(key, depth, numOfPartitions)].write(tuple);
+    }
+
+    /**
+     * Extracts the key of a tuple, i.e., its values of the attributes in the project list.
+     *
+     * @param tuple is the tuple.
+     * @return the key of the tuple.
+     */
+    private List<Object> keyOf(Tuple tuple) {
+        List<Object> key = new ArrayList<>(keyIndices.size());
+        for (int index : keyIndices) {
+            key.add(tuple.dataAt(index));
+        }
+        return key;
+    }
+
+    /**
+     * Closes the stream of the partition being processed and deletes its file.
+     */
+    private void closeReader() {
+        try {
+            partitionReader.close();
+        } catch (IOException e) {
+            System.err.println("HashDistinct: error in closing the partition file");
+        }
+        currentPartition.delete();
+        currentPartition = null;
+        partitionReader = null;
+    }
+
+    /**
+     * Closes this operator by deleting all the files generated.
+     *
+     * @return true if the operator is closed successfully.
+     */
+    @Override
+    public boolean close() {
+        eos = true;
+        releaseFrames();
+        if (currentPartition != null) {
+            closeReader();
+        }
+        if (spilled != null) {
+            for (SpillPartition partition : spilled) {
+                partition.delete();
+            }
+            spilled = null;
+        }
+        while (!pendingPartitions.isEmpty()) {
+            pendingPartitions.pop().delete();
+        }
+        table = null;
+        return true;
+    }
+}
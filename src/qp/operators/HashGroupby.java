@@ -0,0 +1,282 @@
+package qp.operators;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import qp.utils.Batch;
+import qp.utils.PageFileReader;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+/**
+ * Implements GROUP BY by hash aggregation instead of sorting. The aggregates of each group are
+ * accumulated in an in-memory hash table keyed by the group-by values, and are output once the
+ * input is exhausted. Once the table is full, it is frozen: the tuples of the groups in it are
+ * still accumulated, while the tuples of other groups are partitioned to disk by hashing. Each
+ * partition is then aggregated in the same way with an empty table, using a different hash
+ * function if it has to be partitioned again.
+ */
+public class HashGroupby extends Groupby {
+    // The maximum recursion depth of partitioning, beyond which the table grows without bound.
+    private static final int MAX_PARTITION_DEPTH = 4;
+    // To get unique fileNum for this operation.
+    private static int fileNum = 0;
+
+    // The estimated number of pages of groups, used to size the hash table.
+    private int numOfGroupPages;
+
+    // The number of partitions into which the tuples are spilled.
+    private int numOfPartitions;
+    // The maximum number of groups kept in the hash table.
+    private int capacity;
+    // The aggregates of the groups of the current input, by their group-by values.
+    private HashMap<List<Object>, Accumulator> table;
+    // The groups of the current input which are yet to be output; null while reading the input.
+    private Iterator<Map.Entry<List<Object>, Accumulator>> outputGroups;
+    // The recursion depth of the current input, which is 0 for the base operator.
+    private int depth;
+
+    // The input batch of the base operator.
+    private Batch inBatch;
+    // The index of the next tuple in the input batch.
+    private int inIndex;
+    // Whether the base operator is exhausted.
+    private boolean baseExhausted;
+    // The partition being processed; null while reading the base operator.
+    private SpillPartition currentPartition;
+    // The stream of the partition being processed.
+    private PageFileReader partitionReader;
+    // The partitions spilled from the current input; null while the table is not full.
+    private SpillPartition[] spilled;
+    // The partitions which are yet to be processed.
+    private final Deque<SpillPartition> pendingPartitions = new ArrayDeque<>();
+
+    // Records whether we have reached end-of-stream.
+    private boolean eos;
+    // The unique fileNum of this operation.
+    private int groupbyID;
+    // The number of sets of partitions generated so far, to get unique file names.
+    private int numOfSpills = 0;
+
+    /**
+     * Instantiates a new hash-based groupby operator.
+     *
+     * @param groupby is the base groupby operator.
+     */
+    public HashGroupby(Groupby groupby) {
+        super(groupby.getBase(), groupby.getGroupbyList(), groupby.getAggregates());
+        schema = groupby.getSchema();
+        setNumOfBuffer(groupby.getNumOfBuffer());
+    }
+
+    /**
+     * Setter for numOfGroupPages.
+     *
+     * @param numOfGroupPages is the estimated number of pages of groups.
+     */
+    public void setNumOfGroupPages(int numOfGroupPages) {
+        this.numOfGroupPages = numOfGroupPages;
+    }
+
+    /**
+     * Opens this operator. The hash table and the partitions are sized in the same way as
+     * those of {@link HashDistinct}.
+     *
+     * @return true if the operator is opened successfully.
+     */
+    @Override
+    public boolean open() {
+        initialize();
+
+        int numOfBuffer = getNumOfBuffer();
+        numOfPartitions = Math.max(HashDistinct.getNumOfPartitions(numOfGroupPages, numOfBuffer), 2);
+        capacity = HashDistinct.getNumOfTablePages(numOfGroupPages, numOfBuffer) * batchSize;
+        table = new HashMap<>();
+        outputGroups = null;
+        depth = 0;
+        inBatch = null;
+        inIndex = 0;
+        baseExhausted = false;
+        eos = false;
+        fileNum++;
+        groupbyID = fileNum;
+        reserveFrames(numOfBuffer);
+        return getBase().open();
+    }
+
+    /**
+     * Aggregates the current input into the hash table, and then outputs its groups before
+     * moving on to the next spilled partition.
+     *
+     * @return the next page of groups.
+     */
+    @Override
+    public Batch next() {
+        if (eos) {
+            close();
+            return null;
+        }
+
+        Batch outBatch = new Batch(batchSize);
+        while (!outBatch.isFull()) {
+            if (outputGroups != null) {
+                if (outputGroups.hasNext()) {
+                    Map.Entry<List<Object>, Accumulator> group = outputGroups.next();
+                    outBatch.add(makeTuple(group.getKey(), group.getValue()));
+                } else if (!nextPartition()) {
+                    eos = true;
+                    break;
+                }
+                continue;
+            }
+
+            Tuple tuple = nextInput();
+            if (tuple == null) {
+                // The single group without any group-by attribute is output even if it is empty.
+                if (groupIndices.length == 0 && table.isEmpty()) {
+                    table.put(new ArrayList<>(), new Accumulator(aggTypes.length));
+                }
+                outputGroups = table.entrySet().iterator();
+                continue;
+            }
+
+            List<Object> key = keyOf(tuple);
+            Accumulator accumulator = table.get(key);
+            if (accumulator == null) {
+                if (spilled != null || (table.size() >= capacity && depth < MAX_PARTITION_DEPTH)) {
+                    spill(tuple, key);
+                    continue;
+                }
+                accumulator = new Accumulator(aggTypes.length);
+                table.put(key, accumulator);
+            }
+            accumulator.add(tuple, aggTypes, aggIndices);
+        }
+
+        if (outBatch.isEmpty()) {
+            close();
+            return null;
+        }
+        return outBatch;
+    }
+
+    /**
+     * Reads the next tuple from the current input.
+     *
+     * @return the next tuple; null if the current input is exhausted.
+     */
+    private Tuple nextInput() {
+        if (currentPartition != null) {
+            try {
+                return partitionReader.next();
+            } catch (IOException e) {
+                System.err.printf("HashGroupby: error in reading the partition file due to %s\n", e.toString());
+                System.exit(1);
+                return null;
+            }
+        }
+        while (!baseExhausted && (inBatch == null || inIndex == inBatch.size())) {
+            inBatch = getBase().next();
+            inIndex = 0;
+            baseExhausted = inBatch == null;
+        }
+        return baseExhausted ? null : inBatch.elementAt(inIndex++);
+    }
+
+    /**
+     * Finishes the current input, and moves on to the next partition which is yet to be processed.
+     *
+     * @return true if there is a next partition; false if all tuples have been processed.
+     */
+    private boolean nextPartition() {
+        outputGroups = null;
+        if (currentPartition != null) {
+            closeReader();
+        }
+        if (spilled != null) {
+            for (SpillPartition partition : spilled) {
+                partition.closeWriter();
+                if (partition.isEmpty()) {
+                    partition.delete();
+                } else {
+                    pendingPartitions.push(partition);
+                }
+            }
+            spilled = null;
+        }
+        if (pendingPartitions.isEmpty()) {
+            return false;
+        }
+
+        currentPartition = pendingPartitions.pop();
+        partitionReader = currentPartition.openReader();
+        table = new HashMap<>();
+        depth = currentPartition.getDepth();
+        return true;
+    }
+
+    /**
+     * Writes a tuple whose group is not in the full hash table into its partition, creating the
+     * partitions of the current input first if necessary.
+     *
+     * @param tuple is the tuple to be spilled.
+     * @param key   is the group-by values of the tuple.
+     */
+    private void spill(Tuple tuple, List<Object> key) {
+        if (spilled == null) {
+            spilled = new SpillPartition[numOfPartitions];
+            numOfSpills++;
+            for (int i = 0; i < numOfPartitions; i++) {
+                String name = "HGtemp-" + groupbyID + "-" + numOfSpills + "-" + i;
+                spilled[i] = new SpillPartition(SpillManager.getPath("HG-" + groupbyID, name), getBase().getSchema(), depth + 1);
+            }
+        }
+        spilled[HashJoin.partitionOf(key, depth, numOfPartitions)].write(tuple);
+    }
+
+    /**
+     * Closes the stream of the partition being processed and deletes its file.
+     */
+    private void closeReader() {
+        try {
+            partitionReader.close();
+        } catch (IOException e) {
+            System.err.println("HashGroupby: error in closing the partition file");
+        }
+        currentPartition.delete();
+        currentPartition = null;
+        partitionReader = null;
+    }
+
+    /**
+     * Closes this operator by deleting all the files generated.
+     *
+     * @return true if the operator is closed successfully.
+     */
+    @Override
+    public boolean close() {
+        eos = true;
+        releaseFrames();
+        if (currentPartition != null) {
+            closeReader();
+        }
+        if (spilled != null) {
+            for (SpillPartition partition : spilled) {
+                partition.delete();
+            }
+            spilled = null;
+        }
+        while (!pendingPartitions.isEmpty()) {
+            pendingPartitions.pop().delete();
+        }
+        table = null;
+        outputGroups = null;
+        return true;
+    }
+}
@@ -0,0 +1,558 @@
+package qp.operators;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Vector;
+
+import qp.utils.Attribute;
+import qp.utils.Batch;
+import qp.utils.PageFileReader;
+import qp.utils.PageFileWriter;
+import qp.utils.Schema;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+/**
+ * Implements the partitioned (Grace) hash join algorithm. Both inputs are split into
+ * (numOfBuffer - 1) partitions on disk using a hash function on the join attribute. Each
+ * pair of partitions is then joined by building an in-memory hash table on the smaller
+ * side and probing it with the other side. A partition that still does not fit into
+ * (numOfBuffer - 2) pages is partitioned again using a different hash function.
+ */
+public class HashJoin extends Join {
+    // The maximum number of times a partition pair would be re-partitioned.
+    private static final int MAX_PARTITION_DEPTH = 4;
+    // To get unique fileNum for this operation.
+    private static int fileNum = 0;
+
+    // The number of tuples per output batch.
+    private int batchSize;
+    // The number of tuples per batch in the left input.
+    int leftBatchSize;
+    // The number of tuples per batch in the right input.
+    int rightBatchSize;
+
+    // Index of the join attribute in left table.
+    int leftIndex;
+    // Index of the join attribute in right table.
+    int rightIndex;
+
+    // The partition pairs which have not been joined yet.
+    private final Deque<PartitionPair> pendingPairs = new ArrayDeque<>();
+    // The partition pair that is currently being joined.
+    private PartitionPair currentPair;
+
+    // The in-memory hash table built on the current build partition.
+    HashMap<Object, Vector<Tuple>> hashTable;
+    // Whether the left partition is used as the build side for the current pair.
+    boolean buildIsLeft;
+    // The input stream of the probe partition for the current pair.
+    private PageFileReader probeStream;
+    // The number of tuples per batch in the probe partition.
+    private int probeBatchSize;
+    // The buffer for the probe partition.
+    private Batch probeBatch;
+    // Cursor for the probe buffer.
+    private int probeCursor;
+
+    // The probe tuple which is currently being joined.
+    private Tuple probeTuple;
+    // The build tuples matching the current probe tuple.
+    private Vector<Tuple> matches;
+    // Cursor for the matching build tuples.
+    private int matchCursor;
+
+    // Whether end of stream is reached for the join result.
+    private boolean eos;
+    // The unique fileNum of this operation.
+    private int joinID;
+    // The number of sets of partitions generated so far, to get unique file names.
+    private int numOfWriters = 0;
+
+    /**
+     * Instantiates a new join operator using partitioned hash join algorithm.
+     *
+     * @param jn is the base join operator.
+     */
+    public HashJoin(Join jn) {
+        super(jn.getLeft(), jn.getRight(), jn.getCondition(), jn.getOpType());
+        schema = jn.getSchema();
+        joinType = jn.getJoinType();
+        numOfBuffer = jn.getNumOfBuffer();
+    }
+
+    /**
+     * Opens this operator by performing the following operations:
+     * 1. Finds the index of the join attributes;
+     * 2. Partitions both the left and the right input into files;
+     * 3. Prepares the first partition pair for probing.
+     *
+     * @return true if the operator is opened successfully.
+     */
+    @Override
+    public boolean open() {
+        initialize();
+
+        // Phase 1: partitions both inputs with the same hash function.
+        PartitionWriter leftWriter = partition(left, leftIndex, "L", 0);
+        PartitionWriter rightWriter = partition(right, rightIndex, "R", 0);
+        if (leftWriter == null || rightWriter == null) {
+            return false;
+        }
+        addPartitionPairs(leftWriter, rightWriter, 0);
+
+        // Phase 2: prepares the first partition pair to be joined.
+        prepareNextPair();
+        return true;
+    }
+
+    /**
+     * Finds the index of the join attributes and resets the states of this operator.
+     */
+    void initialize() {
+        // Selects the number of tuples per page based tuple size.
+        batchSize = Batch.getPageSize() / schema.getTupleSize();
+        leftBatchSize = Batch.getPageSize() / left.getSchema().getTupleSize();
+        rightBatchSize = Batch.getPageSize() / right.getSchema().getTupleSize();
+
+        // Gets the join attribute from left & right table.
+        Attribute leftAttr = con.getLeft();
+        Attribute rightAttr = (Attribute) con.getRight();
+        leftIndex = left.getSchema().indexOf(leftAttr);
+        rightIndex = right.getSchema().indexOf(rightAttr);
+
+        eos = false;
+        fileNum++;
+        joinID = fileNum;
+        reserveFrames(numOfBuffer);
+    }
+
+    /**
+     * Joins the current pair of partitions and returns the matching tuples.
+     *
+     * @return the next page of output tuples.
+     */
+    @Override
+    public Batch next() {
+        if (eos) {
+            close();
+            return null;
+        }
+
+        Batch outBatch = new Batch(batchSize);
+        while (!outBatch.isFull()) {
+            // Emits the remaining matches of the current probe tuple first.
+            if (matches != null && matchCursor < matches.size()) {
+                Tuple buildTuple = matches.elementAt(matchCursor);
+                matchCursor++;
+                if (buildIsLeft) {
+                    outBatch.add(buildTuple.joinWith(probeTuple));
+                } else {
+                    outBatch.add(probeTuple.joinWith(buildTuple));
+                }
+                continue;
+            }
+
+            // Moves on to the next probe tuple.
+            probeTuple = nextProbeTuple();
+            if (probeTuple == null) {
+                eos = true;
+                break;
+            }
+            int probeIndex = buildIsLeft ? rightIndex : leftIndex;
+            matches = hashTable.get(probeTuple.dataAt(probeIndex));
+            matchCursor = 0;
+        }
+        return outBatch;
+    }
+
+    /**
+     * Reads the next tuple from the probe partition of the current pair. Moves on to the
+     * next partition pair when the current probe partition is exhausted.
+     *
+     * @return the next probe tuple if available; null otherwise.
+     */
+    Tuple nextProbeTuple() {
+        while (currentPair != null) {
+            if (probeBatch != null && probeCursor < probeBatch.size()) {
+                Tuple next = probeBatch.elementAt(probeCursor);
+                probeCursor++;
+                return next;
+            }
+
+            try {
+                probeBatch = probeStream.nextBatch(probeBatchSize);
+                probeCursor = 0;
+                if (probeBatch == null) {
+                    finishCurrentPair();
+                    prepareNextPair();
+                }
+            } catch (IOException e) {
+                System.err.printf("HashJoin: error reading partition due to %s\n", e.toString());
+                System.exit(1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes the next partition pair and builds the in-memory hash table on its smaller side.
+     * Pairs whose build side still exceeds the available buffers are partitioned again.
+     */
+    void prepareNextPair() {
+        currentPair = null;
+        while (!pendingPairs.isEmpty()) {
+            PartitionPair pair = pendingPairs.pop();
+
+            // Nothing would match if either side of the pair is empty.
+            if (pair.leftPages == 0 || pair.rightPages == 0) {
+                pair.delete();
+                continue;
+            }
+
+            // Recursively partitions the pair if the build side does not fit in memory.
+            int buildPages = Math.min(pair.leftPages, pair.rightPages);
+            if (buildPages > numOfBuffer - 2 && pair.depth < MAX_PARTITION_DEPTH) {
+                int depth = pair.depth + 1;
+                PartitionWriter leftWriter = partition(pair.leftFileName, leftIndex, left.getSchema(), "L", depth);
+                PartitionWriter rightWriter = partition(pair.rightFileName, rightIndex, right.getSchema(), "R", depth);
+                pair.delete();
+                addPartitionPairs(leftWriter, rightWriter, depth);
+                continue;
+            }
+
+            // Builds on the smaller side, and probes with the other side.
+            buildIsLeft = pair.leftPages <= pair.rightPages;
+            String buildFileName = buildIsLeft ? pair.leftFileName : pair.rightFileName;
+            String probeFileName = buildIsLeft ? pair.rightFileName : pair.leftFileName;
+            int buildIndex = buildIsLeft ? leftIndex : rightIndex;
+            Schema buildSchema = buildIsLeft ? left.getSchema() : right.getSchema();
+            Schema probeSchema = buildIsLeft ? right.getSchema() : left.getSchema();
+            buildHashTable(buildFileName, buildIndex, buildSchema);
+
+            try {
+                probeStream = new PageFileReader(probeFileName, probeSchema);
+                probeBatchSize = buildIsLeft ? rightBatchSize : leftBatchSize;
+            } catch (IOException e) {
+                System.err.printf("HashJoin: error in reading the file %s due to %s\n", probeFileName, e.toString());
+                System.exit(1);
+            }
+            probeBatch = null;
+            probeCursor = 0;
+            matches = null;
+            currentPair = pair;
+            return;
+        }
+    }
+
+    /**
+     * Loads all tuples of a build partition into an in-memory hash table.
+     *
+     * @param fileName is the file name of the build partition.
+     * @param index    is the index of the join attribute in the build partition.
+     * @param schema   is the schema of the build partition.
+     */
+    private void buildHashTable(String fileName, int index, Schema schema) {
+        hashTable = new HashMap<>();
+        try {
+            PageFileReader in = new PageFileReader(fileName, schema);
+            Tuple tuple = in.next();
+            while (tuple != null) {
+                hashTable.computeIfAbsent(tuple.dataAt(index), k -> new Vector<>()).add(tuple);
+                tuple = in.next();
+            }
+            in.close();
+        } catch (IOException e) {
+            System.err.printf("HashJoin: error in reading the file %s due to %s\n", fileName, e.toString());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Releases the resources of the partition pair which has just been joined.
+     */
+    private void finishCurrentPair() {
+        try {
+            probeStream.close();
+        } catch (IOException e) {
+            System.err.println("HashJoin: error in closing the partition file");
+        }
+        probeStream = null;
+        probeBatch = null;
+        hashTable = null;
+        matches = null;
+        currentPair.delete();
+        currentPair = null;
+    }
+
+    /**
+     * Pairs up the partitions generated from both sides and schedules them to be joined.
+     *
+     * @param leftWriter  is the partition writer for the left input.
+     * @param rightWriter is the partition writer for the right input.
+     * @param depth       is the recursion depth at which the partitions are generated.
+     */
+    void addPartitionPairs(PartitionWriter leftWriter, PartitionWriter rightWriter, int depth) {
+        for (int i = leftWriter.numOfPartitions() - 1; i >= 0; i--) {
+            pendingPairs.push(new PartitionPair(leftWriter.fileNames[i], leftWriter.numOfPages[i],
+                    rightWriter.fileNames[i], rightWriter.numOfPages[i], depth));
+        }
+    }
+
+    /**
+     * Partitions all tuples from an operator.
+     *
+     * @param input     is the operator to be partitioned.
+     * @param index     is the index of the join attribute.
+     * @param side      is a tag to distinguish the files of both sides.
+     * @param depth     is the recursion depth.
+     * @return the writer holding the generated partitions; null if the input cannot be opened.
+     */
+    private PartitionWriter partition(Operator input, int index, String side, int depth) {
+        if (!input.open()) {
+            return null;
+        }
+        PartitionWriter writer = new PartitionWriter(numOfBuffer - 1, index, input.getSchema(), side, depth);
+        Batch inBatch = input.next();
+        while (inBatch != null) {
+            for (int i = 0; i < inBatch.size(); i++) {
+                writer.add(inBatch, i);
+            }
+            inBatch = input.next();
+        }
+        input.close();
+        writer.close();
+        return writer;
+    }
+
+    /**
+     * Partitions all tuples from a partition file generated earlier.
+     *
+     * @param fileName  is the file to be partitioned again.
+     * @param index     is the index of the join attribute.
+     * @param schema    is the schema of the tuples in the file.
+     * @param side      is a tag to distinguish the files of both sides.
+     * @param depth     is the recursion depth.
+     * @return the writer holding the generated partitions.
+     */
+    private PartitionWriter partition(String fileName, int index, Schema schema, String side, int depth) {
+        PartitionWriter writer = new PartitionWriter(numOfBuffer - 1, index, schema, side, depth);
+        try {
+            PageFileReader in = new PageFileReader(fileName, schema);
+            Tuple tuple = in.next();
+            while (tuple != null) {
+                writer.add(tuple);
+                tuple = in.next();
+            }
+            in.close();
+        } catch (IOException e) {
+            System.err.printf("HashJoin: error in reading the file %s due to %s\n", fileName, e.toString());
+            System.exit(1);
+        }
+        writer.close();
+        return writer;
+    }
+
+    /**
+     * Computes the partition of a join attribute value. A different hash function is used at
+     * each recursion depth, so that a partition is split further when partitioned again.
+     *
+     * @param value           is the value of the join attribute.
+     * @param depth           is the recursion depth.
+     * @param numOfPartitions is the number of partitions.
+     * @return the partition ID, in the range of [0, numOfPartitions).
+     */
+    static int partitionOf(Object value, int depth, int numOfPartitions) {
+        return Math.floorMod(hashOf(value, depth), numOfPartitions);
+    }
+
+    /**
+     * Computes a well-mixed hash code of a join attribute value, seeded by the recursion depth.
+     *
+     * @param value is the value of the join attribute.
+     * @param depth is the recursion depth.
+     * @return the hash code.
+     */
+    static int hashOf(Object value, int depth) {
+        return hashOf(value.hashCode(), depth);
+    }
+
+    /**
+     * Mixes the hash code of a join attribute value, seeded by the recursion depth.
+     *
+     * @param hashCode is the hash code of the value of the join attribute.
+     * @param depth    is the recursion depth.
+     * @return the mixed hash code.
+     */
+    static int hashOf(int hashCode, int depth) {
+        int hash = hashCode ^ ((depth + 1) * 0x9E3779B9);
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Closes this operator by deleting all the files generated.
+     *
+     * @return true if the operator is closed successfully.
+     */
+    @Override
+    public boolean close() {
+        releaseFrames();
+        if (currentPair != null) {
+            finishCurrentPair();
+        }
+        while (!pendingPairs.isEmpty()) {
+            pendingPairs.pop().delete();
+        }
+        return true;
+    }
+
+    /**
+     * Writes tuples into a number of partition files, using one output buffer page for each
+     * partition.
+     */
+    class PartitionWriter {
+        // The index of the join attribute.
+        private final int index;
+        // The recursion depth.
+        private final int depth;
+        // The file names of all partitions.
+        private final String[] fileNames;
+        // The number of pages written to each partition.
+        private final int[] numOfPages;
+        // The output streams of all partitions, each holding one output buffer page.
+        private final PageFileWriter[] outStreams;
+
+        /**
+         * Creates the files for a new set of partitions.
+         *
+         * @param numOfPartitions is the number of partitions.
+         * @param index           is the index of the join attribute.
+         * @param schema          is the schema of the tuples.
+         * @param side            is a tag to distinguish the files of both sides.
+         * @param depth           is the recursion depth.
+         */
+        PartitionWriter(int numOfPartitions, int index, Schema schema, String side, int depth) {
+            this.index = index;
+            this.depth = depth;
+
+            fileNames = new String[numOfPartitions];
+            numOfPages = new int[numOfPartitions];
+            outStreams = new PageFileWriter[numOfPartitions];
+            numOfWriters++;
+            String prefix = "HJtemp-" + joinID + "-" + numOfWriters + "-" + side;
+            try {
+                for (int i = 0; i < numOfPartitions; i++) {
+                    fileNames[i] = SpillManager.getPath("HJ-" + joinID, prefix + "-" + i);
+                    outStreams[i] = new PageFileWriter(fileNames[i], schema, Batch.getPageSize());
+                }
+            } catch (IOException e) {
+                System.err.printf("HashJoin: error in writing the partition files due to %s\n", e.toString());
+                System.exit(1);
+            }
+        }
+
+        /**
+         * @return the number of partitions.
+         */
+        int numOfPartitions() {
+            return fileNames.length;
+        }
+
+        /**
+         * Adds a tuple into its partition, and flushes the output buffer of that partition if full.
+         *
+         * @param tuple is the tuple to be added.
+         */
+        void add(Tuple tuple) {
+            add(tuple, partitionOf(tuple.dataAt(index), depth, numOfPartitions()));
+        }
+
+        /**
+         * Adds the tuple at a given index of a batch into its partition, without creating the tuple
+         * if the batch is a columnar batch.
+         *
+         * @param batch is the batch containing the tuple.
+         * @param i     is the index of the tuple.
+         */
+        void add(Batch batch, int i) {
+            int partitionID = Math.floorMod(hashOf(batch.hashCodeAt(i, index), depth), numOfPartitions());
+            try {
+                outStreams[partitionID].write(batch, i);
+            } catch (IOException e) {
+                System.err.printf("HashJoin: error in writing the partition files due to %s\n", e.toString());
+                System.exit(1);
+            }
+        }
+
+        /**
+         * Adds a tuple into a given partition, and flushes the output buffer of that partition if full.
+         *
+         * @param tuple       is the tuple to be added.
+         * @param partitionID is the ID of the partition.
+         */
+        void add(Tuple tuple, int partitionID) {
+            try {
+                outStreams[partitionID].write(tuple);
+            } catch (IOException e) {
+                System.err.printf("HashJoin: error in writing the partition files due to %s\n", e.toString());
+                System.exit(1);
+            }
+        }
+
+        /**
+         * Flushes all partially filled output buffers and closes the partition files.
+         */
+        void close() {
+            for (int i = 0; i < numOfPartitions(); i++) {
+                try {
+                    outStreams[i].close();
+                } catch (IOException e) {
+                    System.err.println("HashJoin: error in closing the partition files");
+                }
+                numOfPages[i] = outStreams[i].getNumOfPages();
+            }
+        }
+    }
+
+    /**
+     * Represents a pair of corresponding partitions from the left and the right input.
+     */
+    private static class PartitionPair {
+        // The file name of the left partition.
+        private final String leftFileName;
+        // The number of pages in the left partition.
+        private final int leftPages;
+        // The file name of the right partition.
+        private final String rightFileName;
+        // The number of pages in the right partition.
+        private final int rightPages;
+        // The recursion depth at which the partitions are generated.
+        private final int depth;
+
+        /**
+         * Creates a new partition pair.
+         */
+        PartitionPair(String leftFileName, int leftPages, String rightFileName, int rightPages, int depth) {
+            this.leftFileName = leftFileName;
+            this.leftPages = leftPages;
+            this.rightFileName = rightFileName;
+            this.rightPages = rightPages;
+            this.depth = depth;
+        }
+
+        /**
+         * Deletes the files of both partitions.
+         */
+        void delete() {
+            SpillManager.release(leftFileName);
+            SpillManager.release(rightFileName);
+        }
+    }
+}
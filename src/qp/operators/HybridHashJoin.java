@@ -0,0 +1,229 @@
+package qp.operators;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+import qp.utils.Batch;
+import qp.utils.Tuple;
+
+/**
+ * Implements the hybrid hash join algorithm. It works like {@link HashJoin}, except that the
+ * buffers left over after partitioning are used to keep the hash table of partition 0 from
+ * the left (build) input in memory. Right tuples belonging to partition 0 are probed against
+ * it immediately, instead of being written to disk and read back later.
+ */
+public class HybridHashJoin extends HashJoin {
+    // The estimated number of pages in the left input, used to size the partitions.
+    private int numOfLeftPages;
+
+    // The number of partitions which are written to disk.
+    private int numOfSpilledPartitions;
+    // The maximum number of tuples kept in memory for partition 0.
+    private int residentCapacity;
+    // Partition 0 is chosen for hash codes below this threshold.
+    private int residentThreshold;
+    // The number of tuples of partition 0 which are kept in memory.
+    private int numOfResidentTuples;
+    // Whether partition 0 has been written to disk because it outgrows the memory.
+    private boolean residentSpilled;
+
+    // The partitions of the left input.
+    private PartitionWriter leftWriter;
+    // The partitions of the right input.
+    private PartitionWriter rightWriter;
+
+    // The buffer for the right input stream.
+    private Batch rightBatch;
+    // Cursor for right side buffer.
+    private int rightCursor;
+    // Whether the right input is still being partitioned (and probed against partition 0).
+    private boolean partitioningRight;
+
+    /**
+     * Instantiates a new join operator using hybrid hash join algorithm.
+     *
+     * @param jn is the base join operator.
+     */
+    public HybridHashJoin(Join jn) {
+        super(jn);
+    }
+
+    /**
+     * Setter for numOfLeftPages.
+     *
+     * @param numOfLeftPages is the estimated number of pages in the left input.
+     */
+    public void setNumOfLeftPages(int numOfLeftPages) {
+        this.numOfLeftPages = numOfLeftPages;
+    }
+
+    /**
+     * Calculates the number of partitions to be written to disk, such that each of them is expected
+     * to fit in memory later while the rest of the memory holds partition 0.
+     *
+     * @param numOfLeftPages is the estimated number of pages in the left input.
+     * @param numOfBuffer    is the number of buffer pages available.
+     * @return the number of spilled partitions.
+     */
+    public static int getNumOfSpilledPartitions(int numOfLeftPages, int numOfBuffer) {
+        // One input buffer and one output buffer are always reserved.
+        if (numOfLeftPages <= numOfBuffer - 2) {
+            return 0;
+        } else if (numOfBuffer <= 3) {
+            return 1;
+        }
+        int numOfPartitions = (int) Math.ceil(1.0 * (numOfLeftPages - numOfBuffer + 2) / (numOfBuffer - 3));
+        return Math.min(Math.max(numOfPartitions, 1), numOfBuffer - 3);
+    }
+
+    /**
+     * Opens this operator by partitioning the left input. Partition 0 is kept in memory as a hash
+     * table, and the right input is partitioned lazily while the result is consumed.
+     *
+     * @return true if the operator is opened successfully.
+     */
+    @Override
+    public boolean open() {
+        initialize();
+
+        // Divides the buffers between the output buffers of the spilled partitions and partition 0.
+        numOfSpilledPartitions = getNumOfSpilledPartitions(numOfLeftPages, numOfBuffer);
+        int residentPages = Math.max(numOfBuffer - 2 - numOfSpilledPartitions, 1);
+        residentCapacity = residentPages * leftBatchSize;
+        double residentFraction = numOfLeftPages <= residentPages ? 1.0 : 1.0 * residentPages / numOfLeftPages;
+        residentThreshold = (int) (residentFraction * Integer.MAX_VALUE);
+        numOfResidentTuples = 0;
+        residentSpilled = false;
+
+        // Phase 1: partitions the left input and builds the hash table for partition 0.
+        if (!left.open()) {
+            return false;
+        }
+        leftWriter = new PartitionWriter(numOfSpilledPartitions + 1, leftIndex, left.getSchema(), "L", 0);
+        hashTable = new HashMap<>();
+        Batch inBatch = left.next();
+        while (inBatch != null) {
+            for (int i = 0; i < inBatch.size(); i++) {
+                addLeftTuple(inBatch.elementAt(i));
+            }
+            inBatch = left.next();
+        }
+        left.close();
+        leftWriter.close();
+
+        // Phase 2 starts: the right input is probed against partition 0 and partitioned on the fly.
+        if (!right.open()) {
+            return false;
+        }
+        rightWriter = new PartitionWriter(numOfSpilledPartitions + 1, rightIndex, right.getSchema(), "R", 0);
+        buildIsLeft = true;
+        rightBatch = null;
+        rightCursor = 0;
+        partitioningRight = true;
+        return true;
+    }
+
+    /**
+     * Reads the next tuple to be probed. While the right input is being partitioned, only tuples
+     * of the in-memory partition 0 are returned. Afterwards, the spilled partitions are joined
+     * in the same way as {@link HashJoin}.
+     *
+     * @return the next probe tuple if available; null otherwise.
+     */
+    @Override
+    Tuple nextProbeTuple() {
+        while (partitioningRight) {
+            if (rightBatch == null || rightCursor == rightBatch.size()) {
+                rightBatch = right.next();
+                rightCursor = 0;
+                if (rightBatch == null) {
+                    finishPartitioning();
+                    break;
+                }
+                continue;
+            }
+
+            Tuple tuple = rightBatch.elementAt(rightCursor);
+            rightCursor++;
+            int partitionID = partitionOf(tuple.dataAt(rightIndex));
+            if (partitionID == 0 && !residentSpilled) {
+                return tuple;
+            }
+            rightWriter.add(tuple, partitionID);
+        }
+        return super.nextProbeTuple();
+    }
+
+    /**
+     * Adds a tuple from the left input into either the in-memory hash table or its partition file.
+     *
+     * @param tuple is the tuple from the left input.
+     */
+    private void addLeftTuple(Tuple tuple) {
+        Object key = tuple.dataAt(leftIndex);
+        int partitionID = partitionOf(key);
+        if (partitionID != 0 || residentSpilled) {
+            leftWriter.add(tuple, partitionID);
+            return;
+        }
+
+        hashTable.computeIfAbsent(key, k -> new Vector<>()).add(tuple);
+        numOfResidentTuples++;
+
+        // Falls back to spill partition 0 as well if the estimation is too optimistic.
+        if (numOfResidentTuples > residentCapacity) {
+            for (Vector<Tuple> tuples : hashTable.values()) {
+                for (Tuple residentTuple : tuples) {
+                    leftWriter.add(residentTuple, 0);
+                }
+            }
+            hashTable = new HashMap<>();
+            residentSpilled = true;
+        }
+    }
+
+    /**
+     * Finishes partitioning the right input, and schedules the spilled partitions to be joined.
+     */
+    private void finishPartitioning() {
+        partitioningRight = false;
+        right.close();
+        rightWriter.close();
+        hashTable = null;
+        addPartitionPairs(leftWriter, rightWriter, 0);
+        prepareNextPair();
+    }
+
+    /**
+     * Computes the partition of a join attribute value. Partition 0 receives the share of values
+     * which is expected to fit in memory, and the remaining values are spread across the other
+     * partitions evenly.
+     *
+     * @param value is the value of the join attribute.
+     * @return the partition ID, in the range of [0, numOfSpilledPartitions].
+     */
+    private int partitionOf(Object value) {
+        int hash = hashOf(value, 0);
+        if ((hash & Integer.MAX_VALUE) < residentThreshold || numOfSpilledPartitions == 0) {
+            return 0;
+        }
+        return 1 + Math.floorMod(hash, numOfSpilledPartitions);
+    }
+
+    /**
+     * Closes this operator by deleting all the files generated.
+     *
+     * @return true if the operator is closed successfully.
+     */
+    @Override
+    public boolean close() {
+        if (partitioningRight) {
+            partitioningRight = false;
+            right.close();
+            rightWriter.close();
+            addPartitionPairs(leftWriter, rightWriter, 0);
+        }
+        hashTable = null;
+        return super.close();
+    }
+}
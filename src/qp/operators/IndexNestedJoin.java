@@ -0,0 +1,161 @@
+package qp.operators;
+
+import java.io.IOException;
+import java.util.Vector;
+
+import qp.utils.Attribute;
+import qp.utils.BPlusTree;
+import qp.utils.Batch;
+import qp.utils.Tuple;
+
+/**
+ * Implements the index nested loop join algorithm. For each tuple from the left (outer) input, the
+ * matching tuples from the right (inner) input are found by probing a {@link BPlusTree} index on
+ * the join attribute of the right table. Thus, the right input must be a base table, and it is
+ * never scanned.
+ */
+public class IndexNestedJoin extends Join {
+    // The number of tuples per batch.
+    private int batchSize;
+    // Index of the join attribute in left table
+    private int leftIndex;
+
+    // The index on the join attribute of the right table.
+    private BPlusTree index;
+
+    // The buffer for the left input stream.
+    private Batch leftBatch;
+    // Cursor for left side buffer
+    private int leftCursor;
+    // The left tuple being joined.
+    private Tuple leftTuple;
+    // The right tuples matching the current left tuple.
+    private Vector<Tuple> matches;
+    // Cursor for the matching right tuples.
+    private int matchCursor;
+    // Whether end of stream is reached for the left table
+    private boolean eos;
+
+    /**
+     * Instantiates a new join operator using index nested loop algorithm.
+     *
+     * @param jn is the base join operator.
+     */
+    public IndexNestedJoin(Join jn) {
+        super(jn.getLeft(), jn.getRight(), jn.getCondition(), jn.getOpType());
+        schema = jn.getSchema();
+        joinType = jn.getJoinType();
+        numOfBuffer = jn.getNumOfBuffer();
+    }
+
+    /**
+     * Checks whether the index nested loop join can be applied, i.e., whether the right input is a
+     * base table with a readable index on the given join attribute.
+     *
+     * @param right     is the right input.
+     * @param rightAttr is the join attribute of the right input.
+     * @return true if there is an index to be probed.
+     */
+    public static boolean isApplicable(Operator right, Attribute rightAttr) {
+        return right.getOpType() == OpType.SCAN
+                && BPlusTree.getShape(((Scan) right).getTableName(), rightAttr.getColName(), right.getSchema()) != null;
+    }
+
+    /**
+     * Opens this operator by opening the index and the left input.
+     *
+     * @return true if the operator is opened successfully.
+     */
+    @Override
+    public boolean open() {
+        // Selects the number of tuples per page based tuple size.
+        int tupleSize = schema.getTupleSize();
+        batchSize = Batch.getPageSize() / tupleSize;
+
+        // Gets the join attribute from left & right table.
+        Attribute leftAttr = con.getLeft();
+        Attribute rightAttr = (Attribute) con.getRight();
+        leftIndex = left.getSchema().indexOf(leftAttr);
+
+        String tableName = ((Scan) right).getTableName();
+        String indexFileName = BPlusTree.getFileName(tableName, rightAttr.getColName());
+        try {
+            index = new BPlusTree(indexFileName, right.getSchema());
+        } catch (IOException e) {
+            System.err.printf("IndexNestedJoin: error opening index %s due to %s\n", indexFileName, e.toString());
+            return false;
+        }
+
+        leftBatch = null;
+        leftCursor = 0;
+        matches = null;
+        matchCursor = 0;
+        eos = false;
+        return left.open();
+    }
+
+    /**
+     * Selects tuples satisfying the join condition from the left input and the index.
+     *
+     * @return the next page of output tuples.
+     */
+    @Override
+    public Batch next() {
+        if (eos) {
+            close();
+            return null;
+        }
+
+        Batch outBatch = new Batch(batchSize);
+        while (!outBatch.isFull()) {
+            // Emits the remaining matches of the current left tuple first.
+            if (matches != null && matchCursor < matches.size()) {
+                outBatch.add(leftTuple.joinWith(matches.elementAt(matchCursor)));
+                matchCursor++;
+                continue;
+            }
+
+            // Moves on to the next left tuple.
+            if (leftBatch == null || leftCursor == leftBatch.size()) {
+                leftBatch = left.next();
+                leftCursor = 0;
+                if (leftBatch == null) {
+                    eos = true;
+                    break;
+                }
+                continue;
+            }
+            leftTuple = leftBatch.elementAt(leftCursor);
+            leftCursor++;
+            try {
+                matches = index.search(leftTuple.dataAt(leftIndex));
+            } catch (IOException e) {
+                System.err.printf("IndexNestedJoin: error reading index due to %s\n", e.toString());
+                System.exit(1);
+            }
+            matchCursor = 0;
+        }
+        return outBatch;
+    }
+
+    /**
+     * Closes this operator by closing the index.
+     *
+     * @return true if the operator is closed successfully.
+     */
+    @Override
+    public boolean close() {
+        if (index == null) {
+            return true;
+        }
+        try {
+            index.close();
+        } catch (IOException e) {
+            System.err.println("IndexNestedJoin: error closing index");
+            return false;
+        } finally {
+            index = null;
+        }
+        return true;
+    }
+}
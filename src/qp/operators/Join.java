@@ -1,5 +1,6 @@
 package qp.operators;
 
+import qp.utils.Attribute;
 import qp.utils.Condition;
 import qp.utils.Schema;
 
@@ -91,6 +92,18 @@ public class Join extends Operator {
         this.joinType = type;
     }
 
+    /**
+     * Checks whether the output is sorted on an attribute. The output of a sort merge join is in
+     * ascending order of the join attributes of both sides, which are equal.
+     *
+     * @param attr is the attribute.
+     * @return true if the output is sorted on the attribute.
+     */
+    @Override
+    public boolean isSortedOn(Attribute attr) {
+        return joinType == JoinType.SORT_MERGE_JOIN && (attr.equals(con.getLeft()) || attr.equals(con.getRight()));
+    }
+
     /**
      * Getter for left.
      *
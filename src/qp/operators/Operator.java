@@ -1,6 +1,8 @@
 package qp.operators;
 
+import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.BufferPool;
 import qp.utils.Schema;
 
 /**
@@ -11,6 +13,10 @@ public class Operator {
     int opType;
     // The result schema at this operator.
     Schema schema;
+    // The buffer pool from which the working memory of this operator is reserved; null if none.
+    private BufferPool reservedPool;
+    // The number of frames reserved from the buffer pool.
+    private int numOfReservedFrames = 0;
 
     /**
      * Instantiates a operator of a certain type.
@@ -74,6 +80,45 @@ public class Operator {
         return true;
     }
 
+    /**
+     * Checks whether the output of this operator is known to be in ascending order of an
+     * attribute, so that it does not have to be sorted again on the attribute.
+     *
+     * @param attr is the attribute.
+     * @return true if the output is sorted on the attribute.
+     */
+    public boolean isSortedOn(Attribute attr) {
+        return false;
+    }
+
+    /**
+     * Reserves frames from the buffer pool, if there is one, as the working memory of this
+     * operator. The frames are then unavailable for caching pages until released.
+     *
+     * @param numOfFrames is the number of frames used by this operator.
+     * @return the number of frames granted, which may be fewer; all of them if there is no pool.
+     */
+    int reserveFrames(int numOfFrames) {
+        releaseFrames();
+        reservedPool = BufferPool.getInstance();
+        if (reservedPool == null) {
+            return numOfFrames;
+        }
+        numOfReservedFrames = reservedPool.reserve(numOfFrames);
+        return numOfReservedFrames;
+    }
+
+    /**
+     * Releases the frames reserved by this operator, if any.
+     */
+    void releaseFrames() {
+        if (reservedPool != null) {
+            reservedPool.release(numOfReservedFrames);
+            reservedPool = null;
+            numOfReservedFrames = 0;
+        }
+    }
+
     /**
      * Creates a copy of this operator.
      *
@@ -1,15 +1,12 @@
 package qp.operators;
 
-import java.io.EOFException;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.PageFileReader;
+import qp.utils.PageFileWriter;
+import qp.utils.SpillManager;
 import qp.utils.Tuple;
 
 /**
@@ -18,6 +15,8 @@ import qp.utils.Tuple;
 public class PageNestedJoin extends Join {
     // The number of tuples per batch.
     private int batchSize;
+    // The number of tuples per batch in the right table.
+    private int rightBatchSize;
 
     /**
      * Defines some fields useful during the execution of the page-based nested
@@ -28,10 +27,10 @@ public class PageNestedJoin extends Join {
     // Index of the join attribute in right table
     private int rightIndex;
 
-    // The file name where the right table is materialize
+    // The file name where the right table is materialize; null if the right table is a base table
     private String rightFileName;
     // File pointer to the right hand materialized file
-    private ObjectInputStream in;
+    private PageFileReader in;
     // To get unique fileNum for this operation
     private static int fileNum = 0;
 
@@ -66,7 +65,7 @@ public class PageNestedJoin extends Join {
     /**
      * Opens this operator by performing the following operations:
      * 1. Finds the index of the join attributes;
-     * 2. Materializes the right hand side into a file;
+     * 2. Materializes the right hand side into a file, unless it is a base table;
      * 3. Opens the connections.
      *
      * @return true if the operator is opened successfully.
@@ -76,6 +75,7 @@ public class PageNestedJoin extends Join {
         // Selects the number of tuples per page based tuple size.
         int tupleSize = schema.getTupleSize();
         batchSize = Batch.getPageSize() / tupleSize;
+        rightBatchSize = Batch.getPageSize() / right.getSchema().getTupleSize();
 
         // Gets the join attribute from left & right table.
         Attribute leftAttr = con.getLeft();
@@ -91,22 +91,28 @@ public class PageNestedJoin extends Join {
         // Right stream would be repetitively scanned. If it reaches the end, we have to start new scan.
         eosRight = true;
 
+        // A base table scanned repeatedly reads its pages through the buffer pool rather than
+        // ahead of time, so that they may be cached between the passes.
+        if (right.getOpType() == OpType.SCAN) {
+            ((Scan) right).setReadAhead(false);
+        }
+
         // Materializes the right table for the algorithm to perform.
         if (!right.open()) {
             return false;
+        } else if (right.getOpType() == OpType.SCAN) {
+            // A base table is scanned again directly whenever its next pass starts.
+            rightFileName = null;
         } else {
-            /*
-             * If the right operator is not a base table, then materializes the intermediate result
-             * from right into a file.
-             */
-            // if(right.getCondType() != OpType.SCAN){
+            // If the right operator is not a base table, then materializes the intermediate result
+            // from right into a file.
             fileNum++;
-            rightFileName = "PNJtemp-" + fileNum;
+            rightFileName = SpillManager.getPath("PNJ-" + fileNum, "PNJtemp-" + fileNum);
             try {
-                ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(rightFileName));
+                PageFileWriter out = new PageFileWriter(rightFileName, right.getSchema(), Batch.getPageSize());
                 rightPage = right.next();
                 while (rightPage != null) {
-                    out.writeObject(rightPage);
+                    out.write(rightPage);
                     rightPage = right.next();
                 }
                 out.close();
@@ -114,12 +120,10 @@ public class PageNestedJoin extends Join {
                 System.out.println("PageNestedJoin: writing the temporary file error");
                 return false;
             }
-            // }
-
-            if (!right.close()) {
-                return false;
-            }
+        }
 
+        if (!right.close()) {
+            return false;
         }
         return left.open();
     }
@@ -149,72 +153,93 @@ public class PageNestedJoin extends Join {
                 }
 
                 // Starts the scanning of right table whenever a new left page comes.
-                try {
-                    in = new ObjectInputStream(new FileInputStream(rightFileName));
-                    eosRight = false;
-                } catch (IOException io) {
-                    System.err.println("PageNestedJoin:error in reading the file");
-                    System.exit(1);
-                }
+                openRight();
             }
 
             // Continuously probe the right table until we hit the end-of-stream.
             while (!eosRight) {
-                try {
-                    if (leftCursor == 0 && rightCursor == 0) {
-                        rightBatch = (Batch) in.readObject();
+                if (leftCursor == 0 && rightCursor == 0) {
+                    rightBatch = nextRight();
+                    if (rightBatch == null) {
+                        continue;
                     }
+                }
 
-                    for (int i = leftCursor; i < leftBatch.size(); i++) {
-                        for (int j = rightCursor; j < rightBatch.size(); j++) {
-                            Tuple leftTuple = leftBatch.elementAt(i);
-                            Tuple rightTuple = rightBatch.elementAt(j);
-
-                            // Adds the tuple if satisfying the join condition.
-                            if (leftTuple.checkJoin(rightTuple, leftIndex, rightIndex)) {
-                                Tuple outTuple = leftTuple.joinWith(rightTuple);
-                                outBatch.add(outTuple);
-
-                                // Checks whether the output buffer is full.
-                                if (outBatch.isFull()) {
-                                    if (i == leftBatch.size() - 1 && j == rightBatch.size() - 1) {
-                                        leftCursor = 0;
-                                        rightCursor = 0;
-                                    } else if (i != leftBatch.size() - 1 && j == rightBatch.size() - 1) {
-                                        leftCursor = i + 1;
-                                        rightCursor = 0;
-                                    } else {
-                                        leftCursor = i;
-                                        rightCursor = j + 1;
-                                    }
-
-                                    // Returns since we have already produced a complete page of matching tuples.
-                                    return outBatch;
+                for (int i = leftCursor; i < leftBatch.size(); i++) {
+                    for (int j = rightCursor; j < rightBatch.size(); j++) {
+                        // Adds the tuple if satisfying the join condition.
+                        if (leftBatch.checkJoin(i, rightBatch, j, leftIndex, rightIndex)) {
+                            Tuple outTuple = leftBatch.joinWith(i, rightBatch, j);
+                            outBatch.add(outTuple);
+
+                            // Checks whether the output buffer is full.
+                            if (outBatch.isFull()) {
+                                if (i == leftBatch.size() - 1 && j == rightBatch.size() - 1) {
+                                    leftCursor = 0;
+                                    rightCursor = 0;
+                                } else if (i != leftBatch.size() - 1 && j == rightBatch.size() - 1) {
+                                    leftCursor = i + 1;
+                                    rightCursor = 0;
+                                } else {
+                                    leftCursor = i;
+                                    rightCursor = j + 1;
                                 }
+
+                                // Returns since we have already produced a complete page of matching tuples.
+                                return outBatch;
                             }
                         }
-                        rightCursor = 0;
                     }
-                    leftCursor = 0;
-                } catch (EOFException e) {
-                    try {
-                        in.close();
-                    } catch (IOException io) {
-                        System.out.println("PageNestedJoin: error in temporary file reading");
-                    }
-                    eosRight = true;
-                } catch (ClassNotFoundException c) {
-                    System.out.println("PageNestedJoin: some error in deserialization");
-                    System.exit(1);
-                } catch (IOException io) {
-                    System.out.println("PageNestedJoin: temporary file reading error");
-                    System.exit(1);
+                    rightCursor = 0;
                 }
+                leftCursor = 0;
             }
         }
         return outBatch;
     }
 
+    /**
+     * Starts a new pass over the right table, either by scanning the base table again or by
+     * reading the materialized file.
+     */
+    private void openRight() {
+        eosRight = false;
+        if (rightFileName == null) {
+            if (!right.open()) {
+                System.err.println("PageNestedJoin: error in scanning the right table");
+                System.exit(1);
+            }
+            return;
+        }
+        try {
+            in = new PageFileReader(rightFileName, right.getSchema());
+        } catch (IOException io) {
+            System.err.println("PageNestedJoin:error in reading the file");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the next page of the current pass over the right table.
+     *
+     * @return the next page of the right table; null if the pass has ended.
+     */
+    private Batch nextRight() {
+        Batch page = null;
+        try {
+            // The scan of a base table closes itself once it ends.
+            page = rightFileName == null ? right.next() : in.nextColumnBatch(rightBatchSize);
+            if (page == null && rightFileName != null) {
+                in.close();
+            }
+        } catch (IOException io) {
+            System.out.println("PageNestedJoin: temporary file reading error");
+            System.exit(1);
+        }
+        eosRight = page == null;
+        return page;
+    }
+
     /**
      * Closes this operator by deleting the file generated.
      *
@@ -222,8 +247,11 @@ public class PageNestedJoin extends Join {
      */
     @Override
     public boolean close() {
-        File f = new File(rightFileName);
-        f.delete();
+        if (rightFileName != null) {
+            SpillManager.release(rightFileName);
+        } else if (!eosRight) {
+            right.close();
+        }
         return true;
     }
 }
@@ -4,6 +4,7 @@ import java.util.Vector;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.ColumnBatch;
 import qp.utils.Schema;
 import qp.utils.Tuple;
 
@@ -89,15 +90,19 @@ public class Project extends Operator {
      * @return the next page of tuples produced by the project operator.
      */
     public Batch next() {
-        // Creates a new output buffer.
-        Batch outBatch = new Batch(batchSize);
-
         // Returns empty if the input buffer is empty.
         Batch inBatch = base.next();
         if (inBatch == null) {
             return null;
         }
 
+        // Copies the required columns directly if the input is a columnar batch.
+        if (inBatch instanceof ColumnBatch) {
+            return ((ColumnBatch) inBatch).project(attrIndex, batchSize);
+        }
+
+        // Creates a new output buffer.
+        Batch outBatch = new Batch(batchSize);
         for (int i = 0; i < inBatch.size(); i++) {
             // Goes through each required attribute.
             Tuple baseTuple = inBatch.elementAt(i);
@@ -114,6 +119,17 @@ public class Project extends Operator {
         return outBatch;
     }
 
+    /**
+     * Checks whether the output is sorted on an attribute, which is the case if the input is.
+     *
+     * @param attr is the attribute.
+     * @return true if the output is sorted on the attribute.
+     */
+    @Override
+    public boolean isSortedOn(Attribute attr) {
+        return base.isSortedOn(attr);
+    }
+
     /**
      * Closes the operator.
      *
@@ -1,18 +1,34 @@
 package qp.operators;
 
-import java.io.EOFException;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 
+import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.CompiledCondition;
+import qp.utils.Condition;
+import qp.utils.PageFileReader;
 import qp.utils.Schema;
-import qp.utils.Tuple;
 
 /**
- * Defines the scan operator, which reads getData from a file by scanning.
+ * Defines the scan operator, which reads getData from a file by scanning. The tuples are decoded
+ * into columnar batches. If a selection condition is pushed down, the pages which cannot contain
+ * any matching tuple are skipped by the zone map of the file, but the tuples read are not filtered.
  */
 public class Scan extends Operator {
+    // The tables whose files are memory-mapped instead of being read page by page.
+    private static final Set<String> memoryMappedTables = new HashSet<>();
+    // The maximum size (in bytes) of a file to be memory-mapped.
+    private static long maxMappedSize = Integer.MAX_VALUE;
+    // The maximum number of pages read ahead in the background when the file is read page by page.
+    private static final int MAX_READ_AHEAD_PAGES = 2;
+    // The columns on which each table file is stored in ascending order, by the path, the last
+    // modified time and the length of the file, so that a regenerated file is read again.
+    private static final HashMap<String, boolean[]> sortedColumns = new HashMap<>();
+
     // The name of the file being scanned
     private String fileName;
     // The name of the table
@@ -21,8 +37,14 @@ public class Scan extends Operator {
     // The number of tuples per batch
     private int batchSize;
 
-    // The input file stream
-    private ObjectInputStream in;
+    // The input page file
+    private PageFileReader in;
+
+    // The selection condition used to skip pages; null if no condition is pushed down.
+    private Condition pageFilter;
+
+    // Whether pages are read ahead in the background, rather than read on demand through the buffer pool.
+    private boolean isReadAhead = true;
 
     // To indicate whether end of stream reached or not
     private boolean eos;
@@ -47,6 +69,102 @@ public class Scan extends Operator {
         return tableName;
     }
 
+    /**
+     * Getter for pageFilter.
+     *
+     * @return the selection condition pushed down into this scan.
+     */
+    public Condition getPageFilter() {
+        return pageFilter;
+    }
+
+    /**
+     * Pushes down a selection condition on this table, which is used to skip pages. The
+     * condition must still be checked by a select operator above this scan.
+     *
+     * @param pageFilter is the selection condition.
+     */
+    public void setPageFilter(Condition pageFilter) {
+        this.pageFilter = pageFilter;
+    }
+
+    /**
+     * Selects whether a table should be scanned by memory-mapping its file.
+     *
+     * @param tableName is the name of the table.
+     * @param isMapped  is true if the table file should be memory-mapped.
+     */
+    public static void setMemoryMapped(String tableName, boolean isMapped) {
+        if (isMapped) {
+            memoryMappedTables.add(tableName);
+        } else {
+            memoryMappedTables.remove(tableName);
+        }
+    }
+
+    /**
+     * Checks whether a table is selected to be scanned by memory-mapping its file.
+     *
+     * @param tableName is the name of the table.
+     * @return true if the table file should be memory-mapped.
+     */
+    public static boolean isMemoryMapped(String tableName) {
+        return memoryMappedTables.contains(tableName);
+    }
+
+    /**
+     * Setter for maxMappedSize. Larger files are always read page by page.
+     *
+     * @param size is the maximum size (in bytes) of a file to be memory-mapped.
+     */
+    public static void setMaxMappedSize(long size) {
+        maxMappedSize = Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Selects whether pages are read ahead in the background. The pages read ahead bypass the
+     * buffer pool, so a table scanned repeatedly (e.g., the inner side of a nested loop join)
+     * should rather be read on demand, such that its pages may be cached.
+     *
+     * @param isReadAhead is true if pages should be read ahead.
+     */
+    public void setReadAhead(boolean isReadAhead) {
+        this.isReadAhead = isReadAhead;
+    }
+
+    /**
+     * Checks whether the table is stored in ascending order of an attribute (i.e., clustered on
+     * the attribute), as recorded in the header of its file. The page filter does not change the
+     * order, since the pages are still read in order.
+     *
+     * @param attr is the attribute.
+     * @return true if the output is sorted on the attribute.
+     */
+    @Override
+    public boolean isSortedOn(Attribute attr) {
+        int index = schema.indexOf(attr);
+        if (index < 0) {
+            return false;
+        }
+        File file = new File(fileName);
+        String fileKey = file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+        boolean[] sorted = sortedColumns.get(fileKey);
+        if (sorted == null) {
+            sorted = new boolean[schema.getNumCols()];
+            try {
+                PageFileReader reader = new PageFileReader(fileName, schema);
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = reader.isSortedOn(i);
+                }
+                reader.close();
+            } catch (IOException e) {
+                // The order is unknown if the file cannot be read.
+            }
+            sortedColumns.put(fileKey, sorted);
+        }
+        return sorted[index];
+    }
+
     /**
      * Opens connection.
      *
@@ -59,9 +177,30 @@ public class Scan extends Operator {
         batchSize = Batch.getPageSize() / tupleSize;
         eos = false;
 
+        // Tries to memory-map the file if selected, and falls back to read it page by page.
+        in = null;
+        boolean isMapped = false;
+        if (isMemoryMapped(tableName) && new File(fileName).length() <= maxMappedSize) {
+            try {
+                in = new PageFileReader(fileName, schema, true);
+                isMapped = true;
+            } catch (IOException e) {
+                System.err.printf("Scan: unable to map %s due to %s\n", fileName, e.toString());
+            }
+        }
+
         // Tries to open the input stream.
         try {
-            in = new ObjectInputStream(new FileInputStream(fileName));
+            if (in == null) {
+                in = new PageFileReader(fileName, schema);
+            }
+            if (pageFilter != null) {
+                in.setPageFilter(CompiledCondition.compile(pageFilter, schema));
+            }
+            // Each page read ahead occupies a frame reserved from the buffer pool, if any is left.
+            if (!isMapped && isReadAhead) {
+                in.setReadAhead(reserveFrames(MAX_READ_AHEAD_PAGES));
+            }
         } catch (Exception e) {
             System.err.println(" Scan: error reading " + fileName);
             return false;
@@ -79,23 +218,22 @@ public class Scan extends Operator {
             return null;
         }
 
-        Batch outBatch = new Batch(batchSize);
-        while (!outBatch.isFull()) {
-            try {
-                Tuple data = (Tuple) in.readObject();
-                outBatch.add(data);
-            } catch (ClassNotFoundException cnf) {
-                System.err.println("Scan: class not found for reading file  " + fileName);
-                System.exit(1);
-            } catch (EOFException EOF) {
-                // Sends the incomplete page and close in the next call.
-                eos = true;
-                return outBatch;
-            } catch (IOException e) {
-                System.err.printf("Scan: error reading %s due to %s\n", fileName, e.toString());
-                System.exit(1);
-            }
+        Batch outBatch = null;
+        try {
+            outBatch = in.nextColumnBatch(batchSize);
+        } catch (IOException e) {
+            System.err.printf("Scan: error reading %s due to %s\n", fileName, e.toString());
+            System.exit(1);
+        }
+
+        if (outBatch == null) {
+            eos = true;
+            close();
+            return null;
         }
+
+        // Sends the incomplete page and close in the next call.
+        eos = !outBatch.isFull();
         return outBatch;
     }
 
@@ -104,8 +242,14 @@ public class Scan extends Operator {
      * @return true if the connection is closed successfully.
      */
     public boolean close() {
+        releaseFrames();
+        // The file is not open if the operator failed to open or has been closed already.
+        if (in == null) {
+            return true;
+        }
         try {
             in.close();
+            in = null;
         } catch (IOException e) {
             System.err.println("Scan: error closing " + fileName);
             return false;
@@ -118,6 +262,8 @@ public class Scan extends Operator {
         String newTable = tableName;
         Scan newScan = new Scan(newTable);
         newScan.setSchema((Schema) schema.clone());
+        newScan.setPageFilter(pageFilter);
+        newScan.setReadAhead(isReadAhead);
         return newScan;
     }
 }
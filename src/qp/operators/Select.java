@@ -1,11 +1,12 @@
 package qp.operators;
 
-import java.util.Date;
+import java.util.BitSet;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.ColumnBatch;
+import qp.utils.CompiledCondition;
 import qp.utils.Condition;
-import qp.utils.Tuple;
 
 /**
  * Defines the scan operator.
@@ -15,6 +16,8 @@ public class Select extends Operator {
     private Operator base;
     // The select condition.
     private Condition con;
+    // The select condition compiled against the schema when the operator is opened.
+    private CompiledCondition predicate;
     // The number of pages per batch.
     private int batchSize;
 
@@ -27,6 +30,8 @@ public class Select extends Operator {
     private Batch outBatch;
     // The position of the cursor in the input buffer
     private int start;
+    // The tuples in the input buffer which satisfy the select condition
+    private final BitSet selection = new BitSet();
 
     /**
      * Creates a new select operator.
@@ -93,6 +98,9 @@ public class Select extends Operator {
         int tupleSize = schema.getTupleSize();
         batchSize = Batch.getPageSize() / tupleSize;
 
+        // Compiles the condition once, instead of interpreting it for every tuple.
+        predicate = CompiledCondition.compile(con, schema);
+
         // Opens the base operator as well.
         return base.open();
     }
@@ -122,20 +130,25 @@ public class Select extends Operator {
                     eos = true;
                     return outBatch;
                 }
-            }
 
-            // Continues until the input buffer is fully observed or output buffer is full.
-            int i;
-            for (i = start; i < inBatch.size() && !outBatch.isFull(); i++) {
-                Tuple present = inBatch.elementAt(i);
-                // Adds the current tuple to the output buffer if satisfying the select condition.
-                if (checkCondition(present)) {
-                    outBatch.add(present);
+                // Keeps the output in columnar layout as well if the input is a columnar batch.
+                if (inBatch instanceof ColumnBatch && outBatch.isEmpty() && !(outBatch instanceof ColumnBatch)) {
+                    outBatch = ((ColumnBatch) inBatch).emptyCopy(batchSize);
                 }
+
+                // Checks the whole input buffer at once.
+                predicate.evaluate(inBatch, selection);
+            }
+
+            // Adds the tuples satisfying the select condition until the output buffer is full.
+            int i = selection.nextSetBit(start);
+            while (i >= 0 && !outBatch.isFull()) {
+                outBatch.add(inBatch, i);
+                i = selection.nextSetBit(i + 1);
             }
 
             // Modifies the cursor to the position required when the operator is called next time.
-            if (i == inBatch.size()) {
+            if (i < 0) {
                 start = 0;
             } else {
                 start = i;
@@ -145,109 +158,24 @@ public class Select extends Operator {
     }
 
     /**
-     * Closes the output connection when there is no more page to output.
+     * Checks whether the output is sorted on an attribute, which is the case if the input is.
      *
-     * @return true if the connection is closed successfully.
+     * @param attr is the attribute.
+     * @return true if the output is sorted on the attribute.
      */
-    public boolean close() {
-        return true;
-        // return base.close();
+    @Override
+    public boolean isSortedOn(Attribute attr) {
+        return base.isSortedOn(attr);
     }
 
     /**
-     * Checks whether the selection condition is satisfied for the current tuple.
+     * Closes the output connection when there is no more page to output.
      *
-     * @param tuple is the tuple to be checked.
-     * @return true if the condition is satisfied.
+     * @return true if the connection is closed successfully.
      */
-    private boolean checkCondition(Tuple tuple) {
-        Attribute attr = con.getLeft();
-        int index = schema.indexOf(attr);
-        int dataType = schema.typeOf(attr);
-        Object srcValue = tuple.dataAt(index);
-        String checkValue = (String) con.getRight();
-        int expressionType = con.getOperator();
-
-        if (dataType == Attribute.INT) {
-            int srcVal = (Integer) srcValue;
-            int checkVal = Integer.parseInt(checkValue);
-
-            if (expressionType == Condition.LESS_THAN) {
-                return srcVal < checkVal;
-            } else if (expressionType == Condition.GREATER_THAN) {
-                return srcVal > checkVal;
-            } else if (expressionType == Condition.LTOE) {
-                return srcVal <= checkVal;
-            } else if (expressionType == Condition.GTOE) {
-                return srcVal >= checkVal;
-            } else if (expressionType == Condition.EQUAL) {
-                return srcVal == checkVal;
-            } else if (expressionType == Condition.NOTEQUAL) {
-                return srcVal != checkVal;
-            } else {
-                System.out.println("Select:incorrect condition operator");
-            }
-        } else if (dataType == Attribute.STRING) {
-            String srcVal = (String) srcValue;
-            int flag = srcVal.compareTo(checkValue);
-
-            if (expressionType == Condition.LESS_THAN) {
-                return flag < 0;
-            } else if (expressionType == Condition.GREATER_THAN) {
-                return flag > 0;
-            } else if (expressionType == Condition.LTOE) {
-                return flag <= 0;
-            } else if (expressionType == Condition.GTOE) {
-                return flag >= 0;
-            } else if (expressionType == Condition.EQUAL) {
-                return flag == 0;
-            } else if (expressionType == Condition.NOTEQUAL) {
-                return flag != 0;
-            } else {
-                System.out.println("Select: incorrect condition operator");
-            }
-        } else if (dataType == Attribute.REAL) {
-            float srcVal = (Float) srcValue;
-            float checkVal = Float.parseFloat(checkValue);
-
-            if (expressionType == Condition.LESS_THAN) {
-                return srcVal < checkVal;
-            } else if (expressionType == Condition.GREATER_THAN) {
-                return srcVal > checkVal;
-            } else if (expressionType == Condition.LTOE) {
-                return srcVal <= checkVal;
-            } else if (expressionType == Condition.GTOE) {
-                return srcVal >= checkVal;
-            } else if (expressionType == Condition.EQUAL) {
-                return srcVal == checkVal;
-            } else if (expressionType == Condition.NOTEQUAL) {
-                return srcVal != checkVal;
-            } else {
-                System.out.println("Select: incorrect condition operator");
-            }
-        } else if (dataType == Attribute.TIME) {
-            Date srcVal = (Date) srcValue;
-            int checkMillis = Integer.parseInt(checkValue);
-            Date checkVal = new Date((long) checkMillis);
-            int comparisionResult = srcVal.compareTo(checkVal);
-
-            if (expressionType == Condition.LESS_THAN) {
-                return comparisionResult < 0;
-            } else if (expressionType == Condition.GREATER_THAN) {
-                return comparisionResult > 0;
-            } else if (expressionType == Condition.LTOE) {
-                return comparisionResult <= 0;
-            } else if (expressionType == Condition.GTOE) {
-                return comparisionResult >= 0;
-            } else if (expressionType == Condition.EQUAL) {
-                return comparisionResult == 0;
-            } else if (expressionType == Condition.NOTEQUAL) {
-                return comparisionResult != 0;
-            } else {
-                System.out.println("Select:incorrect condition operator");
-            }
-        }
-        return false;
+    public boolean close() {
+        return true;
+        // return base.close();
     }
 
     @Override
@@ -1,36 +1,70 @@
 package qp.operators;
 
-import java.io.EOFException;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.PriorityQueue;
 import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import qp.utils.Attribute;
 import qp.utils.Batch;
+import qp.utils.LoserTree;
+import qp.utils.PageFileReader;
+import qp.utils.PageFileWriter;
+import qp.utils.RadixSort;
+import qp.utils.SortKey;
+import qp.utils.SpillManager;
 import qp.utils.Tuple;
 import qp.utils.TupleInRun;
 
 /**
- * Applies external sort on a given relation.
+ * Applies external sort on a given relation. If the whole relation fits in the buffer pages, it is
+ * sorted in memory without writing any run. In the parallel mode, each run is sorted by several
+ * threads, and the final merge is split into key ranges which are merged by separate threads,
+ * each with an equal share of the buffers.
+ *
+ * If a {@link Combiner} is set, tuples with equal sort keys are combined into one whenever they
+ * meet, i.e., while sorting in memory, while generating the sorted runs and at every merge step.
+ * The runs then shrink towards the number of distinct keys rather than the number of tuples,
+ * and the sorted result has exactly one tuple per key.
  */
 public class Sort extends Operator {
+    // The number of threads used by each sort; 1 if sorting sequentially.
+    private static int parallelism = 1;
+    // The thread pool shared by the sorts in the parallel mode; null if sorting sequentially.
+    private static ForkJoinPool pool;
+
     // The base operator (i.e., the unsorted relation).
     private final Operator base;
     // A random UUID to avoid conflicts between different instances of Sort operators.
     private final String uuid = UUID.randomUUID().toString();
     // The number of buffer pages available.
     private final int numOfBuffers;
-    // The index of the attribute to sort based on.
-    private final Vector<Integer> sortKeyIndices = new Vector<>();
+    // The sort key, which orders the tuples by the attributes to sort based on.
+    private final SortKey sortKey;
+    // The first attribute to sort based on, by which the output is in ascending order.
+    private final Attribute firstAttribute;
+    // Combines the tuples with equal sort keys; null if they are all kept.
+    private Combiner combiner = null;
     // The number of tuples per batch.
     private final int batchSize;
-    // The input stream from which we read the sorted result.
-    private ObjectInputStream sortedStream;
+    // The pages read from the base operator but not yet consumed by the run generation.
+    private final Vector<Batch> pendingBatches = new Vector<>();
+    // The sorted tuples if the whole input fits in memory; null if the sorted runs are used.
+    private TupleInRun[] sortedTuples = null;
+    // The index of the next tuple to output from the sorted tuples in memory.
+    private int sortedIndex = 0;
+    // The first tuple of each page in each sorted run (by file name), recorded in the parallel mode only.
+    private final HashMap<String, Vector<Tuple>> pageFences = new HashMap<>();
+    // The input streams from which we read the sorted result, one for each key range in order.
+    private final Vector<PageFileReader> sortedStreams = new Vector<>();
+    // The index of the sorted stream being read.
+    private int currentStream = 0;
     // Records whether we have reached out-of-stream for the sorted result.
     private boolean eos = false;
 
@@ -48,10 +82,47 @@ public class Sort extends Operator {
         this.numOfBuffers = numOfBuffers;
         this.batchSize = Batch.getPageSize() / schema.getTupleSize();
 
+        int[] sortKeyIndices = new int[attrList.size()];
         for (int i = 0; i < attrList.size(); i++) {
             Attribute attribute = (Attribute) attrList.elementAt(i);
-            sortKeyIndices.add(schema.indexOf(attribute));
+            sortKeyIndices[i] = schema.indexOf(attribute);
         }
+        sortKey = new SortKey(schema, sortKeyIndices);
+        firstAttribute = attrList.isEmpty() ? null : (Attribute) attrList.elementAt(0);
+    }
+
+    /**
+     * Setter for combiner, which must be set before the operator is opened.
+     *
+     * @param combiner combines two tuples with equal sort keys into one; null to keep all tuples.
+     */
+    public void setCombiner(Combiner combiner) {
+        this.combiner = combiner;
+    }
+
+    /**
+     * Checks whether the output is sorted on an attribute, i.e., the first attribute to sort
+     * based on.
+     *
+     * @param attr is the attribute.
+     * @return true if the output is sorted on the attribute.
+     */
+    @Override
+    public boolean isSortedOn(Attribute attr) {
+        return attr.equals(firstAttribute);
+    }
+
+    /**
+     * Sets the number of threads used by each sort. The threads are shared by all sorts.
+     *
+     * @param numOfThreads is the number of threads; 1 to sort sequentially.
+     */
+    public static void setParallelism(int numOfThreads) {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        parallelism = Math.max(numOfThreads, 1);
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
     }
 
     /**
@@ -67,22 +138,176 @@ public class Sort extends Operator {
         if (!base.open()) {
             return false;
         }
+        reserveFrames(numOfBuffers);
+
+        // Sorts in memory without any file I/O if the whole input fits in the buffer pages.
+        if (readIntoBuffers()) {
+            sortInMemory();
+            return true;
+        }
 
-        // Phase 1: generate sorted runs using in-memory sorting algorithms.
-        int numOfRuns = generateSortedRuns();
+        // Phase 1: generate sorted runs by replacement selection, or by several threads in the parallel mode.
+        int numOfRuns = parallelism > 1 ? generateSortedRunsInParallel() : generateSortedRuns();
         // Phase 2: merge sorted runs together (could be in multiple passes).
         return mergeRuns(numOfRuns, 1) == 1;
     }
 
     /**
-     * Generates sorted runs and stores them to disk. Currently, we utilize all buffer pages available
-     * and thus minimizes the number of runs generated.
+     * Reads the input into the buffer pages until either the input ends or all buffer pages are
+     * used. One more page is read in the latter case to tell whether the input ends right there.
+     *
+     * @return true if the whole input has been read.
+     */
+    private boolean readIntoBuffers() {
+        while (pendingBatches.size() < numOfBuffers) {
+            Batch inBatch = base.next();
+            if (inBatch == null) {
+                return true;
+            }
+            pendingBatches.add(inBatch);
+        }
+        Batch inBatch = base.next();
+        if (inBatch == null) {
+            return true;
+        }
+        pendingBatches.add(inBatch);
+        return false;
+    }
+
+    /**
+     * Sorts all tuples read into the buffer pages, from which the sorted result is then output.
+     */
+    private void sortInMemory() {
+        int numOfTuples = 0;
+        for (Batch batch : pendingBatches) {
+            numOfTuples += batch.size();
+        }
+        sortedTuples = new TupleInRun[numOfTuples];
+        int index = 0;
+        for (Batch batch : pendingBatches) {
+            for (int i = 0; i < batch.size(); i++) {
+                Tuple tuple = batch.elementAt(i);
+                sortedTuples[index] = new TupleInRun(tuple, 0, index, sortKey.prefixOf(tuple));
+                index++;
+            }
+        }
+        pendingBatches.clear();
+        sortInMemory(sortedTuples, 0, numOfTuples);
+        if (combiner != null) {
+            sortedTuples = combineSorted(sortedTuples);
+        }
+        sortedIndex = 0;
+    }
+
+    /**
+     * Combines the consecutive tuples with equal sort keys in a sorted array.
+     *
+     * @param tuples is the sorted tuples.
+     * @return the sorted tuples with one tuple per sort key.
+     */
+    private TupleInRun[] combineSorted(TupleInRun[] tuples) {
+        int size = 0;
+        for (TupleInRun tuple : tuples) {
+            if (size > 0 && sortKey.compare(tuples[size - 1].tuple, tuple.tuple) == 0) {
+                TupleInRun last = tuples[size - 1];
+                tuples[size - 1] = new TupleInRun(combiner.combine(last.tuple, tuple.tuple), 0, last.tupleID, last.prefix);
+            } else {
+                tuples[size++] = tuple;
+            }
+        }
+        return size == tuples.length ? tuples : Arrays.copyOf(tuples, size);
+    }
+
+    /**
+     * Provides the next page of the input, taking the pages already read into the buffers first.
+     *
+     * @return the next page of the input; null if the input has been exhausted.
+     */
+    private Batch nextInput() {
+        if (!pendingBatches.isEmpty()) {
+            return pendingBatches.remove(0);
+        }
+        return base.next();
+    }
+
+    /**
+     * Generates sorted runs and stores them to disk by replacement selection. A min-heap holding as
+     * many tuples as all buffer pages can hold repeatedly outputs its smallest tuple to the current
+     * run, and takes the next input tuple in its place. An input tuple smaller than the last output
+     * one is deferred to the next run. Thus, the runs are twice as long as the buffers on average,
+     * and an input which is already nearly sorted produces only a few long runs.
      *
      * @return the number of sorted runs generated.
      */
     private int generateSortedRuns() {
+        // Orders the tuples by the run they belong to first, and then by the sort key.
+        PriorityQueue<TupleInRun> heap = new PriorityQueue<>(numOfBuffers * batchSize, (o1, o2) -> {
+            if (o1.runID != o2.runID) {
+                return Integer.compare(o1.runID, o2.runID);
+            }
+            return sortKey.compare(o1.prefix, o1.tuple, o2.prefix, o2.tuple);
+        });
+
+        // Fills the heap with the tuples from all buffer pages, which all belong to the first run.
+        Batch inBatch = nextInput();
+        int inIndex = 0;
+        while (inBatch != null && heap.size() < numOfBuffers * batchSize) {
+            if (inIndex == inBatch.size()) {
+                inBatch = nextInput();
+                inIndex = 0;
+                continue;
+            }
+            Tuple inTuple = inBatch.elementAt(inIndex++);
+            heap.add(new TupleInRun(inTuple, 0, 0, sortKey.prefixOf(inTuple)));
+        }
+
+        int numOfRuns = 0;
+        RunWriter stream = null;
+        try {
+            while (!heap.isEmpty()) {
+                // Starts a new run once all tuples of the current run have been output.
+                TupleInRun outTuple = heap.poll();
+                if (outTuple.runID == numOfRuns) {
+                    if (stream != null) {
+                        stream.close();
+                    }
+                    stream = new RunWriter(getSortedRunFileName(0, numOfRuns), null);
+                    numOfRuns++;
+                }
+                stream.write(outTuple.tuple);
+
+                // Replaces the output tuple with the next input tuple (reading a new page if necessary).
+                while (inBatch != null && inIndex == inBatch.size()) {
+                    inBatch = nextInput();
+                    inIndex = 0;
+                }
+                if (inBatch != null) {
+                    Tuple inTuple = inBatch.elementAt(inIndex++);
+                    long prefix = sortKey.prefixOf(inTuple);
+                    int runID = sortKey.compare(prefix, inTuple, outTuple.prefix, outTuple.tuple) < 0 ? outTuple.runID + 1 : outTuple.runID;
+                    heap.add(new TupleInRun(inTuple, runID, 0, prefix));
+                }
+            }
+            if (stream != null) {
+                stream.close();
+            }
+        } catch (IOException e) {
+            System.err.printf("Sort: unable to write sortedRun with ID=%d due to %s\n", numOfRuns - 1, e.toString());
+            System.exit(1);
+        }
+
+        return numOfRuns;
+    }
+
+    /**
+     * Generates sorted runs in the parallel mode. As many tuples as all buffer pages can hold are
+     * split into slices, which are sorted by separate threads and then merged into a single run.
+     *
+     * @return the number of sorted runs generated.
+     */
+    private int generateSortedRunsInParallel() {
         // Reads in the next page from base operator.
-        Batch inBatch = base.next();
+        Batch inBatch = nextInput();
 
         int numOfRuns = 0;
         while (inBatch != null) {
@@ -95,35 +320,97 @@ public class Sort extends Operator {
                 // Do NOT read a new page if the current page is the last page of the current sorted run
                 // (because we do not have any more memory buffer).
                 if (i != numOfBuffers - 1) {
-                    inBatch = base.next();
+                    inBatch = nextInput();
                 }
             }
 
-            // Sorts the tuples using in-memory sorting algorithms.
-            tuplesInRun.sort(this::compareTuples);
+            // Sorts each slice on a separate thread, comparing the prefixes of the sort keys first.
+            TupleInRun[] tuples = new TupleInRun[tuplesInRun.size()];
+            for (int i = 0; i < tuples.length; i++) {
+                Tuple tuple = tuplesInRun.elementAt(i);
+                tuples[i] = new TupleInRun(tuple, 0, i, sortKey.prefixOf(tuple));
+            }
+            int numOfSlices = Math.min(parallelism, tuples.length);
+            int[] positions = new int[numOfSlices];
+            int[] ends = new int[numOfSlices];
+            Vector<Callable<Void>> tasks = new Vector<>();
+            for (int i = 0; i < numOfSlices; i++) {
+                int start = (int) ((long) i * tuples.length / numOfSlices);
+                int end = (int) ((long) (i + 1) * tuples.length / numOfSlices);
+                positions[i] = start;
+                ends[i] = end;
+                tasks.add(() -> {
+                    sortInMemory(tuples, start, end);
+                    return null;
+                });
+            }
+            runInParallel(tasks);
 
-            // Stores the sorted result into disk (phase 1 is the 0th pass).
+            // Merges the sorted slices into a run, and stores it into disk (phase 1 is the 0th pass).
+            Tuple[] heads = new Tuple[numOfSlices];
+            for (int i = 0; i < numOfSlices; i++) {
+                heads[i] = tuples[positions[i]].tuple;
+            }
+            LoserTree tree = new LoserTree(heads, sortKey);
             String fileName = getSortedRunFileName(0, numOfRuns);
+            Vector<Tuple> fences = new Vector<>();
             try {
-                ObjectOutputStream stream = new ObjectOutputStream(new FileOutputStream(fileName));
-                // TODO: do we need to write each batch to a single file?
-                for (Tuple tuple : tuplesInRun) {
-                    stream.writeObject(tuple);
+                RunWriter stream = new RunWriter(fileName, fences);
+                for (int i = tree.getWinner(); i >= 0; i = tree.getWinner()) {
+                    stream.write(tree.getWinnerTuple());
+                    positions[i]++;
+                    tree.replaceWinner(positions[i] == ends[i] ? null : tuples[positions[i]].tuple);
                 }
                 stream.close();
             } catch (IOException e) {
                 System.err.printf("Sort: unable to write sortedRun with ID=%d due to %s\n", numOfRuns, e.toString());
                 System.exit(1);
             }
+            pageFences.put(fileName, fences);
 
             // Reads in another page and prepares for the next iteration.
-            inBatch = base.next();
+            inBatch = nextInput();
             numOfRuns++;
         }
 
         return numOfRuns;
     }
 
+    /**
+     * Sorts the tuples in the range [from, to) of an array, by a radix sort if the leading sort
+     * attribute is an INT or a TIME, or by comparing the prefixes of the sort keys otherwise.
+     *
+     * @param tuples is the array of tuples, each with the prefix of its sort key.
+     * @param from   is the start of the range (inclusive).
+     * @param to     is the end of the range (exclusive).
+     */
+    private void sortInMemory(TupleInRun[] tuples, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        if (RadixSort.isApplicable(sortKey)) {
+            RadixSort.sort(tuples, from, to, sortKey);
+        } else {
+            Arrays.sort(tuples, from, to, (o1, o2) -> sortKey.compare(o1.prefix, o1.tuple, o2.prefix, o2.tuple));
+        }
+    }
+
+    /**
+     * Runs some tasks on the thread pool, and waits for all of them to finish.
+     *
+     * @param tasks is the tasks to be run.
+     */
+    private static void runInParallel(Vector<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.printf("Sort: parallel task failed due to %s\n", e.toString());
+            System.exit(1);
+        }
+    }
+
     /**
      * Merges a given number of sorted runs in a manner similar to merge-sort. Here we use all available
      * buffers to minimize the number of passes.
@@ -137,13 +424,24 @@ public class Sort extends Operator {
         if (numOfRuns <= 1) {
             try {
                 String fileName = getSortedRunFileName(passID - 1, numOfRuns - 1);
-                sortedStream = new ObjectInputStream(new FileInputStream(fileName));
+                PageFileReader sortedStream = new PageFileReader(fileName, schema);
+
+                // The buffers used for merging are free now, except the one for the output page.
+                sortedStream.setReadAhead(numOfBuffers - 1);
+                sortedStreams.add(sortedStream);
             } catch (IOException e) {
                 System.err.printf("Sort: cannot create sortedStream due to %s\n", e.toString());
             }
             return numOfRuns;
         }
 
+        // Splits the final merge into key ranges in the parallel mode, as long as each key range
+        // has a buffer for every run and one for its output.
+        int numOfRanges = Math.min(parallelism, numOfBuffers / (numOfRuns + 1));
+        if (numOfRanges > 1) {
+            return mergeRunsInParallel(numOfRuns, passID, numOfRanges);
+        }
+
         // Uses (numOfBuffers - 1) as input buffers, and the left one as output buffer.
         int numOfOutputRuns = 0;
         for (int startRunID = 0; startRunID < numOfRuns; startRunID = startRunID + numOfBuffers - 1) {
@@ -153,9 +451,6 @@ public class Sort extends Operator {
             } catch (IOException e) {
                 System.err.printf("Sort: cannot mergeRuns on passID=%d for [%d, %d) due to %s\n", passID, startRunID, endRunID, e.toString());
                 System.exit(1);
-            } catch (ClassNotFoundException e) {
-                System.err.printf("Sort: class not found on passID=%d for [%d, %d) due to %s\n", passID, startRunID, endRunID, e.toString());
-                System.exit(1);
             }
             numOfOutputRuns++;
         }
@@ -164,6 +459,63 @@ public class Sort extends Operator {
         return mergeRuns(numOfOutputRuns, passID + 1);
     }
 
+    /**
+     * Merges all sorted runs in the final pass of the parallel mode. Splitters are chosen evenly
+     * from the page fences of all runs, such that each key range holds a similar number of pages.
+     * Each key range is merged into a separate file on its own thread with an equal share of the
+     * buffers, and the files are read in the order of their key ranges.
+     *
+     * @param numOfRuns   is the number of sorted runs to be merged.
+     * @param passID      is the ID of the current pass.
+     * @param numOfRanges is the maximum number of key ranges.
+     * @return the number of sorted outputs, which is always 1.
+     */
+    private int mergeRunsInParallel(int numOfRuns, int passID, int numOfRanges) {
+        Vector<Tuple> samples = new Vector<>();
+        for (int i = 0; i < numOfRuns; i++) {
+            samples.addAll(pageFences.get(getSortedRunFileName(passID - 1, i)));
+        }
+        samples.sort(sortKey);
+
+        // Tuples with the same key must be in the same key range, so duplicate splitters are dropped.
+        Vector<Tuple> splitters = new Vector<>();
+        for (int i = 1; i < numOfRanges; i++) {
+            Tuple splitter = samples.elementAt((int) ((long) i * samples.size() / numOfRanges));
+            if (splitters.isEmpty() || sortKey.compare(splitters.lastElement(), splitter) < 0) {
+                splitters.add(splitter);
+            }
+        }
+
+        // Merges the key range [lower, upper) on each thread.
+        int numOfMergeBuffers = numOfBuffers / (splitters.size() + 1);
+        Vector<Callable<Void>> tasks = new Vector<>();
+        for (int i = 0; i <= splitters.size(); i++) {
+            Tuple lower = i == 0 ? null : splitters.elementAt(i - 1);
+            Tuple upper = i == splitters.size() ? null : splitters.elementAt(i);
+            String outputFileName = getSortedRunFileName(passID, i);
+            tasks.add(() -> {
+                mergeRunsBetween(0, numOfRuns, passID, outputFileName, lower, upper, numOfMergeBuffers, null);
+                return null;
+            });
+        }
+        runInParallel(tasks);
+        releaseRuns(0, numOfRuns, passID - 1);
+
+        try {
+            for (int i = 0; i <= splitters.size(); i++) {
+                PageFileReader sortedStream = new PageFileReader(getSortedRunFileName(passID, i), schema);
+                // The files are read one after another, and each starts reading ahead only when its
+                // first page is needed, so the buffers are not used by more than one file at a time.
+                sortedStream.setReadAhead(numOfBuffers - 1);
+                sortedStreams.add(sortedStream);
+            }
+        } catch (IOException e) {
+            System.err.printf("Sort: cannot create sortedStream due to %s\n", e.toString());
+            System.exit(1);
+        }
+        return 1;
+    }
+
     /**
      * Merges the sorted runs in the range of [startRunID, endRunID). Since we have a fix number of buffer
      * pages, we assume endRunID - startRunID <= numOfBuffers - 1.
@@ -172,118 +524,135 @@ public class Sort extends Operator {
      * @param endRunID   is the sorted run ID of the upper bound (exclusive).
      * @param passID     is the ID of the current pass.
      * @param outID      is the sorted run ID of the output.
-     * @implNote we effectively implement a k-way merge sort here.
      */
-    private void mergeRunsBetween(int startRunID, int endRunID, int passID, int outID) throws IOException, ClassNotFoundException {
-        // Each input sorted run has 1 buffer page.
-        Batch[] inBatches = new Batch[endRunID - startRunID];
-        // Records whether a certain input sorted run has reached its end-of-stream.
-        boolean[] inEos = new boolean[endRunID - startRunID];
-        // Each input sorted run has one stream to read from.
-        ObjectInputStream[] inStreams = new ObjectInputStream[endRunID - startRunID];
-        for (int i = startRunID; i < endRunID; i++) {
-            String inputFileName = getSortedRunFileName(passID - 1, i);
-            ObjectInputStream inStream = new ObjectInputStream(new FileInputStream(inputFileName));
-            inStreams[i - startRunID] = inStream;
-
-            // Fills in the data from an input run.
-            Batch inBatch = new Batch(batchSize);
-            while (!inBatch.isFull()) {
-                try {
-                    Tuple data = (Tuple) inStream.readObject();
-                    inBatch.add(data);
-                } catch (EOFException eof) {
-                    break;
-                }
-            }
-            inBatches[i - startRunID] = inBatch;
+    private void mergeRunsBetween(int startRunID, int endRunID, int passID, int outID) throws IOException {
+        String outputFileName = getSortedRunFileName(passID, outID);
+        Vector<Tuple> fences = parallelism > 1 ? new Vector<>() : null;
+        mergeRunsBetween(startRunID, endRunID, passID, outputFileName, null, null, numOfBuffers, fences);
+        if (fences != null) {
+            pageFences.put(outputFileName, fences);
         }
+        releaseRuns(startRunID, endRunID, passID - 1);
+    }
 
-        // A min-heap used later for k-way merge (representing the 1 page used for output buffer).
-        PriorityQueue<TupleInRun> outHeap = new PriorityQueue<>(batchSize, (o1, o2) -> compareTuples(o1.tuple, o2.tuple));
-        // The stream for output buffer.
-        String outputFileName = getSortedRunFileName(passID, outID);
-        ObjectOutputStream outStream = new ObjectOutputStream(new FileOutputStream(outputFileName));
+    /**
+     * Deletes the sorted runs in the range of [startRunID, endRunID) once they have been merged.
+     *
+     * @param startRunID is the sorted run ID of the lower bound (inclusive).
+     * @param endRunID   is the sorted run ID of the upper bound (exclusive).
+     * @param passID     is the ID of the pass which generated the sorted runs.
+     */
+    private void releaseRuns(int startRunID, int endRunID, int passID) {
+        for (int i = startRunID; i < endRunID; i++) {
+            String fileName = getSortedRunFileName(passID, i);
+            pageFences.remove(fileName);
+            SpillManager.release(fileName);
+        }
+    }
 
-        // Inserts the 1st element (i.e., the smallest element) from each input buffer into the output heap.
-        for (int i = 0; i < endRunID - startRunID; i++) {
-            Batch inBatch = inBatches[i];
-            if (inBatch == null || inBatch.isEmpty()) {
-                inEos[i] = true;
-                continue;
+    /**
+     * Merges the tuples within a key range [lower, upper) of the sorted runs in the range of
+     * [startRunID, endRunID). Each run starts from the last page whose first tuple is smaller than
+     * the lower bound, as given by its page fences.
+     *
+     * @param startRunID        is the sorted run ID of the lower bound (inclusive).
+     * @param endRunID          is the sorted run ID of the upper bound (exclusive).
+     * @param passID            is the ID of the current pass.
+     * @param outputFileName    is the name of the output file.
+     * @param lower             is the smallest key to be merged; null if unbounded.
+     * @param upper             is the key above all keys to be merged; null if unbounded.
+     * @param numOfMergeBuffers is the number of buffers used by this merge.
+     * @param fences            is the page fences of the output to be recorded; null if they are not recorded.
+     * @implNote we effectively implement a k-way merge sort here, using a loser tree over the runs.
+     */
+    private void mergeRunsBetween(int startRunID, int endRunID, int passID, String outputFileName,
+                                  Tuple lower, Tuple upper, int numOfMergeBuffers, Vector<Tuple> fences) throws IOException {
+        int numOfInputs = endRunID - startRunID;
+        // Each input sorted run has 1 buffer page, read through a cursor.
+        RunCursor[] cursors = new RunCursor[numOfInputs];
+        // The current tuple of each input sorted run; null if it has reached its end-of-stream.
+        Tuple[] heads = new Tuple[numOfInputs];
+        // The buffers not used by this merge are shared by the input runs to read ahead.
+        int readAheadPages = (numOfMergeBuffers - 1 - numOfInputs) / numOfInputs;
+        for (int i = 0; i < numOfInputs; i++) {
+            String inputFileName = getSortedRunFileName(passID - 1, startRunID + i);
+            PageFileReader inStream = new PageFileReader(inputFileName, schema);
+            if (lower != null) {
+                inStream.seekPage(getStartPage(pageFences.get(inputFileName), lower));
             }
-            Tuple current = inBatch.elementAt(0);
-            outHeap.add(new TupleInRun(current, i, 0));
-        }
-
-        // Continues until the output heap is empty (which means we have sorted and outputted everything).
-        while (!outHeap.isEmpty()) {
-            // Extracts and writes out the root of the output heap (which is the smallest element among all input runs).
-            TupleInRun outTuple = outHeap.poll();
-            outStream.writeObject(outTuple.tuple);
-
-            // Attempts to retrieve the next element from the same input buffer.
-            int nextBatchID = outTuple.runID;
-            int nextIndex = outTuple.tupleID + 1;
-            // Reads in the next page from the same input stream if that input buffer has been exhausted.
-            if (nextIndex == batchSize) {
-                Batch inBatch = new Batch(batchSize);
-                while (!inBatch.isFull()) {
-                    try {
-                        Tuple data = (Tuple) inStreams[nextBatchID].readObject();
-                        inBatch.add(data);
-                    } catch (EOFException eof) {
-                        break;
-                    }
-                }
-                inBatches[nextBatchID] = inBatch;
+            inStream.setReadAhead(readAheadPages);
 
-                // Resets the index for that input buffer to be 0.
-                nextIndex = 0;
+            // Fills in the data from an input run, skipping the tuples below the key range.
+            cursors[i] = new RunCursor(inStream);
+            while (lower != null && cursors[i].current() != null && sortKey.compare(cursors[i].current(), lower) < 0) {
+                cursors[i].advance();
             }
+            heads[i] = cursors[i].current();
+        }
 
-            // Inserts the next element into the output heap if that input buffer is not empty.
-            Batch inBatch = inBatches[nextBatchID];
-            if (inBatch == null || inBatch.size() <= nextIndex) {
-                inEos[nextBatchID] = true;
-                continue;
+        // A loser tree used for k-way merge, whose winner is written to the 1 page used for output buffer.
+        LoserTree tree = new LoserTree(heads, sortKey);
+        // The stream for output buffer, which combines the tuples with equal keys from different runs.
+        RunWriter outStream = new RunWriter(outputFileName, fences);
+
+        // Continues until all input runs are exhausted or the key range is left.
+        for (int i = tree.getWinner(); i >= 0; i = tree.getWinner()) {
+            // Writes out the winner (which is the smallest element among all input runs).
+            Tuple outTuple = tree.getWinnerTuple();
+            if (upper != null && sortKey.compare(outTuple, upper) >= 0) {
+                break;
             }
-            Tuple nextTuple = inBatch.elementAt(nextIndex);
-            outHeap.add(new TupleInRun(nextTuple, nextBatchID, nextIndex));
+            outStream.write(outTuple);
+
+            // Replaces the winner with the next element from the same input run.
+            cursors[i].advance();
+            tree.replaceWinner(cursors[i].current());
         }
 
         // Closes the resources used.
-        for (ObjectInputStream inStream : inStreams) {
-            inStream.close();
+        for (RunCursor cursor : cursors) {
+            cursor.stream.close();
         }
         outStream.close();
     }
 
     /**
-     * Compares two tuples based on the sort attribute.
+     * Finds the page of a sorted run from which the tuples not smaller than a given key are read.
      *
-     * @param tuple1 is the first tuple.
-     * @param tuple2 is the second tuple.
-     * @return an integer indicating the comparision result, compatible with the {@link java.util.Comparator} interface.
+     * @param fences is the page fences of the sorted run.
+     * @param key    is the key.
+     * @return the ID of the last page whose first tuple is smaller than the key; 0 if there is none.
      */
-    private int compareTuples(Tuple tuple1, Tuple tuple2) {
-        for (int sortKeyIndex: sortKeyIndices) {
-            int result = Tuple.compareTuples(tuple1, tuple2, sortKeyIndex);
-            if (result != 0) {
-                return result;
+    private int getStartPage(Vector<Tuple> fences, Tuple key) {
+        int low = 0;
+        int high = fences.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) / 2;
+            if (sortKey.compare(fences.elementAt(mid), key) < 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
             }
         }
-        return 0;
+        return low;
     }
 
     /**
-     * Provides the file name of a generated sorted run based on its run ID.
+     * Provides the file name of a generated sorted run based on its run ID. The file is allocated
+     * by the spill manager, which may place it in any of the spill directories.
      *
      * @param passID is the ID of the current pass.
      * @param runID  is the ID of the sorted run.
      */
     private String getSortedRunFileName(int passID, int runID) {
-        return "Sort-run-" + uuid + "-" + passID + "-" + runID;
+        return SpillManager.getPath(getSpillOwner(), "Sort-run-" + uuid + "-" + passID + "-" + runID);
+    }
+
+    /**
+     * @return the name under which the sorted runs of this operator are spilled.
+     */
+    public String getSpillOwner() {
+        return "Sort-" + uuid;
     }
 
     /**
@@ -291,34 +660,66 @@ public class Sort extends Operator {
      */
     @Override
     public Batch next() {
+        if (sortedTuples != null) {
+            return nextInMemory();
+        }
         if (eos) {
             close();
             return null;
         }
 
-        Batch outBatch = new Batch(batchSize);
-        while (!outBatch.isFull()) {
-            try {
-                Tuple data = (Tuple) sortedStream.readObject();
-                outBatch.add(data);
-            } catch (ClassNotFoundException cnf) {
-                System.err.printf("Sort: class not found for reading from sortedStream due to %s\n", cnf.toString());
-                System.exit(1);
-            } catch (EOFException EOF) {
-                // Sends the incomplete page and close in the next call.
-                eos = true;
-                return outBatch;
-            } catch (IOException e) {
-                System.err.printf("Sort: error reading from sortedStream due to %s\n", e.toString());
-                System.exit(1);
+        // Fills the page from the sorted streams in order, moving to the next one when a stream ends.
+        Batch outBatch = null;
+        try {
+            while ((outBatch == null || !outBatch.isFull()) && currentStream < sortedStreams.size()) {
+                int capacity = outBatch == null ? batchSize : batchSize - outBatch.size();
+                Batch inBatch = sortedStreams.elementAt(currentStream).nextBatch(capacity);
+                if (inBatch == null || !inBatch.isFull()) {
+                    currentStream++;
+                }
+                if (inBatch == null) {
+                    continue;
+                }
+                if (outBatch == null) {
+                    outBatch = inBatch;
+                } else {
+                    for (int i = 0; i < inBatch.size(); i++) {
+                        outBatch.add(inBatch, i);
+                    }
+                }
             }
+        } catch (IOException e) {
+            System.err.printf("Sort: error reading from sortedStream due to %s\n", e.toString());
+            System.exit(1);
         }
+        if (outBatch == null) {
+            close();
+            return null;
+        }
+
+        // Sends the incomplete page and close in the next call.
+        eos = !outBatch.isFull();
         return outBatch;
     }
 
     /**
-     * Closes the operator by gracefully closing the resources opened.
-     * TODO: delete generated files when closing.
+     * @return the next page of tuples from the sorted tuples in memory.
+     */
+    private Batch nextInMemory() {
+        if (sortedIndex == sortedTuples.length) {
+            close();
+            return null;
+        }
+        Batch outBatch = new Batch(batchSize);
+        while (!outBatch.isFull() && sortedIndex < sortedTuples.length) {
+            outBatch.add(sortedTuples[sortedIndex++].tuple);
+        }
+        return outBatch;
+    }
+
+    /**
+     * Closes the operator by gracefully closing the resources opened, and deletes the sorted runs
+     * from which the result is read.
      *
      * @return true if the operator is closed successfully.
      */
@@ -326,14 +727,134 @@ public class Sort extends Operator {
     public boolean close() {
         // Calls the close method in super-class for compatibility.
         super.close();
+        releaseFrames();
+        sortedTuples = null;
 
-        // Closes the sorted stream previously opened.
+        // Closes the sorted streams previously opened.
         try {
-            sortedStream.close();
+            for (PageFileReader sortedStream : sortedStreams) {
+                sortedStream.close();
+                SpillManager.release(sortedStream.getFileName());
+            }
         } catch (IOException e) {
             System.err.printf("Sort: unable to close sortedStream due to %s\n", e.toString());
             return false;
         }
+        sortedStreams.clear();
         return true;
     }
+
+    /**
+     * Combines two tuples with equal sort keys into one, e.g., by dropping the duplicate or by
+     * merging their partial aggregates.
+     */
+    public interface Combiner {
+        /**
+         * Combines two tuples with equal sort keys.
+         *
+         * @param tuple1 is the tuple which comes first.
+         * @param tuple2 is the tuple which comes next.
+         * @return the combined tuple, with the same sort key.
+         */
+        Tuple combine(Tuple tuple1, Tuple tuple2);
+    }
+
+    /**
+     * Writes the tuples of a sorted run, recording the first tuple of each page as a page fence.
+     * If a combiner is set, the last tuple is held back until a tuple with a different sort key
+     * arrives, so that the tuples with equal keys are combined before they are written.
+     */
+    private class RunWriter {
+        // The stream of the sorted run.
+        private final PageFileWriter stream;
+        // The page fences of the sorted run; null if they are not recorded.
+        private final Vector<Tuple> fences;
+        // The tuple held back to be combined with the next ones; null if there is none.
+        private Tuple pending = null;
+
+        RunWriter(String fileName, Vector<Tuple> fences) throws IOException {
+            this.stream = new PageFileWriter(fileName, schema, Batch.getPageSize());
+            this.fences = fences;
+        }
+
+        /**
+         * Writes a tuple, which is not smaller than any tuple written before.
+         *
+         * @param tuple is the tuple to be written.
+         * @throws IOException if the page cannot be written.
+         */
+        void write(Tuple tuple) throws IOException {
+            if (combiner == null) {
+                writeToStream(tuple);
+            } else if (pending != null && sortKey.compare(pending, tuple) == 0) {
+                pending = combiner.combine(pending, tuple);
+            } else {
+                if (pending != null) {
+                    writeToStream(pending);
+                }
+                pending = tuple;
+            }
+        }
+
+        /**
+         * Writes a tuple into the stream, recording it as a page fence if it begins a new page.
+         *
+         * @param tuple is the tuple to be written.
+         * @throws IOException if the page cannot be written.
+         */
+        private void writeToStream(Tuple tuple) throws IOException {
+            if (fences != null && stream.getNumOfTuples() % stream.getTuplesPerPage() == 0) {
+                fences.add(tuple);
+            }
+            stream.write(tuple);
+        }
+
+        /**
+         * Writes the tuple held back and closes the stream.
+         *
+         * @throws IOException if the page cannot be written.
+         */
+        void close() throws IOException {
+            if (pending != null) {
+                writeToStream(pending);
+                pending = null;
+            }
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the tuples of a sorted run one at a time, holding one page of the run.
+     */
+    private class RunCursor {
+        // The stream of the sorted run.
+        private final PageFileReader stream;
+        // The current page of the sorted run; null if the run is exhausted.
+        private Batch batch;
+        // The index of the current tuple in the current page.
+        private int index = 0;
+
+        RunCursor(PageFileReader stream) throws IOException {
+            this.stream = stream;
+            batch = stream.nextBatch(batchSize);
+        }
+
+        /**
+         * @return the current tuple; null if the run is exhausted.
+         */
+        Tuple current() {
+            return batch == null ? null : batch.elementAt(index);
+        }
+
+        /**
+         * Moves to the next tuple, reading in the next page if the current one has been exhausted.
+         */
+        void advance() throws IOException {
+            index++;
+            if (index == batch.size()) {
+                batch = stream.nextBatch(batchSize);
+                index = 0;
+            }
+        }
+    }
 }
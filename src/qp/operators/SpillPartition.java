@@ -0,0 +1,114 @@
+package qp.operators;
+
+import java.io.IOException;
+
+import qp.utils.Batch;
+import qp.utils.PageFileReader;
+import qp.utils.PageFileWriter;
+import qp.utils.Schema;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+/**
+ * Represents a partition of tuples spilled by a hash-based operator (i.e., {@link HashDistinct}
+ * and {@link HashGroupby}) whose hash table is full. It is written with one output buffer page,
+ * and read back later to be processed with an empty hash table.
+ */
+class SpillPartition {
+    // The file name of the partition.
+    private final String fileName;
+    // The schema of the tuples.
+    private final Schema schema;
+    // The recursion depth at which the partition is generated.
+    private final int depth;
+    // The output stream of the partition; null once closed.
+    private PageFileWriter outStream;
+    // The number of tuples written to the partition.
+    private int numOfTuples = 0;
+
+    /**
+     * Creates the file of a new partition.
+     *
+     * @param fileName is the file name of the partition, as provided by {@link SpillManager}.
+     * @param schema   is the schema of the tuples.
+     * @param depth    is the recursion depth.
+     */
+    SpillPartition(String fileName, Schema schema, int depth) {
+        this.fileName = fileName;
+        this.schema = schema;
+        this.depth = depth;
+        try {
+            outStream = new PageFileWriter(fileName, schema, Batch.getPageSize());
+        } catch (IOException e) {
+            System.err.printf("SpillPartition: error in writing the partition file %s due to %s\n", fileName, e.toString());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Adds a tuple into the partition, and flushes the output buffer if full.
+     *
+     * @param tuple is the tuple to be added.
+     */
+    void write(Tuple tuple) {
+        try {
+            outStream.write(tuple);
+            numOfTuples++;
+        } catch (IOException e) {
+            System.err.printf("SpillPartition: error in writing the partition file %s due to %s\n", fileName, e.toString());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Flushes the partially filled output buffer and closes the partition file.
+     */
+    void closeWriter() {
+        if (outStream == null) {
+            return;
+        }
+        try {
+            outStream.close();
+        } catch (IOException e) {
+            System.err.printf("SpillPartition: error in closing the partition file %s\n", fileName);
+        }
+        outStream = null;
+    }
+
+    /**
+     * Opens the partition to be read back, after its writer is closed.
+     *
+     * @return the stream of the partition.
+     */
+    PageFileReader openReader() {
+        try {
+            return new PageFileReader(fileName, schema);
+        } catch (IOException e) {
+            System.err.printf("SpillPartition: error in reading the partition file %s due to %s\n", fileName, e.toString());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the file of the partition.
+     */
+    void delete() {
+        closeWriter();
+        SpillManager.release(fileName);
+    }
+
+    /**
+     * @return the recursion depth at which the partition is generated.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return whether no tuple has been written to the partition.
+     */
+    boolean isEmpty() {
+        return numOfTuples == 0;
+    }
+}
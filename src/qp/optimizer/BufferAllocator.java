@@ -0,0 +1,137 @@
+package qp.optimizer;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+import qp.operators.Distinct;
+import qp.operators.Groupby;
+import qp.operators.Join;
+import qp.operators.OpType;
+import qp.operators.Operator;
+import qp.operators.Project;
+import qp.operators.Select;
+
+/**
+ * Divides the buffers among the operators of a plan which need working memory, i.e., the joins
+ * and the sort-based DISTINCT and GROUP BY. Each operator starts with the minimum of 3 buffers,
+ * and the remaining buffers are then handed out greedily: in each round, the operator whose
+ * extra buffers reduce the estimated cost of the whole plan the most per buffer gets them. The
+ * costs are step functions of the buffers (e.g., the number of sort passes), so several amounts
+ * are tried for each operator in a round. Buffers which no longer reduce the cost are not given
+ * to any operator, and are left to the buffer pool to cache the pages read from files.
+ */
+public class BufferAllocator {
+    // The minimum number of buffers for any operator which needs working memory.
+    private static final int MIN_BUFFERS = 3;
+    // The maximum number of steps into which the remaining buffers are divided in each round.
+    private static final int NUM_OF_STEPS = 32;
+
+    // The root of the plan.
+    private final Operator root;
+    // The total number of buffers.
+    private final int numOfBuffers;
+    // The operators which need working memory.
+    private final Vector<Operator> consumers = new Vector<>();
+
+    /**
+     * Creates a new buffer allocator.
+     *
+     * @param root         is the root of the (logical) plan.
+     * @param numOfBuffers is the total number of buffers.
+     */
+    public BufferAllocator(Operator root, int numOfBuffers) {
+        this.root = root;
+        this.numOfBuffers = numOfBuffers;
+        findConsumers(root);
+    }
+
+    /**
+     * Finds the operators which need working memory in a (sub-)plan.
+     *
+     * @param node is the root of the (sub-)plan.
+     */
+    private void findConsumers(Operator node) {
+        switch (node.getOpType()) {
+            case OpType.JOIN:
+                consumers.add(node);
+                findConsumers(((Join) node).getLeft());
+                findConsumers(((Join) node).getRight());
+                break;
+            case OpType.DISTINCT:
+                consumers.add(node);
+                findConsumers(((Distinct) node).getBase());
+                break;
+            case OpType.GROUPBY:
+                consumers.add(node);
+                findConsumers(((Groupby) node).getBase());
+                break;
+            case OpType.SELECT:
+                findConsumers(((Select) node).getBase());
+                break;
+            case OpType.PROJECT:
+                findConsumers(((Project) node).getBase());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Allocates the buffers to the operators.
+     *
+     * @return the number of buffers of each operator; empty if the buffers are too few to give
+     * each operator its minimum, in which case every operator uses the equal share.
+     */
+    public HashMap<Operator, Integer> allocate() {
+        HashMap<Operator, Integer> allocation = new HashMap<>();
+        if (consumers.isEmpty() || numOfBuffers < MIN_BUFFERS * consumers.size()) {
+            return allocation;
+        }
+        for (Operator consumer : consumers) {
+            allocation.put(consumer, MIN_BUFFERS);
+        }
+
+        int remaining = numOfBuffers - MIN_BUFFERS * consumers.size();
+        while (remaining > 0) {
+            long cost = getCost(allocation);
+            Operator bestConsumer = null;
+            int bestAmount = 0;
+            double bestGain = 0;
+
+            // Tries doubling amounts of extra buffers for each operator, up to all remaining ones.
+            int step = Math.max(remaining / NUM_OF_STEPS, 1);
+            for (Operator consumer : consumers) {
+                int current = allocation.get(consumer);
+                for (int amount = step; ; amount = Math.min(2 * amount, remaining)) {
+                    allocation.put(consumer, current + amount);
+                    double gain = 1.0 * (cost - getCost(allocation)) / amount;
+                    if (gain > bestGain) {
+                        bestConsumer = consumer;
+                        bestAmount = amount;
+                        bestGain = gain;
+                    }
+                    if (amount == remaining) {
+                        break;
+                    }
+                }
+                allocation.put(consumer, current);
+            }
+            if (bestConsumer == null) {
+                break;
+            }
+            allocation.put(bestConsumer, allocation.get(bestConsumer) + bestAmount);
+            remaining -= bestAmount;
+        }
+        return allocation;
+    }
+
+    /**
+     * Estimates the cost of the plan under an allocation.
+     *
+     * @param allocation is the number of buffers of each operator.
+     * @return the estimated cost.
+     */
+    private long getCost(HashMap<Operator, Integer> allocation) {
+        return new PlanCost(allocation).getCost(root);
+    }
+}
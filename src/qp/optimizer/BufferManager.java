@@ -1,12 +1,19 @@
 package qp.optimizer;
 
+import qp.utils.BufferPool;
+
 /**
  * Defines a simple buffer manager that distributes the buffers equally among all the
- * join operators.
+ * join operators. All buffers make up a {@link BufferPool}, from which the operators reserve
+ * their working memory while the remaining buffers cache the pages read from files.
  */
 public class BufferManager {
+    // The total number of buffers.
+    private static int numOfBuffers;
     // The number of buffers for each join operator.
     private static int buffersPerJoin;
+    // The replacement policy of the buffer pool.
+    private static int replacementPolicy = BufferPool.LRU;
 
     /**
      * Constructor of BufferManager.
@@ -15,7 +22,18 @@ public class BufferManager {
      * @param numOfJoin   is the total number of join operators.
      */
     public BufferManager(int numOfBuffer, int numOfJoin) {
+        numOfBuffers = numOfBuffer;
         buffersPerJoin = numOfJoin == 0 ? numOfBuffer : numOfBuffer / numOfJoin;
+        BufferPool.setInstance(new BufferPool(numOfBuffer, replacementPolicy));
+    }
+
+    /**
+     * Getter for numOfBuffers.
+     *
+     * @return the total number of buffers.
+     */
+    public static int getNumOfBuffers() {
+        return numOfBuffers;
     }
 
     /**
@@ -26,4 +44,22 @@ public class BufferManager {
     public static int getBuffersPerJoin() {
         return buffersPerJoin;
     }
+
+    /**
+     * Getter for replacementPolicy.
+     *
+     * @return the replacement policy of the buffer pool.
+     */
+    public static int getReplacementPolicy() {
+        return replacementPolicy;
+    }
+
+    /**
+     * Setter for replacementPolicy, which applies to the buffer pools created afterwards.
+     *
+     * @param policy is one of {@link BufferPool#LRU}, {@link BufferPool#CLOCK} and {@link BufferPool#MRU}.
+     */
+    public static void setReplacementPolicy(int policy) {
+        replacementPolicy = policy;
+    }
 }
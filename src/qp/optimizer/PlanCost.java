@@ -3,11 +3,16 @@ package qp.optimizer;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.StringTokenizer;
+import java.util.Vector;
 
 import qp.operators.Distinct;
 import qp.operators.Groupby;
+import qp.operators.HashDistinct;
+import qp.operators.HybridHashJoin;
+import qp.operators.IndexNestedJoin;
 import qp.operators.Join;
 import qp.operators.JoinType;
 import qp.operators.OpType;
@@ -16,7 +21,10 @@ import qp.operators.Project;
 import qp.operators.Scan;
 import qp.operators.Select;
 import qp.utils.Attribute;
+import qp.utils.BPlusTree;
 import qp.utils.Batch;
+import qp.utils.BufferPool;
+import qp.utils.CompoundCondition;
 import qp.utils.Condition;
 import qp.utils.Schema;
 
@@ -33,13 +41,43 @@ public class PlanCost {
     private boolean isFeasible;
     // A mapping from attribute name to the number of distinct values for this attribute.
     private Hashtable<Attribute, Integer> ht;
+    // The number of buffers allocated to each operator; an operator not in it uses the equal share.
+    private final HashMap<Operator, Integer> allocation;
+    // The number of buffers not allocated to any operator, which are left to the buffer pool to cache pages.
+    private final int numOfCachePages;
 
     /**
-     * Constructor of PlanCost.
+     * Constructor of PlanCost, which gives every operator the equal share of the buffers.
      */
     public PlanCost() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * Constructor of PlanCost.
+     *
+     * @param allocation is the number of buffers allocated to each operator.
+     */
+    public PlanCost(HashMap<Operator, Integer> allocation) {
         ht = new Hashtable<>();
         cost = 0;
+        this.allocation = allocation;
+        int numOfAllocated = 0;
+        for (int numOfBuffer : allocation.values()) {
+            numOfAllocated += numOfBuffer;
+        }
+        numOfCachePages = allocation.isEmpty() ? 0 : Math.max(BufferManager.getNumOfBuffers() - numOfAllocated, 0);
+    }
+
+    /**
+     * Gets the number of buffers of an operator under the allocation.
+     *
+     * @param node is the operator.
+     * @return the number of buffers allocated, or the equal share if it is not allocated.
+     */
+    private int getNumOfBuffer(Operator node) {
+        Integer numOfBuffer = allocation.get(node);
+        return numOfBuffer == null ? BufferManager.getBuffersPerJoin() : numOfBuffer;
     }
 
     /**
@@ -137,28 +175,40 @@ public class PlanCost {
         int joinType = node.getJoinType();
 
         // Gets the number of buffers allocated to this join.
-        int numOfBuffer = BufferManager.getBuffersPerJoin();
+        int numOfBuffer = getNumOfBuffer(node);
 
         int joinCost;
 
         switch (joinType) {
             case JoinType.PAGE_NESTED_JOIN:
-                joinCost = leftPages * rightPages;
+                joinCost = getNestedLoopCost(leftPages, rightPages, node.getRight());
                 break;
             case JoinType.BLOCK_NESTED_JOIN:
                 int leftBlocks = (int) Math.ceil(leftPages / (numOfBuffer - 2));
-                joinCost = leftBlocks * rightPages;
+                joinCost = getNestedLoopCost(leftBlocks, rightPages, node.getRight());
                 break;
             case JoinType.SORT_MERGE_JOIN:
-                int leftSortCost = getExternalSortCost(leftPages, numOfBuffer);
-                int rightSortCost = getExternalSortCost(rightPages, numOfBuffer);
+                // An input which is already sorted on its join attribute is not sorted again.
+                int leftSortCost = node.getLeft().isSortedOn(leftJoinAttr) ? 0 : getExternalSortCost(leftPages, numOfBuffer);
+                int rightSortCost = node.getRight().isSortedOn(rightJoinAttr) ? 0 : getExternalSortCost(rightPages, numOfBuffer);
                 joinCost = leftSortCost + rightSortCost + rightPages;
                 break;
             case JoinType.HASH_JOIN:
-                joinCost = 0;
+                // At least one input buffer and two partitions are needed.
+                if (numOfBuffer < 3) {
+                    isFeasible = false;
+                    return -1;
+                }
+                joinCost = getHashJoinCost(leftPages, rightPages, numOfBuffer);
                 break;
             case JoinType.INDEX_NESTED_JOIN:
-                joinCost = 0;
+                if (!IndexNestedJoin.isApplicable(node.getRight(), rightJoinAttr)) {
+                    isFeasible = false;
+                    return -1;
+                }
+                // The right table is probed through its index rather than scanned.
+                cost = cost - rightPages;
+                joinCost = getIndexNestedJoinCost(leftTuples, rightTuples, rightAttrDistNum, (Scan) node.getRight(), rightJoinAttr);
                 break;
             default:
                 joinCost = 0;
@@ -187,6 +237,42 @@ public class PlanCost {
         Condition condition = node.getCondition();
         Schema schema = node.getSchema();
 
+        // Calculates the number of tuples in result.
+        int numOfOutTuple = (int) Math.ceil(getSelectivity(condition, schema) * numOfInTuple);
+
+        // Modifies the number of distinct values of each attribute. Assuming the values are
+        // distributed uniformly along the entire relation.
+        for (int i = 0; i < schema.getNumCols(); i++) {
+            Attribute a = schema.getAttribute(i);
+            int oldValue = ht.get(a);
+            int newValue = (int) Math.ceil(1.0 * numOfOutTuple / numOfInTuple * oldValue);
+            ht.put(a, numOfOutTuple);
+        }
+        return numOfOutTuple;
+    }
+
+    /**
+     * Estimates the fraction of tuples satisfying a select condition. The operands of a compound
+     * condition are assumed to be independent.
+     *
+     * @param condition is the select condition.
+     * @param schema    is the schema of the tuples to be selected.
+     * @return the estimated selectivity.
+     */
+    private double getSelectivity(Condition condition, Schema schema) {
+        if (condition instanceof CompoundCondition) {
+            double selectivity = 1;
+            for (Condition operand : ((CompoundCondition) condition).getOperands()) {
+                double operandSelectivity = getSelectivity(operand, schema);
+                if (condition.getOperator() == Condition.AND) {
+                    selectivity *= operandSelectivity;
+                } else {
+                    selectivity *= 1 - operandSelectivity;
+                }
+            }
+            return condition.getOperator() == Condition.AND ? selectivity : 1 - selectivity;
+        }
+
         // Gets the attribute on the left side of the condition.
         Attribute attr = condition.getLeft();
         int index = schema.indexOf(attr);
@@ -194,29 +280,14 @@ public class PlanCost {
 
         // Gets the number of distinct values of selection attributes.
         int numDistinct = ht.get(fullAttr);
-        int numOfOutTuple;
-
-        // Calculates the number of tuples in result.
         switch (condition.getOperator()) {
             case Condition.EQUAL:
-                numOfOutTuple = (int) Math.ceil(1.0 * numOfInTuple / numDistinct);
-                break;
+                return 1.0 / numDistinct;
             case Condition.NOTEQUAL:
-                numOfOutTuple = (int) Math.ceil(numOfInTuple - 1.0 * numOfInTuple / numDistinct);
-                break;
+                return 1 - 1.0 / numDistinct;
             default:
-                numOfOutTuple = (int) Math.ceil(0.5 * numOfInTuple);
+                return 0.5;
         }
-
-        // Modifies the number of distinct values of each attribute. Assuming the values are
-        // distributed uniformly along the entire relation.
-        for (int i = 0; i < schema.getNumCols(); i++) {
-            Attribute a = schema.getAttribute(i);
-            int oldValue = ht.get(a);
-            int newValue = (int) Math.ceil(1.0 * numOfOutTuple / numOfInTuple * oldValue);
-            ht.put(a, numOfOutTuple);
-        }
-        return numOfOutTuple;
     }
 
     /**
@@ -301,8 +372,21 @@ public class PlanCost {
      * @return the number of tuples after DISTINCT.
      */
     private int getStatistics(Distinct node) {
-        // TODO: calculates the number of distinct tuples here for output.
-        return getSort(node.getBase());
+        Operator base = node.getBase();
+        int numOfInTuples = calculateCost(base);
+        if (!isFeasible) {
+            return -1;
+        }
+
+        Schema schema = base.getSchema();
+        int numOfOutTuples = getNumOfDistinctTuples(node.getProjectList(), schema, numOfInTuples);
+        int capacity = Batch.getPageSize() / schema.getTupleSize();
+        int numOfInPages = (int) Math.ceil(1.0 * numOfInTuples / capacity);
+        int numOfDistinctPages = (int) Math.ceil(1.0 * numOfOutTuples / capacity);
+        int numOfBuffer = getNumOfBuffer(node);
+        cost += Math.min(getExternalSortCost(numOfInPages, numOfDistinctPages, numOfBuffer),
+                getHashingCost(numOfInPages, numOfDistinctPages, numOfBuffer));
+        return numOfOutTuples;
     }
 
     /**
@@ -312,20 +396,235 @@ public class PlanCost {
      * @return the number of tuples after GROUP_BY.
      */
     private int getStatistics(Groupby node) {
-        return getSort(node.getBase());
+        Operator base = node.getBase();
+        int numOfInTuples = calculateCost(base);
+        if (!isFeasible) {
+            return -1;
+        }
+
+        Schema baseSchema = base.getSchema();
+        int numOfGroups = getNumOfDistinctTuples(node.getGroupbyList(), baseSchema, numOfInTuples);
+        for (Attribute aggregate : node.getAggregates()) {
+            ht.put(aggregate, Math.max(numOfGroups, 1));
+        }
+
+        // A single group of all tuples is aggregated on the fly.
+        if (node.getGroupbyList().isEmpty()) {
+            return numOfGroups;
+        }
+        int numOfInPages = (int) Math.ceil(1.0 * numOfInTuples / (Batch.getPageSize() / baseSchema.getTupleSize()));
+        int numOfGroupPages = (int) Math.ceil(1.0 * numOfGroups / (Batch.getPageSize() / node.getSchema().getTupleSize()));
+        int numOfBuffer = getNumOfBuffer(node);
+        cost += Math.min(getExternalSortCost(numOfInPages, numOfGroupPages, numOfBuffer),
+                getHashingCost(numOfInPages, numOfGroupPages, numOfBuffer));
+        return numOfGroups;
     }
 
-    private int getSort(Operator base) {
-        // Calculates the input statistics.
-        int numOfInTuples = calculateCost(base);
-        int inCapacity = Batch.getPageSize() / base.getSchema().getTupleSize();
-        int numOfInPages = (int) Math.ceil(1.0 * numOfInTuples / inCapacity);
+    /**
+     * Estimates the number of distinct combinations of some attributes by the number of distinct
+     * values of each attribute, assuming they are independent.
+     *
+     * @param attrs         is the attributes.
+     * @param schema        is the schema of the tuples.
+     * @param numOfInTuples is the number of tuples.
+     * @return the estimated number of distinct combinations.
+     */
+    private int getNumOfDistinctTuples(Vector attrs, Schema schema, int numOfInTuples) {
+        double numOfDistinct = 1;
+        for (Object attr : attrs) {
+            Integer numOfValues = ht.get(schema.getAttribute(schema.indexOf((Attribute) attr)));
+            numOfDistinct *= numOfValues == null ? numOfInTuples : numOfValues;
+        }
+        return (int) Math.min(numOfDistinct, numOfInTuples);
+    }
 
-        // Calculates the external sort cost.
-        int numOfBuffer = BufferManager.getBuffersPerJoin();
-        cost += getExternalSortCost(numOfInPages, numOfBuffer);
+    /**
+     * Checks whether the hash-based DISTINCT or GROUP_BY is no more expensive than the sort-based one.
+     *
+     * @param inPages       is the number of pages in the input.
+     * @param distinctPages is the estimated number of pages of distinct tuples (or groups).
+     * @param numOfBuffer   is the number of buffer pages available.
+     * @return true if the hash-based operator should be used.
+     */
+    static boolean isHashingPreferred(int inPages, int distinctPages, int numOfBuffer) {
+        return getHashingCost(inPages, distinctPages, numOfBuffer)
+                <= getExternalSortCost(inPages, distinctPages, numOfBuffer);
+    }
+
+    /**
+     * Calculates the cost of performing a hash-based DISTINCT or GROUP_BY. Nothing is written to
+     * disk if the distinct tuples (or groups) fit in the hash table. Otherwise, the share of the
+     * input whose keys are not in the full table is written to the partitions and read back, and
+     * the same happens to each partition until its distinct tuples fit in the table.
+     *
+     * @param inPages       is the number of pages in the input.
+     * @param distinctPages is the estimated number of pages of distinct tuples (or groups).
+     * @param numOfBuffer   is the number of buffer pages available.
+     * @return the cost of this operator.
+     */
+    private static int getHashingCost(int inPages, int distinctPages, int numOfBuffer) {
+        int tablePages = HashDistinct.getNumOfTablePages(distinctPages, numOfBuffer);
+        int numOfPartitions = Math.max(HashDistinct.getNumOfPartitions(distinctPages, numOfBuffer), 2);
+
+        int hashCost = 0;
+        double spilledPages = inPages;
+        double partitionDistinctPages = distinctPages;
+        while (partitionDistinctPages > tablePages) {
+            spilledPages *= 1 - tablePages / partitionDistinctPages;
+            hashCost += 2 * (int) Math.ceil(spilledPages);
+            partitionDistinctPages = (partitionDistinctPages - tablePages) / numOfPartitions;
+        }
+        return hashCost;
+    }
+
+    /**
+     * Calculates the cost of performing a hash join, which is the cheaper one between the
+     * partitioned (Grace) hash join and the hybrid hash join.
+     *
+     * @param leftPages   is the number of pages in the left input.
+     * @param rightPages  is the number of pages in the right input.
+     * @param numOfBuffer is the number of buffer pages available.
+     * @return the cost of this hash join.
+     */
+    private int getHashJoinCost(int leftPages, int rightPages, int numOfBuffer) {
+        return Math.min(getGraceHashJoinCost(leftPages, rightPages, numOfBuffer),
+                getHybridHashJoinCost(leftPages, rightPages, numOfBuffer));
+    }
+
+    /**
+     * Checks whether the hybrid hash join is cheaper than the partitioned (Grace) hash join.
+     *
+     * @param leftPages   is the number of pages in the left input.
+     * @param rightPages  is the number of pages in the right input.
+     * @param numOfBuffer is the number of buffer pages available.
+     * @return true if the hybrid hash join should be used.
+     */
+    static boolean isHybridHashJoinPreferred(int leftPages, int rightPages, int numOfBuffer) {
+        return getHybridHashJoinCost(leftPages, rightPages, numOfBuffer)
+                < getGraceHashJoinCost(leftPages, rightPages, numOfBuffer);
+    }
 
-        return numOfInTuples;
+    /**
+     * Calculates the cost of performing a partitioned (Grace) hash join. Each partitioning pass
+     * reads and writes both inputs once, and the final probing pass reads them once more. Thus,
+     * the cost is 3(M + N) if the partitions of the smaller input fit in memory after one pass.
+     *
+     * @param leftPages   is the number of pages in the left input.
+     * @param rightPages  is the number of pages in the right input.
+     * @param numOfBuffer is the number of buffer pages available.
+     * @return the cost of this hash join.
+     */
+    private static int getGraceHashJoinCost(int leftPages, int rightPages, int numOfBuffer) {
+        double partitionPages = 1.0 * Math.min(leftPages, rightPages) / (numOfBuffer - 1);
+        int numOfPasses = 1 + getNumOfExtraPartitionPasses(partitionPages, numOfBuffer);
+        return (2 * numOfPasses + 1) * (leftPages + rightPages);
+    }
+
+    /**
+     * Calculates the cost of performing a hybrid hash join. The share of both inputs belonging
+     * to the in-memory partition 0 is read only once, while the rest is partitioned to disk and
+     * joined in the same way as the partitioned (Grace) hash join.
+     *
+     * @param leftPages   is the number of pages in the left (build) input.
+     * @param rightPages  is the number of pages in the right input.
+     * @param numOfBuffer is the number of buffer pages available.
+     * @return the cost of this hash join.
+     */
+    private static int getHybridHashJoinCost(int leftPages, int rightPages, int numOfBuffer) {
+        int numOfPartitions = HybridHashJoin.getNumOfSpilledPartitions(leftPages, numOfBuffer);
+        if (numOfPartitions == 0) {
+            return leftPages + rightPages;
+        }
+
+        int residentPages = Math.max(numOfBuffer - 2 - numOfPartitions, 1);
+        double spilledFraction = Math.max(0, 1 - 1.0 * residentPages / leftPages);
+        int spilledLeftPages = (int) Math.ceil(spilledFraction * leftPages);
+        int spilledRightPages = (int) Math.ceil(spilledFraction * rightPages);
+
+        double partitionPages = 1.0 * Math.min(spilledLeftPages, spilledRightPages) / numOfPartitions;
+        int numOfPasses = 1 + getNumOfExtraPartitionPasses(partitionPages, numOfBuffer);
+        return leftPages + rightPages + 2 * numOfPasses * (spilledLeftPages + spilledRightPages);
+    }
+
+    /**
+     * Calculates the cost of performing an index nested loop join. Each left tuple descends the
+     * internal levels of the index, and then reads the leaves holding its matching tuples. The
+     * internal levels are counted as well, although they are usually cached.
+     *
+     * @param leftTuples       is the number of tuples in the left input.
+     * @param rightTuples      is the number of tuples in the right table.
+     * @param rightAttrDistNum is the number of distinct values of the right join attribute.
+     * @param right            is the scan of the right table.
+     * @param rightJoinAttr    is the right join attribute.
+     * @return the cost of this index nested loop join.
+     */
+    private int getIndexNestedJoinCost(int leftTuples, int rightTuples, int rightAttrDistNum, Scan right, Attribute rightJoinAttr) {
+        BPlusTree.Shape index = BPlusTree.getShape(right.getTableName(), rightJoinAttr.getColName(), right.getSchema());
+        double matchesPerProbe = 1.0 * rightTuples / Math.max(rightAttrDistNum, 1);
+        int leavesPerProbe = Math.max((int) Math.ceil(matchesPerProbe / index.getLeafCapacity()), 1);
+        int pagesPerProbe = index.getHeight() - 1 + leavesPerProbe;
+        return leftTuples * pagesPerProbe;
+    }
+
+    /**
+     * Calculates the number of extra partitioning passes needed until each partition fits in
+     * (numOfBuffer - 2) pages.
+     *
+     * @param partitionPages is the number of pages in each partition after the first pass.
+     * @param numOfBuffer    is the number of buffer pages available.
+     * @return the number of extra partitioning passes.
+     */
+    private static int getNumOfExtraPartitionPasses(double partitionPages, int numOfBuffer) {
+        // A pass cannot split the partitions any further with fewer than 3 buffers, in which case
+        // the hash join is infeasible anyway.
+        if (numOfBuffer < 3) {
+            return 0;
+        }
+        int numOfPasses = 0;
+        while (partitionPages > numOfBuffer - 2) {
+            partitionPages = partitionPages / (numOfBuffer - 1);
+            numOfPasses++;
+        }
+        return numOfPasses;
+    }
+
+    /**
+     * Estimates the number of pages in the output of a (sub-)plan.
+     *
+     * @param node is the plan.
+     * @return the estimated number of pages.
+     */
+    int getNumOfPages(Operator node) {
+        isFeasible = true;
+        int numOfTuples = calculateCost(node);
+        int capacity = Batch.getPageSize() / node.getSchema().getTupleSize();
+        return (int) Math.ceil(1.0 * numOfTuples / capacity);
+    }
+
+    /**
+     * Calculates the cost of scanning the right input of a nested loop join once for each left
+     * page (or block). A base table is scanned again directly, where the first pass has been
+     * counted by its own scan, and the pages cached by the buffer pool are not read again: all
+     * of them if the table fits in the cache, or else only those kept by MRU replacement, as a
+     * sequential rescan evicts each page before its reuse under LRU and CLOCK. Any other input
+     * is written to a file first, which is then read in every pass.
+     *
+     * @param numOfPasses is the number of passes over the right input.
+     * @param rightPages  is the number of pages in the right input.
+     * @param right       is the right input.
+     * @return the cost of the passes over the right input.
+     */
+    private int getNestedLoopCost(int numOfPasses, int rightPages, Operator right) {
+        if (right.getOpType() == OpType.SCAN) {
+            int cachedPages = 0;
+            if (rightPages <= numOfCachePages) {
+                cachedPages = rightPages;
+            } else if (BufferManager.getReplacementPolicy() == BufferPool.MRU) {
+                cachedPages = numOfCachePages;
+            }
+            return Math.max(numOfPasses - 1, 0) * (rightPages - cachedPages);
+        }
+        return rightPages + numOfPasses * rightPages;
     }
 
     /**
@@ -335,9 +634,39 @@ public class PlanCost {
      * @param numOfBuffer is the number of buffer pages available.
      * @return the cost of this sorting process.
      */
-    private int getExternalSortCost(int numOfPages, int numOfBuffer) {
+    private static int getExternalSortCost(int numOfPages, int numOfBuffer) {
+        // The input is sorted in memory without any sorted run if it fits in the buffers.
+        if (numOfPages <= numOfBuffer) {
+            return 0;
+        }
         int numOfSortedRuns = (int) Math.ceil(1.0 * numOfPages / numOfBuffer);
         int numOfPasses = (int) Math.ceil(Math.log(numOfSortedRuns) / Math.log(numOfBuffer - 1)) + 1;
         return 2 * numOfPages * numOfPasses;
     }
+
+    /**
+     * Calculates the cost of performing an external sort which combines the tuples with equal
+     * keys, as for DISTINCT and GROUP_BY. Each sorted run, including the merged ones, holds at
+     * most one page of tuples per page of distinct keys.
+     *
+     * @param numOfPages         is the number of input pages.
+     * @param numOfDistinctPages is the estimated number of pages of distinct keys.
+     * @param numOfBuffer        is the number of buffer pages available.
+     * @return the cost of this sorting process.
+     */
+    private static int getExternalSortCost(int numOfPages, int numOfDistinctPages, int numOfBuffer) {
+        if (numOfPages <= numOfBuffer) {
+            return 0;
+        }
+        int numOfSortedRuns = (int) Math.ceil(1.0 * numOfPages / numOfBuffer);
+        double pagesPerRun = Math.min(numOfBuffer, numOfDistinctPages);
+        double sortCost = numOfPages + numOfSortedRuns * pagesPerRun;
+        while (numOfSortedRuns > 1) {
+            double pagesRead = numOfSortedRuns * pagesPerRun;
+            numOfSortedRuns = (int) Math.ceil(1.0 * numOfSortedRuns / (numOfBuffer - 1));
+            pagesPerRun = Math.min(pagesPerRun * (numOfBuffer - 1), numOfDistinctPages);
+            sortCost += pagesRead + numOfSortedRuns * pagesPerRun;
+        }
+        return (int) Math.ceil(sortCost);
+    }
 }
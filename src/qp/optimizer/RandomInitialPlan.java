@@ -4,7 +4,9 @@ import java.io.FileInputStream;
 import java.io.ObjectInputStream;
 import java.util.BitSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Vector;
 
 import qp.operators.Distinct;
 import qp.operators.Groupby;
@@ -16,6 +18,7 @@ import qp.operators.Project;
 import qp.operators.Scan;
 import qp.operators.Select;
 import qp.utils.Attribute;
+import qp.utils.CompoundCondition;
 import qp.utils.Condition;
 import qp.utils.RandomNum;
 import qp.utils.SQLQuery;
@@ -100,15 +103,17 @@ public class RandomInitialPlan {
     }
 
     /**
-     * Creates Selection Operators for each of the selection condition mentioned in the
-     * condition list.
+     * Creates a Selection Operator for each table with selection conditions mentioned in the
+     * condition list. All conditions on the same table are combined by AND, so that they are
+     * evaluated by a single operator in one pass.
      */
     private void createSelectOperators() {
         if (sqlQuery.getSelectionList().size() == 0) {
             return;
         }
 
-        Operator operator = null;
+        // Groups the selection conditions by table.
+        LinkedHashMap<String, Vector<Condition>> conditionsByTable = new LinkedHashMap<>();
         for (Object cond: sqlQuery.getSelectionList()) {
             Condition condition = (Condition) cond;
             if (condition.getCondType() != Condition.SELECT) {
@@ -116,9 +121,20 @@ public class RandomInitialPlan {
             }
 
             String tableName = condition.getLeft().getTabName();
-            Operator base = tableNameToOperator.get(tableName);
+            conditionsByTable.computeIfAbsent(tableName, k -> new Vector<>()).add(condition);
+        }
+
+        Operator operator = null;
+        for (Map.Entry<String, Vector<Condition>> entry : conditionsByTable.entrySet()) {
+            Condition condition = CompoundCondition.and(entry.getValue());
+            Operator base = tableNameToOperator.get(entry.getKey());
             operator = new Select(base, condition, OpType.SELECT);
 
+            // Lets the scan skip the pages which cannot satisfy the condition.
+            if (base instanceof Scan) {
+                ((Scan) base).setPageFilter(condition);
+            }
+
             operator.setSchema(base.getSchema());
             modifyHashtable(base, operator);
         }
@@ -202,11 +218,22 @@ public class RandomInitialPlan {
      * Creates a groupby operator.
      */
     private void createGroupbyOperator() {
-        if (sqlQuery.isGroupby()) {
-            Groupby operator = new Groupby(root, sqlQuery.getGroupByList());
-            operator.setSchema(root.getSchema());
-            root = operator;
+        if (!sqlQuery.isGroupby() && !sqlQuery.hasAggregates()) {
+            return;
         }
+
+        // Without a GROUP_BY clause, the aggregates are computed over a single group of all tuples.
+        Vector groupbyList = sqlQuery.isGroupby() ? sqlQuery.getGroupByList() : new Vector();
+        for (Object attr : sqlQuery.getProjectList()) {
+            if (!((Attribute) attr).isAggregate() && !groupbyList.contains(attr)) {
+                System.err.printf("RandomInitialPlan: attribute %s must be aggregated or grouped by\n", ((Attribute) attr).getDisplayName());
+                System.exit(1);
+            }
+        }
+
+        Groupby operator = new Groupby(root, groupbyList, sqlQuery.getAggregates());
+        operator.setSchema(operator.computeSchema(root.getSchema()));
+        root = operator;
     }
 
     /**
@@ -1,11 +1,17 @@
 package qp.optimizer;
 
+import java.util.HashMap;
 import java.util.Vector;
 
 import qp.operators.BlockNestedJoin;
 import qp.operators.Debug;
 import qp.operators.Distinct;
 import qp.operators.Groupby;
+import qp.operators.HashDistinct;
+import qp.operators.HashGroupby;
+import qp.operators.HashJoin;
+import qp.operators.HybridHashJoin;
+import qp.operators.IndexNestedJoin;
 import qp.operators.Join;
 import qp.operators.JoinType;
 import qp.operators.OpType;
@@ -84,16 +90,33 @@ public abstract class RandomOptimizer {
     /**
      * Prepares an execution plan by replacing the methods with corresponding
      * join operator implementation, after finding a choice of method for
-     * each operator.
+     * each operator. Every operator uses the equal share of the buffers.
      *
      * @param node is the query plan.
      * @return the execution plan.
      */
     public static Operator makeExecPlan(Operator node) {
-        int numOfBuff = BufferManager.getBuffersPerJoin();
+        return makeExecPlan(node, new HashMap<>());
+    }
+
+    /**
+     * Prepares an execution plan by replacing the methods with corresponding
+     * join operator implementation, after finding a choice of method for
+     * each operator.
+     *
+     * @param node       is the query plan.
+     * @param allocation is the number of buffers allocated to each operator (see {@link BufferAllocator}).
+     * @return the execution plan.
+     */
+    public static Operator makeExecPlan(Operator node, HashMap<Operator, Integer> allocation) {
+        int numOfBuff = allocation.getOrDefault(node, BufferManager.getBuffersPerJoin());
         if (node.getOpType() == OpType.JOIN) {
-            Operator left = makeExecPlan(((Join) node).getLeft());
-            Operator right = makeExecPlan(((Join) node).getRight());
+            // Estimates the size of both inputs before they are replaced by the execution plan.
+            int leftPages = new PlanCost().getNumOfPages(((Join) node).getLeft());
+            int rightPages = new PlanCost().getNumOfPages(((Join) node).getRight());
+
+            Operator left = makeExecPlan(((Join) node).getLeft(), allocation);
+            Operator right = makeExecPlan(((Join) node).getRight(), allocation);
             int joinType = ((Join) node).getJoinType();
 
             switch (joinType) {
@@ -114,51 +137,91 @@ public abstract class RandomOptimizer {
                 case JoinType.SORT_MERGE_JOIN:
                     SortMergeJoin smj = new SortMergeJoin((Join) node);
 
+                    // Sorts an input only if it is not already sorted on its join attribute.
                     Vector<Attribute> leftAttrs = new Vector<>();
                     leftAttrs.add(smj.getCondition().getLeft());
-                    smj.setLeft(new Sort(left, leftAttrs, numOfBuff));
+                    smj.setLeft(left.isSortedOn(leftAttrs.firstElement()) ? left : new Sort(left, leftAttrs, numOfBuff));
 
                     Vector<Attribute> rightAttrs = new Vector<>();
                     rightAttrs.add((Attribute) smj.getCondition().getRight());
-                    smj.setRight(new Sort(right, rightAttrs, numOfBuff));
+                    smj.setRight(right.isSortedOn(rightAttrs.firstElement()) ? right : new Sort(right, rightAttrs, numOfBuff));
 
                     smj.setNumOfBuffer(numOfBuff);
                     return smj;
 
                 case JoinType.HASH_JOIN:
-                    PageNestedJoin hj = new PageNestedJoin((Join) node);
-                    // Add other code here.
-
+                    HashJoin hj;
+                    if (PlanCost.isHybridHashJoinPreferred(leftPages, rightPages, numOfBuff)) {
+                        HybridHashJoin hhj = new HybridHashJoin((Join) node);
+                        hhj.setNumOfLeftPages(leftPages);
+                        hj = hhj;
+                    } else {
+                        hj = new HashJoin((Join) node);
+                    }
+                    hj.setLeft(left);
+                    hj.setRight(right);
+                    hj.setNumOfBuffer(numOfBuff);
                     return hj;
 
                 case JoinType.INDEX_NESTED_JOIN:
-                    PageNestedJoin inj = new PageNestedJoin((Join) node);
-                    // Add other code here.
-
+                    Attribute rightAttr = (Attribute) ((Join) node).getCondition().getRight();
+                    if (!IndexNestedJoin.isApplicable(right, rightAttr)) {
+                        // Falls back to block nested loop join if there is no index to be probed.
+                        BlockNestedJoin fallback = new BlockNestedJoin((Join) node);
+                        fallback.setJoinType(JoinType.BLOCK_NESTED_JOIN);
+                        fallback.setLeft(left);
+                        fallback.setRight(right);
+                        fallback.setNumOfBuffer(numOfBuff);
+                        return fallback;
+                    }
+                    IndexNestedJoin inj = new IndexNestedJoin((Join) node);
+                    inj.setLeft(left);
+                    inj.setRight(right);
+                    inj.setNumOfBuffer(numOfBuff);
                     return inj;
 
                 default:
                     return node;
             }
         } else if (node.getOpType() == OpType.SELECT) {
-            Operator base = makeExecPlan(((Select) node).getBase());
+            Operator base = makeExecPlan(((Select) node).getBase(), allocation);
             ((Select) node).setBase(base);
             return node;
         } else if (node.getOpType() == OpType.PROJECT) {
-            Operator base = makeExecPlan(((Project) node).getBase());
+            Operator base = makeExecPlan(((Project) node).getBase(), allocation);
             ((Project) node).setBase(base);
             return node;
         } else if (node.getOpType() == OpType.DISTINCT) {
             Distinct operator = (Distinct) node;
             operator.setNumOfBuffer(numOfBuff);
-            Operator base = makeExecPlan(operator.getBase());
+
+            // Estimates the size of the input and the output before the input is replaced.
+            int inPages = new PlanCost().getNumOfPages(operator.getBase());
+            int distinctPages = new PlanCost().getNumOfPages(operator);
+
+            Operator base = makeExecPlan(operator.getBase(), allocation);
             operator.setBase(base);
+            if (PlanCost.isHashingPreferred(inPages, distinctPages, numOfBuff)) {
+                HashDistinct hd = new HashDistinct(operator);
+                hd.setNumOfDistinctPages(distinctPages);
+                return hd;
+            }
             return node;
         } else if (node.getOpType() == OpType.GROUPBY) {
             Groupby operator = (Groupby) node;
             operator.setNumOfBuffer(numOfBuff);
-            Operator base = makeExecPlan(operator.getBase());
+
+            // Estimates the size of the input and the output before the input is replaced.
+            int inPages = new PlanCost().getNumOfPages(operator.getBase());
+            int groupPages = new PlanCost().getNumOfPages(operator);
+
+            Operator base = makeExecPlan(operator.getBase(), allocation);
             operator.setBase(base);
+            if (PlanCost.isHashingPreferred(inPages, groupPages, numOfBuff)) {
+                HashGroupby hg = new HashGroupby(operator);
+                hg.setNumOfGroupPages(groupPages);
+                return hg;
+            }
             return node;
         } else {
             return node;
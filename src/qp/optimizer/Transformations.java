@@ -264,7 +264,7 @@ class Transformations {
             case OpType.GROUPBY:
                 base = ((Groupby) node).getBase();
                 modifySchema(base);
-                node.setSchema(base.getSchema());
+                node.setSchema(((Groupby) node).computeSchema(base.getSchema()));
                 break;
         }
     }
@@ -1,7 +1,7 @@
 
 //----------------------------------------------------
 // The following code was generated by CUP v0.10k
-// Sat Mar 30 17:31:28 SGT 2019
+// Sat Oct 17 00:12:23 UTC 2026
 //----------------------------------------------------
 
 package qp.parser;
@@ -10,11 +10,12 @@ import java.util.Vector;
 
 import java_cup.runtime.Symbol;
 import qp.utils.Attribute;
+import qp.utils.CompoundCondition;
 import qp.utils.Condition;
 import qp.utils.SQLQuery;
 
 /** CUP v0.10k generated parser.
-  * @version Sat Mar 30 17:31:28 SGT 2019
+  * @version Sat Oct 17 00:12:23 UTC 2026
   */
 public class parser extends java_cup.runtime.lr_parser {
 
@@ -27,15 +28,19 @@ public class parser extends java_cup.runtime.lr_parser {
   /** Production table. */
   protected static final short _production_table[][] = 
     unpackFromStrings(new String[] {
-    "\000\034\000\002\003\005\000\002\002\004\000\002\003" +
+    "\000\051\000\002\003\005\000\002\002\004\000\002\003" +
     "\010\000\002\003\010\000\002\003\006\000\002\003\006" +
     "\000\002\003\011\000\002\003\011\000\002\003\007\000" +
     "\002\003\007\000\002\004\005\000\002\004\003\000\002" +
-    "\006\005\000\002\006\003\000\002\007\005\000\002\007" +
-    "\003\000\002\010\005\000\002\010\005\000\002\010\004" +
-    "\000\002\010\004\000\002\005\005\000\002\005\004\000" +
-    "\002\011\003\000\002\011\003\000\002\011\003\000\002" +
-    "\011\003\000\002\011\003\000\002\011\003" });
+    "\005\005\000\002\005\003\000\002\006\003\000\002\006" +
+    "\006\000\002\010\003\000\002\010\003\000\002\010\003" +
+    "\000\002\010\003\000\002\010\003\000\002\011\005\000" +
+    "\002\011\003\000\002\012\005\000\002\012\003\000\002" +
+    "\013\005\000\002\013\003\000\002\014\005\000\002\014" +
+    "\003\000\002\015\005\000\002\015\005\000\002\015\004" +
+    "\000\002\015\004\000\002\007\005\000\002\007\004\000" +
+    "\002\016\003\000\002\016\003\000\002\016\003\000\002" +
+    "\016\003\000\002\016\003\000\002\016\003" });
 
   /** Access to production table. */
   public short[][] production_table() {return _production_table;}
@@ -43,45 +48,62 @@ public class parser extends java_cup.runtime.lr_parser {
   /** Parse-action table. */
   protected static final short[][] _action_table = 
     unpackFromStrings(new String[] {
-    "\000\065\000\004\021\005\001\002\000\006\002\066\024" +
-    "\065\001\002\000\010\004\007\010\010\025\006\001\002" +
-    "\000\006\004\007\010\053\001\002\000\006\003\050\007" +
-    "\051\001\002\000\004\022\044\001\002\000\006\005\013" +
-    "\022\014\001\002\000\012\002\ufff6\005\ufff6\022\ufff6\024" +
-    "\ufff6\001\002\000\004\004\007\001\002\000\004\004\015" +
-    "\001\002\000\012\002\ufff4\005\ufff4\023\ufff4\024\ufff4\001" +
-    "\002\000\012\002\ufffd\005\017\023\020\024\ufffd\001\002" +
-    "\000\004\004\042\001\002\000\006\003\022\004\007\001" +
-    "\002\000\010\002\uffff\005\040\024\uffff\001\002\000\004" +
-    "\026\037\001\002\000\020\003\026\011\030\012\032\013" +
-    "\033\014\025\015\027\016\031\001\002\000\010\002\ufff2" +
-    "\005\ufff2\024\ufff2\001\002\000\006\004\uffe8\026\uffe8\001" +
-    "\002\000\010\002\uffef\005\uffef\024\uffef\001\002\000\006" +
-    "\004\uffe6\026\uffe6\001\002\000\006\004\uffeb\026\uffeb\001" +
-    "\002\000\006\004\uffe7\026\uffe7\001\002\000\006\004\uffea" +
-    "\026\uffea\001\002\000\006\004\uffe9\026\uffe9\001\002\000" +
-    "\006\004\007\026\036\001\002\000\010\002\ufff0\005\ufff0" +
-    "\024\ufff0\001\002\000\010\002\ufff1\005\ufff1\024\ufff1\001" +
-    "\002\000\010\002\uffee\005\uffee\024\uffee\001\002\000\006" +
-    "\003\022\004\007\001\002\000\010\002\ufff3\005\ufff3\024" +
-    "\ufff3\001\002\000\012\002\ufff5\005\ufff5\023\ufff5\024\ufff5" +
-    "\001\002\000\012\002\ufff7\005\ufff7\022\ufff7\024\ufff7\001" +
-    "\002\000\004\004\015\001\002\000\012\002\ufffc\005\017" +
-    "\023\046\024\ufffc\001\002\000\006\003\022\004\007\001" +
-    "\002\000\010\002\ufffe\005\040\024\ufffe\001\002\000\030" +
-    "\002\uffec\003\uffec\005\uffec\011\uffec\012\uffec\013\uffec\014" +
-    "\uffec\015\uffec\016\uffec\022\uffec\024\uffec\001\002\000\004" +
-    "\004\052\001\002\000\030\002\uffed\003\uffed\005\uffed\011" +
-    "\uffed\012\uffed\013\uffed\014\uffed\015\uffed\016\uffed\022\uffed" +
-    "\024\uffed\001\002\000\004\022\061\001\002\000\006\005" +
-    "\013\022\055\001\002\000\004\004\015\001\002\000\012" +
-    "\002\ufff9\005\017\023\057\024\ufff9\001\002\000\006\003" +
-    "\022\004\007\001\002\000\010\002\ufffb\005\040\024\ufffb" +
-    "\001\002\000\004\004\015\001\002\000\012\002\ufff8\005" +
-    "\017\023\063\024\ufff8\001\002\000\006\003\022\004\007" +
-    "\001\002\000\010\002\ufffa\005\040\024\ufffa\001\002\000" +
-    "\004\004\007\001\002\000\004\002\000\001\002\000\010" +
-    "\002\001\005\013\024\001\001\002" });
+    "\000\110\000\004\021\005\001\002\000\006\002\106\024" +
+    "\105\001\002\000\022\004\020\010\015\025\016\026\012" +
+    "\027\006\030\007\031\021\032\014\001\002\000\004\033" +
+    "\ufff0\001\002\000\004\033\uffef\001\002\000\004\033\102" +
+    "\001\002\000\006\005\ufff3\022\ufff3\001\002\000\004\033" +
+    "\ufff1\001\002\000\006\005\064\022\076\001\002\000\004" +
+    "\033\uffed\001\002\000\004\022\072\001\002\000\020\004" +
+    "\020\010\026\026\012\027\006\030\007\031\021\032\014" +
+    "\001\002\000\006\005\ufff4\022\ufff4\001\002\000\006\003" +
+    "\022\007\023\001\002\000\004\033\uffee\001\002\000\036" +
+    "\002\uffdf\003\uffdf\005\uffdf\011\uffdf\012\uffdf\013\uffdf\014" +
+    "\uffdf\015\uffdf\016\uffdf\017\uffdf\020\uffdf\022\uffdf\024\uffdf" +
+    "\034\uffdf\001\002\000\004\004\024\001\002\000\036\002" +
+    "\uffe0\003\uffe0\005\uffe0\011\uffe0\012\uffe0\013\uffe0\014\uffe0" +
+    "\015\uffe0\016\uffe0\017\uffe0\020\uffe0\022\uffe0\024\uffe0\034" +
+    "\uffe0\001\002\000\006\005\064\022\065\001\002\000\004" +
+    "\022\027\001\002\000\004\004\030\001\002\000\012\002" +
+    "\uffeb\005\uffeb\023\uffeb\024\uffeb\001\002\000\012\002\ufff8" +
+    "\005\032\023\033\024\ufff8\001\002\000\004\004\063\001" +
+    "\002\000\006\003\035\004\020\001\002\000\010\002\ufffa" +
+    "\005\061\024\ufffa\001\002\000\004\035\060\001\002\000" +
+    "\014\002\uffe7\005\uffe7\017\044\020\uffe7\024\uffe7\001\002" +
+    "\000\020\003\047\011\051\012\053\013\054\014\046\015" +
+    "\050\016\052\001\002\000\012\002\uffe9\005\uffe9\020\042" +
+    "\024\uffe9\001\002\000\014\002\uffe5\005\uffe5\017\uffe5\020" +
+    "\uffe5\024\uffe5\001\002\000\006\003\035\004\020\001\002" +
+    "\000\014\002\uffe8\005\uffe8\017\044\020\uffe8\024\uffe8\001" +
+    "\002\000\006\003\035\004\020\001\002\000\014\002\uffe6" +
+    "\005\uffe6\017\uffe6\020\uffe6\024\uffe6\001\002\000\006\004" +
+    "\uffdb\035\uffdb\001\002\000\014\002\uffe2\005\uffe2\017\uffe2" +
+    "\020\uffe2\024\uffe2\001\002\000\006\004\uffd9\035\uffd9\001" +
+    "\002\000\006\004\uffde\035\uffde\001\002\000\006\004\uffda" +
+    "\035\uffda\001\002\000\006\004\uffdd\035\uffdd\001\002\000" +
+    "\006\004\uffdc\035\uffdc\001\002\000\006\004\020\035\057" +
+    "\001\002\000\014\002\uffe3\005\uffe3\017\uffe3\020\uffe3\024" +
+    "\uffe3\001\002\000\014\002\uffe4\005\uffe4\017\uffe4\020\uffe4" +
+    "\024\uffe4\001\002\000\014\002\uffe1\005\uffe1\017\uffe1\020" +
+    "\uffe1\024\uffe1\001\002\000\006\003\035\004\020\001\002" +
+    "\000\012\002\uffea\005\uffea\020\042\024\uffea\001\002\000" +
+    "\012\002\uffec\005\uffec\023\uffec\024\uffec\001\002\000\016" +
+    "\004\020\026\012\027\006\030\007\031\021\032\014\001" +
+    "\002\000\004\004\030\001\002\000\012\002\ufff9\005\032" +
+    "\023\067\024\ufff9\001\002\000\006\003\035\004\020\001" +
+    "\002\000\010\002\ufffb\005\061\024\ufffb\001\002\000\006" +
+    "\005\ufff5\022\ufff5\001\002\000\004\004\030\001\002\000" +
+    "\012\002\ufffc\005\032\023\074\024\ufffc\001\002\000\006" +
+    "\003\035\004\020\001\002\000\010\002\ufffe\005\061\024" +
+    "\ufffe\001\002\000\004\004\030\001\002\000\012\002\ufffd" +
+    "\005\032\023\100\024\ufffd\001\002\000\006\003\035\004" +
+    "\020\001\002\000\010\002\uffff\005\061\024\uffff\001\002" +
+    "\000\004\004\020\001\002\000\004\034\104\001\002\000" +
+    "\006\005\ufff2\022\ufff2\001\002\000\004\004\020\001\002" +
+    "\000\004\002\000\001\002\000\010\002\001\005\111\024" +
+    "\001\001\002\000\010\002\ufff6\005\ufff6\024\ufff6\001\002" +
+    "\000\004\004\020\001\002\000\010\002\ufff7\005\ufff7\024" +
+    "\ufff7\001\002" });
 
   /** Access to parse-action table. */
   public short[][] action_table() {return _action_table;}
@@ -89,27 +111,37 @@ public class parser extends java_cup.runtime.lr_parser {
   /** <code>reduce_goto</code> table. */
   protected static final short[][] _reduce_table = 
     unpackFromStrings(new String[] {
-    "\000\065\000\004\003\003\001\001\000\002\001\001\000" +
-    "\006\004\010\005\011\001\001\000\006\004\053\005\011" +
+    "\000\110\000\004\003\003\001\001\000\002\001\001\000" +
+    "\012\005\012\006\016\007\010\010\007\001\001\000\002" +
     "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
-    "\001\000\002\001\001\000\004\005\042\001\001\000\004" +
-    "\006\015\001\001\000\002\001\001\000\002\001\001\000" +
-    "\002\001\001\000\010\005\022\007\020\010\023\001\001" +
-    "\000\002\001\001\000\002\001\001\000\004\011\033\001" +
     "\001\000\002\001\001\000\002\001\001\000\002\001\001" +
-    "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\002\001\001\000\002\001\001\000\004\005\034\001\001" +
-    "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\006\005\022\010\040\001\001\000\002\001\001\000\002" +
-    "\001\001\000\002\001\001\000\004\006\044\001\001\000" +
-    "\002\001\001\000\010\005\022\007\046\010\023\001\001" +
-    "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\002\001\001\000\002\001\001\000\002\001\001\000\004" +
-    "\006\055\001\001\000\002\001\001\000\010\005\022\007" +
-    "\057\010\023\001\001\000\002\001\001\000\004\006\061" +
-    "\001\001\000\002\001\001\000\010\005\022\007\063\010" +
-    "\023\001\001\000\002\001\001\000\006\004\066\005\011" +
-    "\001\001\000\002\001\001\000\002\001\001" });
+    "\000\002\001\001\000\012\005\024\006\016\007\010\010" +
+    "\007\001\001\000\002\001\001\000\002\001\001\000\002" +
+    "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
+    "\001\000\002\001\001\000\002\001\001\000\004\011\030" +
+    "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
+    "\001\000\014\007\036\012\033\013\037\014\035\015\040" +
+    "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
+    "\001\000\004\016\054\001\001\000\002\001\001\000\002" +
+    "\001\001\000\010\007\036\014\042\015\040\001\001\000" +
+    "\002\001\001\000\006\007\036\015\044\001\001\000\002" +
+    "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
+    "\001\000\002\001\001\000\002\001\001\000\002\001\001" +
+    "\000\002\001\001\000\004\007\055\001\001\000\002\001" +
+    "\001\000\002\001\001\000\002\001\001\000\012\007\036" +
+    "\013\061\014\035\015\040\001\001\000\002\001\001\000" +
+    "\002\001\001\000\010\006\070\007\010\010\007\001\001" +
+    "\000\004\011\065\001\001\000\002\001\001\000\014\007" +
+    "\036\012\067\013\037\014\035\015\040\001\001\000\002" +
+    "\001\001\000\002\001\001\000\004\011\072\001\001\000" +
+    "\002\001\001\000\014\007\036\012\074\013\037\014\035" +
+    "\015\040\001\001\000\002\001\001\000\004\011\076\001" +
+    "\001\000\002\001\001\000\014\007\036\012\100\013\037" +
+    "\014\035\015\040\001\001\000\002\001\001\000\004\007" +
+    "\102\001\001\000\002\001\001\000\002\001\001\000\006" +
+    "\004\106\007\107\001\001\000\002\001\001\000\002\001" +
+    "\001\000\002\001\001\000\004\007\111\001\001\000\002" +
+    "\001\001" });
 
   /** Access to <code>reduce_goto</code> table. */
   public short[][] reduce_table() {return _reduce_table;}
@@ -194,73 +226,73 @@ class CUP$parser$actions {
       switch (CUP$parser$act_num)
         {
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 27: // op ::= EQUAL 
+          case 40: // op ::= EQUAL 
             {
               Condition RESULT = null;
 		
         RESULT = new Condition(Condition.EQUAL);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(7/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(12/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 26: // op ::= NOTEQUAL 
+          case 39: // op ::= NOTEQUAL 
             {
               Condition RESULT = null;
 		
         RESULT = new Condition(Condition.NOTEQUAL);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(7/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(12/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 25: // op ::= GTOE 
+          case 38: // op ::= GTOE 
             {
               Condition RESULT = null;
 		
         RESULT = new Condition(Condition.GTOE);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(7/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(12/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 24: // op ::= LTOE 
+          case 37: // op ::= LTOE 
             {
               Condition RESULT = null;
 		
         RESULT = new Condition(Condition.LTOE);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(7/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(12/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 23: // op ::= GREATERTHAN 
+          case 36: // op ::= GREATERTHAN 
             {
               Condition RESULT = null;
 		
         RESULT = new Condition(Condition.GREATER_THAN);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(7/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(12/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 22: // op ::= LESSTHAN 
+          case 35: // op ::= LESSTHAN 
             {
               Condition RESULT = null;
 		
         RESULT = new Condition(Condition.LESS_THAN);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(7/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(12/*op*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 21: // attribute ::= ID error 
+          case 34: // attribute ::= ID error 
             {
               Attribute RESULT = null;
 		int ileft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
@@ -273,12 +305,12 @@ class CUP$parser$actions {
         System.out.println("syntax error: incorrect attribute:"+ i.text());
         System.exit(0);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(3/*attribute*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(5/*attribute*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 20: // attribute ::= ID DOT ID 
+          case 33: // attribute ::= ID DOT ID 
             {
               Attribute RESULT = null;
 		int i1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -290,12 +322,12 @@ class CUP$parser$actions {
 		
         RESULT= new Attribute(i1.text(),i2.text());
     
-              CUP$parser$result = new java_cup.runtime.Symbol(3/*attribute*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(5/*attribute*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 19: // condition ::= error STRINGLIT 
+          case 32: // condition ::= error STRINGLIT 
             {
               Condition RESULT = null;
 		int pleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
@@ -308,12 +340,12 @@ class CUP$parser$actions {
         System.out.println("syntax error: incorrect condition:"+s.text());
         System.exit(0);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(6/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(11/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 18: // condition ::= attribute error 
+          case 31: // condition ::= attribute error 
             {
               Condition RESULT = null;
 		int atleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
@@ -326,12 +358,12 @@ class CUP$parser$actions {
         System.out.println("syntax error: incorrect condition");
         System.exit(0);
     
-              CUP$parser$result = new java_cup.runtime.Symbol(6/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(11/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 17: // condition ::= attribute op attribute 
+          case 30: // condition ::= attribute op attribute 
             {
               Condition RESULT = null;
 		int a1left = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -348,12 +380,12 @@ class CUP$parser$actions {
         c.setCondType(Condition.JOIN);
         RESULT = c;
     
-              CUP$parser$result = new java_cup.runtime.Symbol(6/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(11/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 16: // condition ::= attribute op STRINGLIT 
+          case 29: // condition ::= attribute op STRINGLIT 
             {
               Condition RESULT = null;
 		int atleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -370,12 +402,12 @@ class CUP$parser$actions {
         c.setCondType(Condition.SELECT);
         RESULT = c;
     
-              CUP$parser$result = new java_cup.runtime.Symbol(6/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(11/*condition*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 15: // conditionlist ::= condition 
+          case 28: // conjunction ::= condition 
             {
               Vector RESULT = null;
 		int cleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
@@ -386,12 +418,12 @@ class CUP$parser$actions {
         clist.add(c);
         RESULT = clist;
     
-              CUP$parser$result = new java_cup.runtime.Symbol(5/*conditionlist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(10/*conjunction*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 14: // conditionlist ::= conditionlist COMMA condition 
+          case 27: // conjunction ::= conjunction AND condition 
             {
               Vector RESULT = null;
 		int clistleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -404,12 +436,77 @@ class CUP$parser$actions {
         clist.add(c);
         RESULT = clist;
     
-              CUP$parser$result = new java_cup.runtime.Symbol(5/*conditionlist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(10/*conjunction*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 26: // disjunction ::= conjunction 
+            {
+              Vector RESULT = null;
+		int cleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Vector c = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        RESULT = c;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(9/*disjunction*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 13: // tablelist ::= ID 
+          case 25: // disjunction ::= disjunction OR conjunction 
+            {
+              Vector RESULT = null;
+		int dleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
+		int dright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
+		Vector d = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int cleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Vector c = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        Vector dlist = new Vector();
+        dlist.add(CompoundCondition.or(CompoundCondition.and(d), CompoundCondition.and(c)));
+        RESULT = dlist;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(9/*disjunction*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 24: // conditionlist ::= disjunction 
+            {
+              Vector RESULT = null;
+		int dleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int dright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Vector d = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        RESULT = d;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(8/*conditionlist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 23: // conditionlist ::= conditionlist COMMA disjunction 
+            {
+              Vector RESULT = null;
+		int clistleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
+		int clistright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
+		Vector clist = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int dleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int dright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Vector d = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        clist.addAll(d);
+        RESULT = clist;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(8/*conditionlist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 22: // tablelist ::= ID 
             {
               Vector RESULT = null;
 		int ileft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
@@ -420,12 +517,12 @@ class CUP$parser$actions {
         tlist.add(i.text());
         RESULT = tlist;
     
-              CUP$parser$result = new java_cup.runtime.Symbol(4/*tablelist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(7/*tablelist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 12: // tablelist ::= tablelist COMMA ID 
+          case 21: // tablelist ::= tablelist COMMA ID 
             {
               Vector RESULT = null;
 		int tlistleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -438,7 +535,128 @@ class CUP$parser$actions {
         tlist.add(i.text());
         RESULT = tlist;
     
-              CUP$parser$result = new java_cup.runtime.Symbol(4/*tablelist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+              CUP$parser$result = new java_cup.runtime.Symbol(7/*tablelist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 20: // aggregate ::= MAX 
+            {
+              Integer RESULT = null;
+		
+        RESULT = Attribute.MAX;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(6/*aggregate*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 19: // aggregate ::= MIN 
+            {
+              Integer RESULT = null;
+		
+        RESULT = Attribute.MIN;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(6/*aggregate*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 18: // aggregate ::= AVG 
+            {
+              Integer RESULT = null;
+		
+        RESULT = Attribute.AVG;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(6/*aggregate*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 17: // aggregate ::= SUM 
+            {
+              Integer RESULT = null;
+		
+        RESULT = Attribute.SUM;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(6/*aggregate*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 16: // aggregate ::= COUNT 
+            {
+              Integer RESULT = null;
+		
+        RESULT = Attribute.COUNT;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(6/*aggregate*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 15: // selectitem ::= aggregate LPAREN attribute RPAREN 
+            {
+              Attribute RESULT = null;
+		int agleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).left;
+		int agright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).right;
+		Integer ag = (Integer)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-3)).value;
+		int atleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).left;
+		int atright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-1)).right;
+		Attribute at = (Attribute)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-1)).value;
+		
+        at.setAggType(ag.intValue());
+        RESULT = at;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(4/*selectitem*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-3)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 14: // selectitem ::= attribute 
+            {
+              Attribute RESULT = null;
+		int atleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int atright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Attribute at = (Attribute)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        RESULT = at;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(4/*selectitem*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 13: // selectlist ::= selectitem 
+            {
+              Vector RESULT = null;
+		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int aright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Attribute a = (Attribute)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        Vector v = new Vector();
+        v.add(a);
+        RESULT = v;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(3/*selectlist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
+            }
+          return CUP$parser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 12: // selectlist ::= selectlist COMMA selectitem 
+            {
+              Vector RESULT = null;
+		int asleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
+		int asright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).right;
+		Vector as = (Vector)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-2)).value;
+		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).left;
+		int aright = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right;
+		Attribute a = (Attribute)((java_cup.runtime.Symbol) CUP$parser$stack.elementAt(CUP$parser$top-0)).value;
+		
+        as.add(a);
+        RESULT = as;
+    
+              CUP$parser$result = new java_cup.runtime.Symbol(3/*selectlist*/, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left, ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-0)).right, RESULT);
             }
           return CUP$parser$result;
 
@@ -495,7 +713,7 @@ class CUP$parser$actions {
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 8: // sqlquery ::= SELECT DISTINCT attlist FROM tablelist 
+          case 8: // sqlquery ::= SELECT DISTINCT selectlist FROM tablelist 
             {
               SQLQuery RESULT = null;
 		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -536,7 +754,7 @@ class CUP$parser$actions {
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 6: // sqlquery ::= SELECT DISTINCT attlist FROM tablelist WHERE conditionlist 
+          case 6: // sqlquery ::= SELECT DISTINCT selectlist FROM tablelist WHERE conditionlist 
             {
               SQLQuery RESULT = null;
 		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).left;
@@ -576,7 +794,7 @@ class CUP$parser$actions {
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 4: // sqlquery ::= SELECT attlist FROM tablelist 
+          case 4: // sqlquery ::= SELECT selectlist FROM tablelist 
             {
               SQLQuery RESULT = null;
 		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-2)).left;
@@ -615,7 +833,7 @@ class CUP$parser$actions {
           return CUP$parser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 2: // sqlquery ::= SELECT attlist FROM tablelist WHERE conditionlist 
+          case 2: // sqlquery ::= SELECT selectlist FROM tablelist WHERE conditionlist 
             {
               SQLQuery RESULT = null;
 		int aleft = ((java_cup.runtime.Symbol)CUP$parser$stack.elementAt(CUP$parser$top-4)).left;
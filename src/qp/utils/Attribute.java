@@ -7,6 +7,9 @@ import java.util.Objects;
  * Defines some metadata about an attribute (i.e., a column).
  */
 public class Attribute implements Serializable {
+    // Keeps the metadata files written before the aggregate type was added readable.
+    private static final long serialVersionUID = -7988534108333359383L;
+
     // Data types of an attribute.
     public static final int INT = 1;
     public static final int STRING = 2;
@@ -17,6 +20,14 @@ public class Attribute implements Serializable {
     public static final int PK = 1; // primary key
     public static final int FK = 2; // Foreign key
 
+    // Aggregate functions applied on an attribute.
+    public static final int NONE = 0;
+    public static final int MAX = 1;
+    public static final int MIN = 2;
+    public static final int SUM = 3;
+    public static final int COUNT = 4;
+    public static final int AVG = 5;
+
     // The name of the table to which this attribute belongs.
     private String tableName;
     // The column name of this attribute.
@@ -27,6 +38,8 @@ public class Attribute implements Serializable {
     private int key = -1;
     // The size (in bytes) of this attribute.
     private int attrSize;
+    // The aggregate function applied on this attribute, or NONE for a plain column.
+    private int aggType = NONE;
 
     /**
      * Creates a new attribute.
@@ -188,11 +201,69 @@ public class Attribute implements Serializable {
         return type;
     }
 
+    /**
+     * Setter for the aggregate type.
+     *
+     * @param aggType is one of MAX, MIN, SUM, COUNT and AVG, or NONE for a plain column.
+     */
+    public void setAggType(int aggType) {
+        this.aggType = aggType;
+    }
+
+    /**
+     * Getter for the aggregate type.
+     *
+     * @return the aggregate function applied on this attribute, or NONE for a plain column.
+     */
+    public int getAggType() {
+        return aggType;
+    }
+
+    /**
+     * @return whether an aggregate function is applied on this attribute.
+     */
+    public boolean isAggregate() {
+        return aggType != NONE;
+    }
+
+    /**
+     * @return the column on which the aggregate function is applied, i.e., a copy of this
+     * attribute without the aggregate function.
+     */
+    public Attribute getBaseAttribute() {
+        Attribute baseAttr = (Attribute) clone();
+        baseAttr.setAggType(NONE);
+        return baseAttr;
+    }
+
+    /**
+     * @return the name of this attribute in the form of table.column, wrapped by the aggregate
+     * function if any, e.g., SUM(table.column).
+     */
+    public String getDisplayName() {
+        String name = tableName + "." + colName;
+        switch (aggType) {
+            case MAX:
+                return "MAX(" + name + ")";
+            case MIN:
+                return "MIN(" + name + ")";
+            case SUM:
+                return "SUM(" + name + ")";
+            case COUNT:
+                return "COUNT(" + name + ")";
+            case AVG:
+                return "AVG(" + name + ")";
+            default:
+                return name;
+        }
+    }
+
     /**
      * Checks the equality with another object.
      *
      * @param other is the other object to be compared with.
-     * @return true if the other object is also of {@link Attribute} type and has the same table name & column name.
+     * @return true if the other object is also of {@link Attribute} type and has the same table name, column name
+     * and aggregate type.
      */
     @Override
     public boolean equals(Object other) {
@@ -200,7 +271,8 @@ public class Attribute implements Serializable {
             return false;
         } else if (other instanceof Attribute) {
             Attribute otherAttr = (Attribute) other;
-            return tableName.equals(otherAttr.tableName) && colName.equals(otherAttr.colName);
+            return tableName.equals(otherAttr.tableName) && colName.equals(otherAttr.colName)
+                    && aggType == otherAttr.aggType;
         } else {
             return false;
         }
@@ -208,7 +280,7 @@ public class Attribute implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(tableName, colName);
+        return Objects.hash(tableName, colName, aggType);
     }
 
     /**
@@ -224,6 +296,7 @@ public class Attribute implements Serializable {
         newAttr.setType(type);
         newAttr.setKeyType(key);
         newAttr.setAttrSize(attrSize);
+        newAttr.setAggType(aggType);
         return newAttr;
     }
 }
@@ -0,0 +1,346 @@
+package qp.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Vector;
+
+/**
+ * Represents a disk-resident B+ tree index on one column of a table, stored in the file
+ * <pre>&lt;table&gt;.&lt;column&gt;.idx</pre>. The file consists of fixed-size nodes:
+ * - node 0 is the header, recording where the root is and some statistics about the tree;
+ * - a leaf node stores whole tuples sorted by the key (i.e., the data entries are the records
+ *   themselves), and links to the next leaf node;
+ * - an internal node stores n separator keys and (n + 1) child node IDs.
+ * The index is created by {@link BPlusTreeBuilder} in a bulk-loading manner.
+ */
+public class BPlusTree {
+    // The magic number at the beginning of an index file.
+    static final int MAGIC = 0x42505431;
+    // The type of a leaf node.
+    static final byte LEAF = 0;
+    // The type of an internal node.
+    static final byte INTERNAL = 1;
+    // The number of bytes in a node header: type (1 byte), number of entries (4 bytes), next leaf (4 bytes).
+    static final int NODE_HEADER_SIZE = 9;
+
+    // The file containing the index.
+    private final RandomAccessFile file;
+    // The channel used to read nodes from the file.
+    private final FileChannel channel;
+    // The codec used to decode the tuples in leaf nodes.
+    private final TupleCodec codec;
+    // The key attribute.
+    private final Attribute keyAttr;
+    // The offset of the key in each encoded tuple.
+    private final int keyOffset;
+    // The number of bytes used by each encoded tuple.
+    private final int tupleWidth;
+    // The number of bytes used by each key.
+    private final int keyWidth;
+
+    // The number of bytes in each node.
+    private final int nodeSize;
+    // The node ID of the root.
+    private final int rootNode;
+    // The number of levels in the tree, including the leaf level.
+    private final int height;
+    // The number of leaf nodes.
+    private final int numOfLeaves;
+    // The number of tuples indexed.
+    private final int numOfEntries;
+
+    // Caches the internal nodes, which are few and visited by every search.
+    private final HashMap<Integer, ByteBuffer> internalNodes = new HashMap<>();
+
+    // The shape of each index looked up so far, by file name; null if there is no readable index.
+    private static final HashMap<String, Shape> shapes = new HashMap<>();
+
+    /**
+     * Opens an existing index file.
+     *
+     * @param fileName is the name of the index file.
+     * @param schema   is the schema of the indexed table.
+     * @throws IOException if the file cannot be read or is not a valid index.
+     */
+    public BPlusTree(String fileName, Schema schema) throws IOException {
+        file = new RandomAccessFile(fileName, "r");
+        channel = file.getChannel();
+
+        ByteBuffer header = ByteBuffer.allocate(7 * Integer.BYTES);
+        readFully(header, 0);
+        if (header.getInt() != MAGIC) {
+            file.close();
+            throw new IOException("invalid index file " + fileName);
+        }
+        nodeSize = header.getInt();
+        int keyIndex = header.getInt();
+        rootNode = header.getInt();
+        height = header.getInt();
+        numOfLeaves = header.getInt();
+        numOfEntries = header.getInt();
+
+        codec = new TupleCodec(schema);
+        tupleWidth = codec.getTupleWidth();
+        keyAttr = schema.getAttribute(keyIndex);
+        keyWidth = TupleCodec.widthOf(keyAttr);
+        int offset = 0;
+        for (int i = 0; i < keyIndex; i++) {
+            offset += TupleCodec.widthOf(schema.getAttribute(i));
+        }
+        keyOffset = offset;
+    }
+
+    /**
+     * Provides the file name of the index on a given column of a table.
+     *
+     * @param tableName is the name of the table.
+     * @param colName   is the name of the column.
+     * @return the file name of the index.
+     */
+    public static String getFileName(String tableName, String colName) {
+        return tableName + "." + colName + ".idx";
+    }
+
+    /**
+     * Finds the shape of the index on a given column of a table. The optimizer looks it up for
+     * every plan it costs, so the index file is only read the first time, and the shape (or the
+     * absence of the index) is remembered afterwards.
+     *
+     * @param tableName is the name of the table.
+     * @param colName   is the name of the column.
+     * @param schema    is the schema of the table.
+     * @return the shape of the index; null if there is no index, or it cannot be read.
+     */
+    public static synchronized Shape getShape(String tableName, String colName, Schema schema) {
+        String fileName = getFileName(tableName, colName);
+        if (!shapes.containsKey(fileName)) {
+            Shape shape = null;
+            if (new File(fileName).isFile()) {
+                try {
+                    BPlusTree index = new BPlusTree(fileName, schema);
+                    shape = new Shape(index.getHeight(), index.getLeafCapacity());
+                    index.close();
+                } catch (IOException e) {
+                    System.err.printf("BPlusTree: index %s is not used due to %s\n", fileName, e.toString());
+                }
+            }
+            shapes.put(fileName, shape);
+        }
+        return shapes.get(fileName);
+    }
+
+    /**
+     * Finds all tuples whose key equals to a given value. The search descends from the root to the
+     * leftmost leaf which may contain the key, and then follows the links between leaves.
+     *
+     * @param key is the value to search for.
+     * @return all matching tuples, in the order they are stored.
+     * @throws IOException if the nodes cannot be read.
+     */
+    public Vector<Tuple> search(Object key) throws IOException {
+        Vector<Tuple> result = new Vector<>();
+        if (rootNode < 0) {
+            return result;
+        }
+
+        // Descends through the internal nodes.
+        int nodeID = rootNode;
+        for (int level = height; level > 1; level--) {
+            ByteBuffer node = readInternalNode(nodeID);
+            int count = node.getInt(1);
+            int entryWidth = keyWidth + Integer.BYTES;
+            int base = NODE_HEADER_SIZE + Integer.BYTES;
+
+            // Finds the number of separators strictly smaller than the key.
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                node.position(base + mid * entryWidth);
+                if (compareKeys(TupleCodec.decodeValue(keyAttr, node), key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            nodeID = low == 0 ? node.getInt(NODE_HEADER_SIZE) : node.getInt(base + (low - 1) * entryWidth + keyWidth);
+        }
+
+        // Scans the leaves from the first tuple whose key is not smaller than the given key.
+        boolean isFirstLeaf = true;
+        while (nodeID >= 0) {
+            ByteBuffer leaf = readNode(nodeID);
+            int count = leaf.getInt(1);
+            int start = isFirstLeaf ? lowerBound(leaf, count, key) : 0;
+            isFirstLeaf = false;
+            for (int i = start; i < count; i++) {
+                leaf.position(NODE_HEADER_SIZE + i * tupleWidth + keyOffset);
+                if (compareKeys(TupleCodec.decodeValue(keyAttr, leaf), key) != 0) {
+                    return result;
+                }
+                leaf.position(NODE_HEADER_SIZE + i * tupleWidth);
+                result.add(codec.decode(leaf));
+            }
+            nodeID = leaf.getInt(5);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the position of the first tuple in a leaf whose key is not smaller than a given key.
+     *
+     * @param leaf  is the leaf node.
+     * @param count is the number of tuples in the leaf.
+     * @param key   is the key.
+     * @return the position found, which is count if all tuples are smaller.
+     */
+    private int lowerBound(ByteBuffer leaf, int count, Object key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            leaf.position(NODE_HEADER_SIZE + mid * tupleWidth + keyOffset);
+            if (compareKeys(TupleCodec.decodeValue(keyAttr, leaf), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares two keys of the same type.
+     *
+     * @param key1 is the first key.
+     * @param key2 is the second key.
+     * @return an integer indicating the comparision result, compatible with the {@link java.util.Comparator} interface.
+     */
+    @SuppressWarnings("unchecked")
+    static int compareKeys(Object key1, Object key2) {
+        return ((Comparable<Object>) key1).compareTo(key2);
+    }
+
+    /**
+     * Reads an internal node, possibly from the cache.
+     *
+     * @param nodeID is the ID of the node.
+     * @return the content of the node.
+     * @throws IOException if the node cannot be read.
+     */
+    private ByteBuffer readInternalNode(int nodeID) throws IOException {
+        ByteBuffer node = internalNodes.get(nodeID);
+        if (node == null) {
+            node = readNode(nodeID);
+            internalNodes.put(nodeID, node);
+        }
+        return node;
+    }
+
+    /**
+     * Reads a node from the index file.
+     *
+     * @param nodeID is the ID of the node.
+     * @return the content of the node.
+     * @throws IOException if the node cannot be read.
+     */
+    private ByteBuffer readNode(int nodeID) throws IOException {
+        ByteBuffer node = ByteBuffer.allocate(nodeSize);
+        readFully(node, (long) nodeID * nodeSize);
+        return node;
+    }
+
+    /**
+     * Fills a buffer with the content of the index file starting from a given position.
+     *
+     * @param buffer   is the buffer to be filled.
+     * @param position is the position in the file.
+     * @throws IOException if the end of file is reached before the buffer is filled.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int numOfBytes = channel.read(buffer, position + buffer.position());
+            if (numOfBytes < 0) {
+                throw new IOException("unexpected end of index file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @return the number of levels in the tree, including the leaf level.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the number of leaf nodes.
+     */
+    public int getNumOfLeaves() {
+        return numOfLeaves;
+    }
+
+    /**
+     * @return the number of tuples indexed.
+     */
+    public int getNumOfEntries() {
+        return numOfEntries;
+    }
+
+    /**
+     * @return the maximum number of tuples in a leaf node.
+     */
+    public int getLeafCapacity() {
+        return (nodeSize - NODE_HEADER_SIZE) / tupleWidth;
+    }
+
+    /**
+     * Closes the index file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException {
+        internalNodes.clear();
+        file.close();
+    }
+
+    /**
+     * Describes the shape of an index, which determines the number of nodes read by a search.
+     */
+    public static class Shape {
+        // The number of levels in the tree, including the leaf level.
+        private final int height;
+        // The maximum number of tuples in a leaf node.
+        private final int leafCapacity;
+
+        /**
+         * Creates the shape of an index.
+         *
+         * @param height       is the number of levels in the tree, including the leaf level.
+         * @param leafCapacity is the maximum number of tuples in a leaf node.
+         */
+        Shape(int height, int leafCapacity) {
+            this.height = height;
+            this.leafCapacity = leafCapacity;
+        }
+
+        /**
+         * @return the number of levels in the tree, including the leaf level.
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return the maximum number of tuples in a leaf node.
+         */
+        public int getLeafCapacity() {
+            return leafCapacity;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package qp.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+
+/**
+ * Creates a {@link BPlusTree} index file by bulk loading. Tuples must be added in the (non-decreasing)
+ * order of the key. Leaf nodes are filled up and written sequentially, while the first key and node
+ * ID of every leaf are remembered. When all tuples have been added, the internal levels are built
+ * bottom-up from these (key, node ID) pairs until a single root remains.
+ */
+public class BPlusTreeBuilder {
+    // The file to write the index into.
+    private final RandomAccessFile file;
+    // The channel used to write nodes into the file.
+    private final FileChannel channel;
+    // The codec used to encode the tuples in leaf nodes.
+    private final TupleCodec codec;
+    // The index of the key attribute.
+    private final int keyIndex;
+    // The key attribute.
+    private final Attribute keyAttr;
+    // The number of bytes in each node.
+    private final int nodeSize;
+    // The maximum number of tuples in a leaf node.
+    private final int leafCapacity;
+    // The maximum number of separator keys in an internal node.
+    private final int internalCapacity;
+
+    // The leaf node being filled.
+    private final ByteBuffer leaf;
+    // The number of tuples in the leaf node being filled.
+    private int leafCount = 0;
+    // The ID of the next node to be written (node 0 is the header).
+    private int nextNode = 1;
+    // The key of the last tuple added.
+    private Object lastKey = null;
+    // The number of tuples added.
+    private int numOfEntries = 0;
+
+    // The first key of each node in the level being built.
+    private Vector<Object> levelKeys = new Vector<>();
+    // The ID of each node in the level being built.
+    private Vector<Integer> levelNodes = new Vector<>();
+
+    /**
+     * Creates a new index file.
+     *
+     * @param fileName is the name of the index file.
+     * @param schema   is the schema of the indexed table.
+     * @param keyIndex is the index of the key attribute in the schema.
+     * @param nodeSize is the number of bytes in each node.
+     * @throws IOException if the file cannot be created.
+     */
+    public BPlusTreeBuilder(String fileName, Schema schema, int keyIndex, int nodeSize) throws IOException {
+        this.codec = new TupleCodec(schema);
+        this.keyIndex = keyIndex;
+        this.keyAttr = schema.getAttribute(keyIndex);
+        this.nodeSize = nodeSize;
+        this.leafCapacity = (nodeSize - BPlusTree.NODE_HEADER_SIZE) / codec.getTupleWidth();
+        this.internalCapacity = (nodeSize - BPlusTree.NODE_HEADER_SIZE - Integer.BYTES) / (TupleCodec.widthOf(keyAttr) + Integer.BYTES);
+        if (leafCapacity < 1 || internalCapacity < 1) {
+            throw new IllegalArgumentException("node size " + nodeSize + " is too small for the index");
+        }
+
+        file = new RandomAccessFile(fileName, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        leaf = ByteBuffer.allocate(nodeSize);
+    }
+
+    /**
+     * Adds the next tuple into the index.
+     *
+     * @param tuple is the tuple to be added, whose key must not be smaller than the previous one.
+     * @throws IOException if a leaf node cannot be written.
+     */
+    public void add(Tuple tuple) throws IOException {
+        Object key = tuple.dataAt(keyIndex);
+        if (lastKey != null && BPlusTree.compareKeys(lastKey, key) > 0) {
+            throw new IllegalArgumentException("tuples must be added in the order of " + keyAttr.getColName());
+        }
+        lastKey = key;
+
+        if (leafCount == leafCapacity) {
+            writeLeaf(nextNode + 1);
+        }
+        if (leafCount == 0) {
+            levelKeys.add(key);
+            levelNodes.add(nextNode);
+            leaf.clear();
+            leaf.position(BPlusTree.NODE_HEADER_SIZE);
+        }
+        codec.encode(tuple, leaf);
+        leafCount++;
+        numOfEntries++;
+    }
+
+    /**
+     * Writes the leaf node being filled.
+     *
+     * @param nextLeaf is the ID of the next leaf node, or -1 if this is the last one.
+     * @throws IOException if the node cannot be written.
+     */
+    private void writeLeaf(int nextLeaf) throws IOException {
+        leaf.put(0, BPlusTree.LEAF);
+        leaf.putInt(1, leafCount);
+        leaf.putInt(5, nextLeaf);
+        writeNode(leaf, nextNode);
+        nextNode++;
+        leafCount = 0;
+    }
+
+    /**
+     * Builds the internal levels, writes the header and closes the index file.
+     *
+     * @throws IOException if the nodes cannot be written.
+     */
+    public void close() throws IOException {
+        if (leafCount > 0) {
+            writeLeaf(-1);
+        }
+        int numOfLeaves = levelNodes.size();
+        int height = numOfLeaves == 0 ? 0 : 1;
+
+        // Each internal node takes (internalCapacity + 1) children from the level below.
+        ByteBuffer node = ByteBuffer.allocate(nodeSize);
+        while (levelNodes.size() > 1) {
+            Vector<Object> parentKeys = new Vector<>();
+            Vector<Integer> parentNodes = new Vector<>();
+            for (int start = 0; start < levelNodes.size(); start += internalCapacity + 1) {
+                int end = Math.min(start + internalCapacity + 1, levelNodes.size());
+                node.clear();
+                node.put(BPlusTree.INTERNAL);
+                node.putInt(end - start - 1);
+                node.putInt(-1);
+                node.putInt(levelNodes.get(start));
+                for (int i = start + 1; i < end; i++) {
+                    TupleCodec.encodeValue(keyAttr, levelKeys.get(i), node);
+                    node.putInt(levelNodes.get(i));
+                }
+                writeNode(node, nextNode);
+                parentKeys.add(levelKeys.get(start));
+                parentNodes.add(nextNode);
+                nextNode++;
+            }
+            levelKeys = parentKeys;
+            levelNodes = parentNodes;
+            height++;
+        }
+
+        node.clear();
+        node.putInt(BPlusTree.MAGIC);
+        node.putInt(nodeSize);
+        node.putInt(keyIndex);
+        node.putInt(levelNodes.isEmpty() ? -1 : levelNodes.get(0));
+        node.putInt(height);
+        node.putInt(numOfLeaves);
+        node.putInt(numOfEntries);
+        writeNode(node, 0);
+        file.close();
+    }
+
+    /**
+     * Writes a node into the index file. The whole node is written even if it is not full.
+     *
+     * @param node   is the content of the node.
+     * @param nodeID is the ID of the node.
+     * @throws IOException if the node cannot be written.
+     */
+    private void writeNode(ByteBuffer node, int nodeID) throws IOException {
+        node.clear();
+        long position = (long) nodeID * nodeSize;
+        while (node.hasRemaining()) {
+            channel.write(node, position + node.position());
+        }
+    }
+}
@@ -25,6 +25,13 @@ public class Batch implements Serializable {
         tuples = new Vector<>(maxSize);
     }
 
+    /**
+     * Creates a new batch without the underlying vector, for subclasses which store the tuples
+     * in a different layout.
+     */
+    protected Batch() {
+    }
+
     /**
      * Setter for page size (in bytes).
      *
@@ -83,6 +90,16 @@ public class Batch implements Serializable {
         return tuples.isEmpty();
     }
 
+    /**
+     * Inserts the tuple at a given index of another batch in this batch at the next free location.
+     *
+     * @param batch is the batch containing the tuple.
+     * @param index is the index of the tuple in that batch.
+     */
+    public void add(Batch batch, int index) {
+        add(batch.elementAt(index));
+    }
+
     /**
      * Checks whether this page contains a certain tuple.
      *
@@ -120,4 +137,43 @@ public class Batch implements Serializable {
     public Vector<Tuple> getTuples() {
         return tuples;
     }
+
+    /**
+     * Computes the hash code of an attribute of the tuple at a given index. It is the same as
+     * the hash code of the value returned by {@link Tuple#dataAt(int)}.
+     *
+     * @param i     is the index of the tuple.
+     * @param index is the index of the attribute.
+     * @return the hash code of the attribute value.
+     */
+    public int hashCodeAt(int i, int index) {
+        return elementAt(i).dataAt(index).hashCode();
+    }
+
+    /**
+     * Checks whether the join condition is satisfied by a tuple in this batch and a tuple in
+     * another batch. Notice: JOIN means EQUAL operator.
+     *
+     * @param i          is the index of the tuple in this batch.
+     * @param right      is the batch containing the other tuple.
+     * @param j          is the index of the other tuple.
+     * @param leftIndex  is the index of the join attribute in this batch.
+     * @param rightIndex is the index of the join attribute in the other batch.
+     * @return true if the join condition is satisfied.
+     */
+    public boolean checkJoin(int i, Batch right, int j, int leftIndex, int rightIndex) {
+        return elementAt(i).checkJoin(right.elementAt(j), leftIndex, rightIndex);
+    }
+
+    /**
+     * Joins a tuple in this batch with a tuple in another batch without duplicate column elimination.
+     *
+     * @param i     is the index of the tuple in this batch.
+     * @param right is the batch containing the other tuple.
+     * @param j     is the index of the other tuple.
+     * @return the joined tuple.
+     */
+    public Tuple joinWith(int i, Batch right, int j) {
+        return elementAt(i).joinWith(right.elementAt(j));
+    }
 }
@@ -0,0 +1,342 @@
+package qp.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Defines a pool of page frames shared by all operators. An operator reserves the frames it uses
+ * as its own working memory (e.g., the pages of a sort or the block of a nested loop join), and
+ * the frames not reserved cache the pages read from page files. A cached page is pinned while a
+ * reader decodes it, and only an unpinned page may be replaced, as chosen by one of the policies:
+ * - LRU replaces the page which was least recently used;
+ * - CLOCK sweeps over the frames, giving each recently used page a second chance;
+ * - MRU replaces the page which was most recently used, which suits repeated sequential scans of
+ *   a file larger than the cache (e.g., the inner side of a nested loop join).
+ */
+public class BufferPool {
+    public static final int LRU = 0;
+    public static final int CLOCK = 1;
+    public static final int MRU = 2;
+
+    // The pool used by the page file readers; null if pages are always read on demand.
+    private static BufferPool instance = null;
+
+    // The replacement policy.
+    private final int policy;
+    // The content of each frame, allocated when the frame is first used.
+    private final ByteBuffer[] frames;
+    // The key of the page held by each frame; null if the frame is free.
+    private final String[] keys;
+    // The number of readers pinning each frame.
+    private final int[] pinCounts;
+    // Whether each frame is still being loaded from its file.
+    private final boolean[] loading;
+    // The time at which each frame was last used, for LRU and MRU.
+    private final long[] lastUsed;
+    // Whether each frame has been used since the clock hand last passed it, for CLOCK.
+    private final boolean[] referenced;
+    // The frame holding each cached page, by its key.
+    private final HashMap<String, Integer> pageTable = new HashMap<>();
+
+    // The number of frames reserved by the operators.
+    private int numOfReserved = 0;
+    // The number of frames holding a page.
+    private int numOfOccupied = 0;
+    // The logical time, advanced whenever a frame is used.
+    private long clock = 0;
+    // The position of the clock hand.
+    private int hand = 0;
+    // The number of pins served from the cache.
+    private long numOfHits = 0;
+    // The number of pins which read the page from its file.
+    private long numOfMisses = 0;
+
+    /**
+     * Creates a new buffer pool.
+     *
+     * @param numOfFrames is the number of page frames.
+     * @param policy      is the replacement policy, one of LRU, CLOCK and MRU.
+     */
+    public BufferPool(int numOfFrames, int policy) {
+        this.policy = policy;
+        frames = new ByteBuffer[numOfFrames];
+        keys = new String[numOfFrames];
+        pinCounts = new int[numOfFrames];
+        loading = new boolean[numOfFrames];
+        lastUsed = new long[numOfFrames];
+        referenced = new boolean[numOfFrames];
+    }
+
+    /**
+     * Setter for instance.
+     *
+     * @param pool is the pool used by the page file readers; null to read pages on demand.
+     */
+    public static synchronized void setInstance(BufferPool pool) {
+        instance = pool;
+    }
+
+    /**
+     * Getter for instance.
+     *
+     * @return the pool used by the page file readers; null if pages are read on demand.
+     */
+    public static synchronized BufferPool getInstance() {
+        return instance;
+    }
+
+    /**
+     * Loads the content of a page into a frame.
+     */
+    public interface PageLoader {
+        /**
+         * @param buffer is the frame, cleared and limited to the page size.
+         * @throws IOException if the page cannot be read.
+         */
+        void load(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * Pins a page, reading it into a frame if it is not cached yet. The frame is not replaced
+     * until it is unpinned.
+     *
+     * @param fileName is the name of the file.
+     * @param pageID   is the ID of the page in the file.
+     * @param pageSize is the number of bytes in the page.
+     * @param loader   reads the page into a frame.
+     * @return the ID of the frame holding the page; -1 if no frame can be spared.
+     * @throws IOException if the page cannot be read.
+     */
+    public int pin(String fileName, int pageID, int pageSize, PageLoader loader) throws IOException {
+        String key = fileName + "#" + pageID;
+        int frame;
+        synchronized (this) {
+            Integer cached = pageTable.get(key);
+            while (cached != null && loading[cached]) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while reading " + fileName);
+                }
+                cached = pageTable.get(key);
+            }
+            if (cached != null) {
+                numOfHits++;
+                pinCounts[cached]++;
+                touch(cached);
+                return cached;
+            }
+
+            frame = chooseFrame();
+            if (frame < 0) {
+                return -1;
+            }
+            numOfMisses++;
+            keys[frame] = key;
+            pageTable.put(key, frame);
+            pinCounts[frame] = 1;
+            loading[frame] = true;
+            touch(frame);
+            if (frames[frame] == null || frames[frame].capacity() < pageSize) {
+                frames[frame] = ByteBuffer.allocate(pageSize);
+            }
+        }
+
+        // Reads the page without holding the lock, while other readers of the page wait for it.
+        ByteBuffer buffer = frames[frame];
+        buffer.clear();
+        buffer.limit(pageSize);
+        try {
+            loader.load(buffer);
+        } catch (IOException e) {
+            synchronized (this) {
+                pageTable.remove(key);
+                loading[frame] = false;
+                unpin(frame);
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            loading[frame] = false;
+            notifyAll();
+        }
+        return frame;
+    }
+
+    /**
+     * @param frame is the ID of a pinned frame.
+     * @return a view of the page held by the frame, positioned at its beginning.
+     */
+    public synchronized ByteBuffer getPage(int frame) {
+        ByteBuffer page = frames[frame].duplicate();
+        page.position(0);
+        return page;
+    }
+
+    /**
+     * Unpins a frame, which may then be replaced once no reader pins it.
+     *
+     * @param frame is the ID of the frame.
+     */
+    public synchronized void unpin(int frame) {
+        pinCounts[frame]--;
+        touch(frame);
+        // Frees the frame if its page has been invalidated, or its frame reserved, while pinned.
+        if (pinCounts[frame] == 0 && (!isCached(frame) || numOfOccupied > frames.length - numOfReserved)) {
+            if (isCached(frame)) {
+                pageTable.remove(keys[frame]);
+            }
+            free(frame);
+        }
+    }
+
+    /**
+     * Drops all cached pages of a file, e.g., when the file is deleted or rewritten. A pinned
+     * page is no longer served to new readers, and its frame is freed once unpinned.
+     *
+     * @param fileName is the name of the file.
+     */
+    public synchronized void invalidate(String fileName) {
+        String prefix = fileName + "#";
+        for (int frame = 0; frame < keys.length; frame++) {
+            if (keys[frame] != null && keys[frame].startsWith(prefix) && isCached(frame)) {
+                pageTable.remove(keys[frame]);
+                if (pinCounts[frame] == 0) {
+                    free(frame);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves frames as the working memory of an operator, dropping cached pages if necessary.
+     * Fewer frames are granted if not enough of them are left.
+     *
+     * @param numOfFrames is the number of frames requested.
+     * @return the number of frames granted, which should be released later.
+     */
+    public synchronized int reserve(int numOfFrames) {
+        int granted = Math.max(Math.min(numOfFrames, frames.length - numOfReserved), 0);
+        numOfReserved += granted;
+        while (numOfOccupied > frames.length - numOfReserved) {
+            int victim = chooseVictim();
+            if (victim < 0) {
+                break;
+            }
+            pageTable.remove(keys[victim]);
+            free(victim);
+        }
+        return granted;
+    }
+
+    /**
+     * Releases frames previously reserved by an operator, which may then cache pages again.
+     *
+     * @param numOfFrames is the number of frames granted by {@link #reserve(int)}.
+     */
+    public synchronized void release(int numOfFrames) {
+        numOfReserved = Math.max(numOfReserved - numOfFrames, 0);
+    }
+
+    /**
+     * Chooses a frame to hold a new page, replacing an unpinned page if no frame is free.
+     *
+     * @return the ID of the frame; -1 if every frame which may cache pages is pinned.
+     */
+    private int chooseFrame() {
+        if (numOfOccupied < frames.length - numOfReserved) {
+            for (int frame = 0; frame < keys.length; frame++) {
+                if (keys[frame] == null) {
+                    numOfOccupied++;
+                    return frame;
+                }
+            }
+        }
+        int victim = chooseVictim();
+        if (victim >= 0) {
+            pageTable.remove(keys[victim]);
+            keys[victim] = null;
+        }
+        return victim;
+    }
+
+    /**
+     * Chooses an unpinned page to be replaced according to the replacement policy.
+     *
+     * @return the ID of the frame holding the page; -1 if all pages are pinned.
+     */
+    private int chooseVictim() {
+        if (policy == CLOCK) {
+            // Each frame is passed at most twice, since its reference bit is cleared the first time.
+            for (int i = 0; i < 2 * keys.length; i++) {
+                int frame = hand;
+                hand = (hand + 1) % keys.length;
+                if (keys[frame] == null || pinCounts[frame] > 0 || loading[frame]) {
+                    continue;
+                }
+                if (!referenced[frame]) {
+                    return frame;
+                }
+                referenced[frame] = false;
+            }
+            return -1;
+        }
+
+        int victim = -1;
+        for (int frame = 0; frame < keys.length; frame++) {
+            if (keys[frame] == null || pinCounts[frame] > 0 || loading[frame]) {
+                continue;
+            }
+            if (victim < 0 || (policy == MRU ? lastUsed[frame] > lastUsed[victim] : lastUsed[frame] < lastUsed[victim])) {
+                victim = frame;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Records that a frame has just been used.
+     *
+     * @param frame is the ID of the frame.
+     */
+    private void touch(int frame) {
+        lastUsed[frame] = ++clock;
+        referenced[frame] = true;
+    }
+
+    /**
+     * @param frame is the ID of the frame.
+     * @return true if the page held by the frame is still served to new readers.
+     */
+    private boolean isCached(int frame) {
+        Integer cached = keys[frame] == null ? null : pageTable.get(keys[frame]);
+        return cached != null && cached == frame;
+    }
+
+    /**
+     * Frees a frame which holds a page no longer cached.
+     *
+     * @param frame is the ID of the frame.
+     */
+    private void free(int frame) {
+        keys[frame] = null;
+        numOfOccupied--;
+    }
+
+    /**
+     * @return the number of pins served from the cache.
+     */
+    public synchronized long getNumOfHits() {
+        return numOfHits;
+    }
+
+    /**
+     * @return the number of pins which read the page from its file.
+     */
+    public synchronized long getNumOfMisses() {
+        return numOfMisses;
+    }
+}
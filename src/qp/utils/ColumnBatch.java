@@ -0,0 +1,535 @@
+package qp.utils;
+
+import java.util.Date;
+import java.util.Vector;
+
+/**
+ * Represents a batch of records stored column by column. Each column is a primitive array:
+ * - INT uses an int[];
+ * - REAL uses a float[];
+ * - TIME uses a long[] of milliseconds;
+ * - STRING uses an int[] of codes from a {@link StringDictionary}.
+ * Operators aware of this layout read the columns directly. For other operators, the batch
+ * still behaves like a normal {@link Batch}, and a tuple is only created when it is accessed
+ * by {@link #elementAt(int)}.
+ */
+public class ColumnBatch extends Batch {
+    // The version of the serialized form.
+    private static final long serialVersionUID = 1L;
+
+    // The data type of each column.
+    private final int[] types;
+    // The values of INT columns, and the codes of STRING columns.
+    private final int[][] intColumns;
+    // The values of REAL columns.
+    private final float[][] floatColumns;
+    // The values of TIME columns.
+    private final long[][] timeColumns;
+    // The dictionaries of STRING columns.
+    private final StringDictionary[] dictionaries;
+
+    // The maximum number of tuples this batch can store.
+    private final int maxSize;
+    // The number of tuples currently being stored.
+    private int numOfTuples = 0;
+    // The tuples which have been created by elementAt, created lazily.
+    private Tuple[] rows;
+
+    /**
+     * Creates a new batch, with a new dictionary for each STRING column.
+     *
+     * @param types       is the data type of each column.
+     * @param numOfTuples is the number of tuples in this batch.
+     */
+    public ColumnBatch(int[] types, int numOfTuples) {
+        this(types, numOfTuples, newDictionaries(types));
+    }
+
+    /**
+     * Creates a new batch.
+     *
+     * @param types        is the data type of each column.
+     * @param numOfTuples  is the number of tuples in this batch.
+     * @param dictionaries is the dictionary of each column, which is only used by STRING columns.
+     */
+    public ColumnBatch(int[] types, int numOfTuples, StringDictionary[] dictionaries) {
+        this.types = types;
+        this.dictionaries = dictionaries;
+        maxSize = numOfTuples;
+        intColumns = new int[types.length][];
+        floatColumns = new float[types.length][];
+        timeColumns = new long[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case Attribute.INT:
+                case Attribute.STRING:
+                    intColumns[i] = new int[numOfTuples];
+                    break;
+                case Attribute.REAL:
+                    floatColumns[i] = new float[numOfTuples];
+                    break;
+                case Attribute.TIME:
+                    timeColumns[i] = new long[numOfTuples];
+                    break;
+                default:
+                    System.err.printf("ColumnBatch: unknown type of column %d\n", i);
+                    System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Creates a new dictionary for each STRING column.
+     *
+     * @param types is the data type of each column.
+     * @return the dictionary of each column; null for the other columns.
+     */
+    public static StringDictionary[] newDictionaries(int[] types) {
+        StringDictionary[] dictionaries = new StringDictionary[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Attribute.STRING) {
+                dictionaries[i] = new StringDictionary();
+            }
+        }
+        return dictionaries;
+    }
+
+    /**
+     * Creates an empty batch with the same columns, sharing the dictionaries with this batch.
+     *
+     * @param numOfTuples is the number of tuples in the new batch.
+     * @return the new batch.
+     */
+    public ColumnBatch emptyCopy(int numOfTuples) {
+        return new ColumnBatch(types, numOfTuples, dictionaries);
+    }
+
+    /**
+     * Projects some columns out of this batch.
+     *
+     * @param indexes     is the index of each column to be projected.
+     * @param numOfTuples is the number of tuples in the new batch, which must not be smaller than the size of this batch.
+     * @return a new batch with the projected columns.
+     */
+    public ColumnBatch project(int[] indexes, int numOfTuples) {
+        int[] newTypes = new int[indexes.length];
+        StringDictionary[] newDictionaries = new StringDictionary[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            newTypes[i] = types[indexes[i]];
+            newDictionaries[i] = dictionaries[indexes[i]];
+        }
+
+        ColumnBatch result = new ColumnBatch(newTypes, numOfTuples, newDictionaries);
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            if (intColumns[index] != null) {
+                System.arraycopy(intColumns[index], 0, result.intColumns[i], 0, size());
+            } else if (floatColumns[index] != null) {
+                System.arraycopy(floatColumns[index], 0, result.floatColumns[i], 0, size());
+            } else {
+                System.arraycopy(timeColumns[index], 0, result.timeColumns[i], 0, size());
+            }
+        }
+        result.numOfTuples = size();
+        return result;
+    }
+
+    /**
+     * @return the number of columns in this batch.
+     */
+    public int getNumCols() {
+        return types.length;
+    }
+
+    /**
+     * Getter for the data type of a column.
+     *
+     * @param index is the index of the column.
+     * @return the data type.
+     */
+    public int getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * Getter for the dictionary of a STRING column.
+     *
+     * @param index is the index of the column.
+     * @return the dictionary of the column.
+     */
+    public StringDictionary getDictionary(int index) {
+        return dictionaries[index];
+    }
+
+    /**
+     * Reads the value of an INT column.
+     *
+     * @param index is the index of the column.
+     * @param i     is the index of the tuple.
+     * @return the value.
+     */
+    public int getInt(int index, int i) {
+        return intColumns[index][i];
+    }
+
+    /**
+     * Reads the value of a REAL column.
+     *
+     * @param index is the index of the column.
+     * @param i     is the index of the tuple.
+     * @return the value.
+     */
+    public float getFloat(int index, int i) {
+        return floatColumns[index][i];
+    }
+
+    /**
+     * Reads the value of a TIME column.
+     *
+     * @param index is the index of the column.
+     * @param i     is the index of the tuple.
+     * @return the value in milliseconds.
+     */
+    public long getTime(int index, int i) {
+        return timeColumns[index][i];
+    }
+
+    /**
+     * Reads the dictionary code of a STRING column.
+     *
+     * @param index is the index of the column.
+     * @param i     is the index of the tuple.
+     * @return the code of the value.
+     */
+    public int getStringCode(int index, int i) {
+        return intColumns[index][i];
+    }
+
+    /**
+     * Reads the value of a STRING column.
+     *
+     * @param index is the index of the column.
+     * @param i     is the index of the tuple.
+     * @return the value.
+     */
+    public String getString(int index, int i) {
+        return dictionaries[index].decode(intColumns[index][i]);
+    }
+
+    /**
+     * Reads the value of a column as an object, like {@link Tuple#dataAt(int)}.
+     *
+     * @param index is the index of the column.
+     * @param i     is the index of the tuple.
+     * @return the value.
+     */
+    public Object getValue(int index, int i) {
+        switch (types[index]) {
+            case Attribute.INT:
+                return intColumns[index][i];
+            case Attribute.REAL:
+                return floatColumns[index][i];
+            case Attribute.TIME:
+                return new Date(timeColumns[index][i]);
+            default:
+                return getString(index, i);
+        }
+    }
+
+    /**
+     * Writes the value of an INT column in the next free row.
+     *
+     * @param index is the index of the column.
+     * @param value is the value.
+     */
+    void setInt(int index, int value) {
+        intColumns[index][numOfTuples] = value;
+    }
+
+    /**
+     * Writes the value of a REAL column in the next free row.
+     *
+     * @param index is the index of the column.
+     * @param value is the value.
+     */
+    void setFloat(int index, float value) {
+        floatColumns[index][numOfTuples] = value;
+    }
+
+    /**
+     * Writes the value of a TIME column in the next free row.
+     *
+     * @param index is the index of the column.
+     * @param value is the value in milliseconds.
+     */
+    void setTime(int index, long value) {
+        timeColumns[index][numOfTuples] = value;
+    }
+
+    /**
+     * Writes the value of a STRING column in the next free row.
+     *
+     * @param index is the index of the column.
+     * @param value is the value.
+     */
+    void setString(int index, String value) {
+        intColumns[index][numOfTuples] = dictionaries[index].encode(value);
+    }
+
+    /**
+     * Completes the next free row after all its columns have been written.
+     */
+    void endRow() {
+        numOfTuples++;
+    }
+
+    /**
+     * Inserts a new tuple in this batch at the next free location.
+     *
+     * @param t is the new tuple to be inserted.
+     */
+    @Override
+    public void add(Tuple t) {
+        for (int i = 0; i < types.length; i++) {
+            Object value = t.dataAt(i);
+            switch (types[i]) {
+                case Attribute.INT:
+                    setInt(i, (Integer) value);
+                    break;
+                case Attribute.REAL:
+                    setFloat(i, (Float) value);
+                    break;
+                case Attribute.TIME:
+                    setTime(i, ((Date) value).getTime());
+                    break;
+                default:
+                    setString(i, (String) value);
+            }
+        }
+        endRow();
+    }
+
+    /**
+     * Inserts the tuple at a given index of another batch in this batch at the next free location.
+     * The values are copied column by column if the other batch is also a columnar batch.
+     *
+     * @param batch is the batch containing the tuple.
+     * @param index is the index of the tuple in that batch.
+     */
+    @Override
+    public void add(Batch batch, int index) {
+        if (!(batch instanceof ColumnBatch)) {
+            add(batch.elementAt(index));
+            return;
+        }
+
+        ColumnBatch other = (ColumnBatch) batch;
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case Attribute.INT:
+                    intColumns[i][numOfTuples] = other.intColumns[i][index];
+                    break;
+                case Attribute.REAL:
+                    floatColumns[i][numOfTuples] = other.floatColumns[i][index];
+                    break;
+                case Attribute.TIME:
+                    timeColumns[i][numOfTuples] = other.timeColumns[i][index];
+                    break;
+                default:
+                    if (dictionaries[i] == other.dictionaries[i]) {
+                        intColumns[i][numOfTuples] = other.intColumns[i][index];
+                    } else {
+                        setString(i, other.getString(i, index));
+                    }
+            }
+        }
+        endRow();
+    }
+
+    /**
+     * @return the maximum number of tuples this batch can store.
+     */
+    @Override
+    public int capacity() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of tuples that are currently being stored in this batch.
+     */
+    @Override
+    public int size() {
+        return numOfTuples;
+    }
+
+    /**
+     * @return true if this batch does not contain any tuple.
+     */
+    @Override
+    public boolean isEmpty() {
+        return numOfTuples == 0;
+    }
+
+    /**
+     * Checks whether this page contains a certain tuple.
+     *
+     * @param t is the tuple to be checked.
+     * @return true if it contains this tuple.
+     */
+    @Override
+    public boolean contains(Tuple t) {
+        for (int i = 0; i < numOfTuples; i++) {
+            if (elementAt(i).equals(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves the element at a certain index in this page. The tuple is created at the first
+     * access, and the same tuple is returned afterwards.
+     *
+     * @param i is the index of this element.
+     * @return the element at the given index.
+     */
+    @Override
+    public Tuple elementAt(int i) {
+        if (i >= numOfTuples) {
+            throw new ArrayIndexOutOfBoundsException(i + " >= " + numOfTuples);
+        }
+        if (rows == null) {
+            rows = new Tuple[maxSize];
+        }
+        if (rows[i] == null) {
+            Vector<Object> data = new Vector<>(types.length);
+            for (int j = 0; j < types.length; j++) {
+                data.add(getValue(j, i));
+            }
+            rows[i] = new Tuple(data);
+        }
+        return rows[i];
+    }
+
+    /**
+     * Removes the tuple at a given index.
+     *
+     * @param i is the index.
+     */
+    @Override
+    public void remove(int i) {
+        if (i >= numOfTuples) {
+            throw new ArrayIndexOutOfBoundsException(i + " >= " + numOfTuples);
+        }
+        int numMoved = numOfTuples - i - 1;
+        for (int j = 0; j < types.length; j++) {
+            if (intColumns[j] != null) {
+                System.arraycopy(intColumns[j], i + 1, intColumns[j], i, numMoved);
+            } else if (floatColumns[j] != null) {
+                System.arraycopy(floatColumns[j], i + 1, floatColumns[j], i, numMoved);
+            } else {
+                System.arraycopy(timeColumns[j], i + 1, timeColumns[j], i, numMoved);
+            }
+        }
+        if (rows != null) {
+            System.arraycopy(rows, i + 1, rows, i, numMoved);
+            rows[numOfTuples - 1] = null;
+        }
+        numOfTuples--;
+    }
+
+    /**
+     * Creates all tuples in this batch.
+     *
+     * @return a vector storing all tuples.
+     */
+    @Override
+    public Vector<Tuple> getTuples() {
+        Vector<Tuple> tuples = new Vector<>(numOfTuples);
+        for (int i = 0; i < numOfTuples; i++) {
+            tuples.add(elementAt(i));
+        }
+        return tuples;
+    }
+
+    /**
+     * Computes the hash code of a column at a given index, without creating the tuple.
+     *
+     * @param i     is the index of the tuple.
+     * @param index is the index of the column.
+     * @return the hash code of the value.
+     */
+    @Override
+    public int hashCodeAt(int i, int index) {
+        switch (types[index]) {
+            case Attribute.INT:
+                return Integer.hashCode(intColumns[index][i]);
+            case Attribute.REAL:
+                return Float.hashCode(floatColumns[index][i]);
+            case Attribute.TIME:
+                return Long.hashCode(timeColumns[index][i]);
+            default:
+                return getString(index, i).hashCode();
+        }
+    }
+
+    /**
+     * Checks whether the join condition is satisfied, comparing the columns directly if the other
+     * batch is also a columnar batch.
+     *
+     * @param i          is the index of the tuple in this batch.
+     * @param right      is the batch containing the other tuple.
+     * @param j          is the index of the other tuple.
+     * @param leftIndex  is the index of the join attribute in this batch.
+     * @param rightIndex is the index of the join attribute in the other batch.
+     * @return true if the join condition is satisfied.
+     */
+    @Override
+    public boolean checkJoin(int i, Batch right, int j, int leftIndex, int rightIndex) {
+        if (!(right instanceof ColumnBatch)) {
+            return getValue(leftIndex, i).equals(right.elementAt(j).dataAt(rightIndex));
+        }
+
+        ColumnBatch other = (ColumnBatch) right;
+        switch (types[leftIndex]) {
+            case Attribute.INT:
+                return intColumns[leftIndex][i] == other.intColumns[rightIndex][j];
+            case Attribute.REAL:
+                return Float.floatToIntBits(floatColumns[leftIndex][i])
+                        == Float.floatToIntBits(other.floatColumns[rightIndex][j]);
+            case Attribute.TIME:
+                return timeColumns[leftIndex][i] == other.timeColumns[rightIndex][j];
+            default:
+                if (dictionaries[leftIndex] == other.dictionaries[rightIndex]) {
+                    return intColumns[leftIndex][i] == other.intColumns[rightIndex][j];
+                }
+                return getString(leftIndex, i).equals(other.getString(rightIndex, j));
+        }
+    }
+
+    /**
+     * Joins a tuple in this batch with a tuple in another batch without duplicate column
+     * elimination, reading the columns directly if the other batch is also a columnar batch.
+     *
+     * @param i     is the index of the tuple in this batch.
+     * @param right is the batch containing the other tuple.
+     * @param j     is the index of the other tuple.
+     * @return the joined tuple.
+     */
+    @Override
+    public Tuple joinWith(int i, Batch right, int j) {
+        if (!(right instanceof ColumnBatch)) {
+            return elementAt(i).joinWith(right.elementAt(j));
+        }
+
+        ColumnBatch other = (ColumnBatch) right;
+        Vector<Object> data = new Vector<>(types.length + other.types.length);
+        for (int index = 0; index < types.length; index++) {
+            data.add(getValue(index, i));
+        }
+        for (int index = 0; index < other.types.length; index++) {
+            data.add(other.getValue(index, j));
+        }
+        return new Tuple(data);
+    }
+}
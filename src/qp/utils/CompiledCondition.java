@@ -0,0 +1,759 @@
+package qp.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Vector;
+
+/**
+ * Represents a select condition compiled against a given schema. The index of the attribute is
+ * resolved and the constant is parsed only once, and a specialized predicate is chosen for the
+ * data type of the attribute. Each predicate evaluates a whole columnar batch with a separate
+ * loop for each operator, so the inner loop neither dispatches on the type nor on the operator.
+ * A {@link CompoundCondition} is compiled into a predicate tree, which only checks the tuples
+ * whose result is still undecided, and reorders its operands by their observed cost and selectivity.
+ */
+public abstract class CompiledCondition {
+    // The index of the attribute in the schema.
+    final int index;
+    // The operator in the condition, such as >, <, =, etc.
+    final int operator;
+
+    /**
+     * Creates a new compiled condition.
+     *
+     * @param index    is the index of the attribute in the schema.
+     * @param operator is the operator in the condition.
+     */
+    CompiledCondition(int index, int operator) {
+        this.index = index;
+        this.operator = operator;
+    }
+
+    /**
+     * Compiles a select condition, whose right side is a constant.
+     *
+     * @param con    is the select condition.
+     * @param schema is the schema of the tuples to be checked.
+     * @return the compiled condition.
+     */
+    public static CompiledCondition compile(Condition con, Schema schema) {
+        if (con instanceof CompoundCondition) {
+            Vector<Condition> operands = ((CompoundCondition) con).getOperands();
+            CompiledCondition[] compiledOperands = new CompiledCondition[operands.size()];
+            for (int i = 0; i < compiledOperands.length; i++) {
+                compiledOperands[i] = compile(operands.elementAt(i), schema);
+            }
+            return new ConnectiveCondition(con.getOperator(), compiledOperands);
+        }
+
+        int index = schema.indexOf(con.getLeft());
+        int operator = con.getOperator();
+        String checkValue = (String) con.getRight();
+        if (operator < Condition.LESS_THAN || operator > Condition.NOTEQUAL) {
+            System.out.println("CompiledCondition: incorrect condition operator");
+        }
+
+        switch (schema.typeOf(index)) {
+            case Attribute.INT:
+                return new IntCondition(index, operator, Integer.parseInt(checkValue));
+            case Attribute.REAL:
+                return new RealCondition(index, operator, Float.parseFloat(checkValue));
+            case Attribute.TIME:
+                return new TimeCondition(index, operator, Long.parseLong(checkValue));
+            default:
+                return new StringCondition(index, operator, checkValue);
+        }
+    }
+
+    /**
+     * Checks whether a tuple satisfies this condition.
+     *
+     * @param tuple is the tuple to be checked.
+     * @return true if the condition is satisfied.
+     */
+    public abstract boolean evaluate(Tuple tuple);
+
+    /**
+     * Checks every tuple in a columnar batch, reading the column directly.
+     *
+     * @param batch     is the batch to be checked.
+     * @param selection is the bitmask to be filled, in which bit i is set if tuple i satisfies the condition.
+     */
+    abstract void evaluateColumns(ColumnBatch batch, BitSet selection);
+
+    /**
+     * Checks the tuple at a given index of a columnar batch, reading the column directly.
+     *
+     * @param batch is the batch containing the tuple.
+     * @param i     is the index of the tuple.
+     * @return true if the condition is satisfied.
+     */
+    abstract boolean evaluate(ColumnBatch batch, int i);
+
+    /**
+     * Checks every tuple in a batch.
+     *
+     * @param batch     is the batch to be checked.
+     * @param selection is the bitmask to be filled, in which bit i is set if tuple i satisfies the condition.
+     */
+    public void evaluate(Batch batch, BitSet selection) {
+        selection.clear();
+        if (batch instanceof ColumnBatch) {
+            evaluateColumns((ColumnBatch) batch, selection);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (evaluate(batch.elementAt(i))) {
+                selection.set(i);
+            }
+        }
+    }
+
+    /**
+     * Checks only the tuples which are currently selected in a batch, and deselects those which do
+     * not satisfy this condition.
+     *
+     * @param batch     is the batch to be checked.
+     * @param selection is the bitmask of the selected tuples.
+     */
+    void refine(Batch batch, BitSet selection) {
+        if (batch instanceof ColumnBatch) {
+            ColumnBatch columns = (ColumnBatch) batch;
+            for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+                if (!evaluate(columns, i)) {
+                    selection.clear(i);
+                }
+            }
+            return;
+        }
+        for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+            if (!evaluate(batch.elementAt(i))) {
+                selection.clear(i);
+            }
+        }
+    }
+
+    /**
+     * Checks whether any tuple whose values lie between two given tuples may satisfy this
+     * condition. This is used to skip the pages summarised by a {@link ZoneMap}.
+     *
+     * @param min is the tuple of the minimum values.
+     * @param max is the tuple of the maximum values.
+     * @return false if no such tuple can satisfy the condition.
+     */
+    public abstract boolean mayMatch(Tuple min, Tuple max);
+
+    /**
+     * Interprets the results of comparing the minimum and the maximum value with the constant.
+     *
+     * @param minFlag is the result of comparing the minimum value with the constant.
+     * @param maxFlag is the result of comparing the maximum value with the constant.
+     * @return false if no value in between can satisfy the condition.
+     */
+    boolean overlaps(int minFlag, int maxFlag) {
+        switch (operator) {
+            case Condition.LESS_THAN:
+                return minFlag < 0;
+            case Condition.GREATER_THAN:
+                return maxFlag > 0;
+            case Condition.LTOE:
+                return minFlag <= 0;
+            case Condition.GTOE:
+                return maxFlag >= 0;
+            case Condition.EQUAL:
+                return minFlag <= 0 && maxFlag >= 0;
+            case Condition.NOTEQUAL:
+                return minFlag != 0 || maxFlag != 0;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Interprets the result of comparing a value with the constant.
+     *
+     * @param flag is the comparison result, which is negative, zero or positive.
+     * @return true if the condition is satisfied.
+     */
+    boolean satisfies(int flag) {
+        switch (operator) {
+            case Condition.LESS_THAN:
+                return flag < 0;
+            case Condition.GREATER_THAN:
+                return flag > 0;
+            case Condition.LTOE:
+                return flag <= 0;
+            case Condition.GTOE:
+                return flag >= 0;
+            case Condition.EQUAL:
+                return flag == 0;
+            case Condition.NOTEQUAL:
+                return flag != 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Compares an INT attribute with a constant.
+     */
+    static class IntCondition extends CompiledCondition {
+        // The constant on the right side.
+        private final int checkVal;
+
+        IntCondition(int index, int operator, int checkVal) {
+            super(index, operator);
+            this.checkVal = checkVal;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple) {
+            return test((Integer) tuple.dataAt(index));
+        }
+
+        @Override
+        boolean evaluate(ColumnBatch batch, int i) {
+            return test(batch.getInt(index, i));
+        }
+
+        @Override
+        public boolean mayMatch(Tuple min, Tuple max) {
+            return overlaps(Integer.compare((Integer) min.dataAt(index), checkVal),
+                    Integer.compare((Integer) max.dataAt(index), checkVal));
+        }
+
+        /**
+         * Checks a single value against the constant.
+         */
+        private boolean test(int srcVal) {
+            switch (operator) {
+                case Condition.LESS_THAN:
+                    return srcVal < checkVal;
+                case Condition.GREATER_THAN:
+                    return srcVal > checkVal;
+                case Condition.LTOE:
+                    return srcVal <= checkVal;
+                case Condition.GTOE:
+                    return srcVal >= checkVal;
+                case Condition.EQUAL:
+                    return srcVal == checkVal;
+                case Condition.NOTEQUAL:
+                    return srcVal != checkVal;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void evaluateColumns(ColumnBatch batch, BitSet selection) {
+            int size = batch.size();
+            switch (operator) {
+                case Condition.LESS_THAN:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getInt(index, i) < checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.GREATER_THAN:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getInt(index, i) > checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.LTOE:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getInt(index, i) <= checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.GTOE:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getInt(index, i) >= checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.EQUAL:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getInt(index, i) == checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.NOTEQUAL:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getInt(index, i) != checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Compares a REAL attribute with a constant.
+     */
+    static class RealCondition extends CompiledCondition {
+        // The constant on the right side.
+        private final float checkVal;
+
+        RealCondition(int index, int operator, float checkVal) {
+            super(index, operator);
+            this.checkVal = checkVal;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple) {
+            return test((Float) tuple.dataAt(index));
+        }
+
+        @Override
+        boolean evaluate(ColumnBatch batch, int i) {
+            return test(batch.getFloat(index, i));
+        }
+
+        @Override
+        public boolean mayMatch(Tuple min, Tuple max) {
+            float minVal = (Float) min.dataAt(index);
+            float maxVal = (Float) max.dataAt(index);
+            // NaN is unordered by the primitive comparison, so such a page is never skipped.
+            if (Float.isNaN(minVal) || Float.isNaN(maxVal) || Float.isNaN(checkVal)) {
+                return true;
+            }
+            return overlaps(compare(minVal), compare(maxVal));
+        }
+
+        /**
+         * Compares a value with the constant in the same way as {@link #test(float)}, i.e., -0.0
+         * is equal to 0.0 unlike {@link Float#compare(float, float)}.
+         */
+        private int compare(float srcVal) {
+            if (srcVal < checkVal) {
+                return -1;
+            }
+            return srcVal > checkVal ? 1 : 0;
+        }
+
+        /**
+         * Checks a single value against the constant.
+         */
+        private boolean test(float srcVal) {
+            switch (operator) {
+                case Condition.LESS_THAN:
+                    return srcVal < checkVal;
+                case Condition.GREATER_THAN:
+                    return srcVal > checkVal;
+                case Condition.LTOE:
+                    return srcVal <= checkVal;
+                case Condition.GTOE:
+                    return srcVal >= checkVal;
+                case Condition.EQUAL:
+                    return srcVal == checkVal;
+                case Condition.NOTEQUAL:
+                    return srcVal != checkVal;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void evaluateColumns(ColumnBatch batch, BitSet selection) {
+            int size = batch.size();
+            switch (operator) {
+                case Condition.LESS_THAN:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getFloat(index, i) < checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.GREATER_THAN:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getFloat(index, i) > checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.LTOE:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getFloat(index, i) <= checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.GTOE:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getFloat(index, i) >= checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.EQUAL:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getFloat(index, i) == checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.NOTEQUAL:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getFloat(index, i) != checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Compares a TIME attribute with a constant in milliseconds.
+     */
+    static class TimeCondition extends CompiledCondition {
+        // The constant on the right side.
+        private final long checkVal;
+
+        TimeCondition(int index, int operator, long checkVal) {
+            super(index, operator);
+            this.checkVal = checkVal;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple) {
+            return satisfies(Long.compare(((Date) tuple.dataAt(index)).getTime(), checkVal));
+        }
+
+        @Override
+        boolean evaluate(ColumnBatch batch, int i) {
+            return satisfies(Long.compare(batch.getTime(index, i), checkVal));
+        }
+
+        @Override
+        public boolean mayMatch(Tuple min, Tuple max) {
+            return overlaps(Long.compare(((Date) min.dataAt(index)).getTime(), checkVal),
+                    Long.compare(((Date) max.dataAt(index)).getTime(), checkVal));
+        }
+
+        @Override
+        void evaluateColumns(ColumnBatch batch, BitSet selection) {
+            int size = batch.size();
+            switch (operator) {
+                case Condition.LESS_THAN:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getTime(index, i) < checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.GREATER_THAN:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getTime(index, i) > checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.LTOE:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getTime(index, i) <= checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.GTOE:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getTime(index, i) >= checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.EQUAL:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getTime(index, i) == checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                case Condition.NOTEQUAL:
+                    for (int i = 0; i < size; i++) {
+                        if (batch.getTime(index, i) != checkVal) {
+                            selection.set(i);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Compares a STRING attribute with a constant. On a columnar batch, the result is computed
+     * once for each distinct string in the dictionary, rather than once for each tuple.
+     */
+    static class StringCondition extends CompiledCondition {
+        // The constant on the right side.
+        private final String checkVal;
+
+        // The dictionary for which the results are cached.
+        private StringDictionary dictionary;
+        // The cached result of each code: 0 if unknown, 1 if satisfied, 2 otherwise.
+        private byte[] results = new byte[0];
+
+        StringCondition(int index, int operator, String checkVal) {
+            super(index, operator);
+            this.checkVal = checkVal;
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple) {
+            return satisfies(((String) tuple.dataAt(index)).compareTo(checkVal));
+        }
+
+        @Override
+        boolean evaluate(ColumnBatch batch, int i) {
+            StringDictionary current = batch.getDictionary(index);
+            if (current != dictionary || results.length < current.size()) {
+                prepare(current);
+            }
+            return test(batch.getStringCode(index, i));
+        }
+
+        @Override
+        public boolean mayMatch(Tuple min, Tuple max) {
+            return overlaps(((String) min.dataAt(index)).compareTo(checkVal),
+                    ((String) max.dataAt(index)).compareTo(checkVal));
+        }
+
+        @Override
+        void evaluateColumns(ColumnBatch batch, BitSet selection) {
+            int size = batch.size();
+            StringDictionary current = batch.getDictionary(index);
+
+            // Equality only needs the code of the constant, which does not exist if no tuple has it.
+            if (operator == Condition.EQUAL || operator == Condition.NOTEQUAL) {
+                int checkCode = current.codeOf(checkVal);
+                boolean isEqual = operator == Condition.EQUAL;
+                for (int i = 0; i < size; i++) {
+                    if ((batch.getStringCode(index, i) == checkCode) == isEqual) {
+                        selection.set(i);
+                    }
+                }
+                return;
+            }
+
+            prepare(current);
+            for (int i = 0; i < size; i++) {
+                if (test(batch.getStringCode(index, i))) {
+                    selection.set(i);
+                }
+            }
+        }
+
+        /**
+         * Prepares the cached results for a dictionary.
+         */
+        private void prepare(StringDictionary current) {
+            if (current != dictionary) {
+                dictionary = current;
+                Arrays.fill(results, (byte) 0);
+            }
+            if (results.length < current.size()) {
+                results = Arrays.copyOf(results, Math.max(current.size(), 2 * results.length));
+            }
+        }
+
+        /**
+         * Checks the string of a given code in the prepared dictionary against the constant.
+         */
+        private boolean test(int code) {
+            if (results[code] == 0) {
+                results[code] = satisfies(dictionary.decode(code).compareTo(checkVal)) ? (byte) 1 : (byte) 2;
+            }
+            return results[code] == 1;
+        }
+    }
+
+    /**
+     * Combines some conditions by AND or OR. The operands are checked one after another, and each
+     * operand only checks the tuples whose result has not been decided by the previous operands.
+     * The time spent and the fraction of tuples passing are recorded for each operand, and the
+     * operands are reordered periodically, such that:
+     * - for AND, the operands that remove the most tuples at the lowest cost go first;
+     * - for OR, the operands that accept the most tuples at the lowest cost go first.
+     */
+    static class ConnectiveCondition extends CompiledCondition {
+        // The number of batches between two reorderings of the operands.
+        private static final int REORDER_INTERVAL = 16;
+
+        // The compiled operands.
+        private final CompiledCondition[] operands;
+        // The order in which the operands are checked.
+        private final int[] order;
+        // The number of tuples checked by each operand.
+        private final long[] numOfChecked;
+        // The number of tuples passing each operand.
+        private final long[] numOfPassed;
+        // The time spent (in nanoseconds) by each operand.
+        private final long[] timeSpent;
+        // The number of batches checked since the last reordering.
+        private int numOfBatches = 0;
+
+        ConnectiveCondition(int operator, CompiledCondition[] operands) {
+            super(-1, operator);
+            this.operands = operands;
+            order = new int[operands.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            numOfChecked = new long[operands.length];
+            numOfPassed = new long[operands.length];
+            timeSpent = new long[operands.length];
+        }
+
+        @Override
+        public boolean evaluate(Tuple tuple) {
+            boolean isAnd = operator == Condition.AND;
+            for (int k : order) {
+                if (operands[k].evaluate(tuple) != isAnd) {
+                    return !isAnd;
+                }
+            }
+            return isAnd;
+        }
+
+        @Override
+        boolean evaluate(ColumnBatch batch, int i) {
+            boolean isAnd = operator == Condition.AND;
+            for (int k : order) {
+                if (operands[k].evaluate(batch, i) != isAnd) {
+                    return !isAnd;
+                }
+            }
+            return isAnd;
+        }
+
+        @Override
+        public boolean mayMatch(Tuple min, Tuple max) {
+            boolean isAnd = operator == Condition.AND;
+            for (CompiledCondition operand : operands) {
+                if (operand.mayMatch(min, max) != isAnd) {
+                    return !isAnd;
+                }
+            }
+            return isAnd;
+        }
+
+        @Override
+        void evaluateColumns(ColumnBatch batch, BitSet selection) {
+            selection.set(0, batch.size());
+            refine(batch, selection);
+        }
+
+        @Override
+        public void evaluate(Batch batch, BitSet selection) {
+            selection.clear();
+            selection.set(0, batch.size());
+            refine(batch, selection);
+        }
+
+        @Override
+        void refine(Batch batch, BitSet selection) {
+            if (operator == Condition.AND) {
+                // Each operand only checks the tuples passing all previous operands.
+                for (int k : order) {
+                    if (selection.isEmpty()) {
+                        break;
+                    }
+                    refine(k, batch, selection);
+                }
+            } else {
+                // Each operand only checks the tuples rejected by all previous operands.
+                BitSet remaining = (BitSet) selection.clone();
+                selection.clear();
+                for (int k : order) {
+                    if (remaining.isEmpty()) {
+                        break;
+                    }
+                    BitSet passed = (BitSet) remaining.clone();
+                    refine(k, batch, passed);
+                    selection.or(passed);
+                    remaining.andNot(passed);
+                }
+            }
+
+            numOfBatches++;
+            if (numOfBatches == REORDER_INTERVAL) {
+                reorder();
+            }
+        }
+
+        /**
+         * Refines a selection by an operand, and records its cost and selectivity.
+         */
+        private void refine(int k, Batch batch, BitSet selection) {
+            int numOfInput = selection.cardinality();
+            long startTime = System.nanoTime();
+            if (numOfInput == batch.size()) {
+                // Uses the faster loop over the whole batch if every tuple is to be checked.
+                operands[k].evaluate(batch, selection);
+            } else {
+                operands[k].refine(batch, selection);
+            }
+            timeSpent[k] += System.nanoTime() - startTime;
+            numOfChecked[k] += numOfInput;
+            numOfPassed[k] += selection.cardinality();
+        }
+
+        /**
+         * Sorts the operands by their rank, and decays the statistics so that the order keeps
+         * adapting to the recent batches.
+         */
+        private void reorder() {
+            double[] ranks = new double[operands.length];
+            for (int k = 0; k < operands.length; k++) {
+                ranks[k] = rankOf(k);
+            }
+
+            // Insertion sort, since there are only a few operands.
+            for (int i = 1; i < order.length; i++) {
+                int current = order[i];
+                int j = i - 1;
+                while (j >= 0 && ranks[order[j]] > ranks[current]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = current;
+            }
+
+            for (int k = 0; k < operands.length; k++) {
+                numOfChecked[k] /= 2;
+                numOfPassed[k] /= 2;
+                timeSpent[k] /= 2;
+            }
+            numOfBatches = 0;
+        }
+
+        /**
+         * Computes the rank of an operand, which is the expected cost to decide the result of a
+         * tuple. An operand without statistics is ranked first, so that it would be measured.
+         */
+        private double rankOf(int k) {
+            if (numOfChecked[k] == 0) {
+                return 0;
+            }
+            double costPerTuple = 1.0 * timeSpent[k] / numOfChecked[k];
+            double passRate = 1.0 * numOfPassed[k] / numOfChecked[k];
+            double decisiveRate = operator == Condition.AND ? 1 - passRate : passRate;
+            return decisiveRate == 0 ? Double.MAX_VALUE : costPerTuple / decisiveRate;
+        }
+    }
+}
\ No newline at end of file
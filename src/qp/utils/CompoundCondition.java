@@ -0,0 +1,122 @@
+package qp.utils;
+
+import java.util.Vector;
+
+/**
+ * Represents a conjunction (AND) or a disjunction (OR) of some other conditions, which forms a
+ * predicate tree together with them. A compound select condition must only refer to attributes
+ * of a single table, so that it can be evaluated by a single {@link qp.operators.Select}.
+ */
+public class CompoundCondition extends Condition {
+    // The conditions combined by this condition.
+    private final Vector<Condition> operands;
+
+    /**
+     * Creates a new compound condition.
+     *
+     * @param operator is either AND or OR.
+     * @param operands is the conditions to be combined.
+     */
+    public CompoundCondition(int operator, Vector<Condition> operands) {
+        super(operator);
+        this.operands = operands;
+
+        // Becomes a join condition if any of its operands is a join condition.
+        setCondType(SELECT);
+        for (Condition operand : operands) {
+            if (operand.getCondType() == JOIN) {
+                setCondType(JOIN);
+            }
+        }
+    }
+
+    /**
+     * Combines some conditions by AND.
+     *
+     * @param conditions is the conditions to be combined.
+     * @return the condition itself if there is only one condition; a conjunction otherwise.
+     */
+    public static Condition and(Vector<Condition> conditions) {
+        if (conditions.size() == 1) {
+            return conditions.elementAt(0);
+        }
+        return new CompoundCondition(AND, new Vector<>(conditions));
+    }
+
+    /**
+     * Combines two conditions by OR. The operands are appended if the left side is already a
+     * disjunction.
+     *
+     * @param left  is the condition on the left side.
+     * @param right is the condition on the right side.
+     * @return the disjunction.
+     */
+    public static Condition or(Condition left, Condition right) {
+        Vector<Condition> operands = new Vector<>();
+        if (left instanceof CompoundCondition && left.getOperator() == OR) {
+            operands.addAll(((CompoundCondition) left).getOperands());
+        } else {
+            operands.add(left);
+        }
+        operands.add(right);
+        return new CompoundCondition(OR, operands);
+    }
+
+    /**
+     * Getter for operands.
+     *
+     * @return the conditions combined by this condition.
+     */
+    public Vector<Condition> getOperands() {
+        return operands;
+    }
+
+    /**
+     * Checks whether all attributes in this condition belong to the same table.
+     *
+     * @return true if only a single table is referred to.
+     */
+    public boolean isSingleTable() {
+        String tableName = getLeft().getTabName();
+        for (Condition operand : operands) {
+            if (operand instanceof CompoundCondition && !((CompoundCondition) operand).isSingleTable()) {
+                return false;
+            }
+            if (!operand.getLeft().getTabName().equals(tableName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Getter for left side.
+     *
+     * @return the attribute on the left side of the first operand.
+     */
+    @Override
+    public Attribute getLeft() {
+        return operands.elementAt(0).getLeft();
+    }
+
+    /**
+     * A compound condition cannot be flipped.
+     */
+    @Override
+    public void flip() {
+    }
+
+    /**
+     * Creates a copy of this condition.
+     *
+     * @return the copy.
+     */
+    @Override
+    public Object clone() {
+        Vector<Condition> newOperands = new Vector<>();
+        for (Condition operand : operands) {
+            newOperands.add((Condition) operand.clone());
+        }
+        return new CompoundCondition(getOperator(), newOperands);
+    }
+}
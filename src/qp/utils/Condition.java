@@ -11,6 +11,9 @@ public class Condition {
     public static final int GTOE = 4;
     public static final int EQUAL = 5;
     public static final int NOTEQUAL = 6;
+    // The operator in a compound condition (see CompoundCondition).
+    public static final int AND = 7;
+    public static final int OR = 8;
 
     // The type of a condition (either select condition or join condition).
     public static final int SELECT = 1;
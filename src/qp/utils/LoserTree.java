@@ -0,0 +1,126 @@
+package qp.utils;
+
+import java.util.Comparator;
+
+/**
+ * Defines a tournament tree of losers, used to merge k sorted sources. Each internal node keeps
+ * the source which lost the match at that node, and the overall winner is kept separately. When
+ * the head of the winning source is replaced, only the matches on the path from its leaf to the
+ * root are replayed, which takes log k comparisons and allocates nothing. If the tuples are
+ * ordered by a {@link SortKey}, the prefix of each head is computed once, so that most matches
+ * only compare two longs.
+ */
+public class LoserTree {
+    // The comparator used to order the tuples.
+    private final Comparator<Tuple> comparator;
+    // The sort key used to order the tuples; null if only the comparator is used.
+    private final SortKey sortKey;
+    // The current head of each source; null if the source is exhausted.
+    private final Tuple[] heads;
+    // The prefix of the current head of each source; null if no sort key is used.
+    private final long[] prefixes;
+    // The loser at each internal node 1 .. k-1, and the overall winner at index 0.
+    private final int[] tree;
+
+    /**
+     * Creates a new loser tree and plays the initial tournament.
+     *
+     * @param heads      is the first tuple of each source, or null if the source is empty.
+     * @param comparator is the comparator used to order the tuples, which may be a {@link SortKey}.
+     */
+    public LoserTree(Tuple[] heads, Comparator<Tuple> comparator) {
+        this.comparator = comparator;
+        sortKey = comparator instanceof SortKey ? (SortKey) comparator : null;
+        this.heads = heads;
+        if (sortKey != null) {
+            prefixes = new long[heads.length];
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null) {
+                    prefixes[i] = sortKey.prefixOf(heads[i]);
+                }
+            }
+        } else {
+            prefixes = null;
+        }
+        tree = new int[Math.max(heads.length, 1)];
+        tree[0] = heads.length == 1 ? 0 : play(1);
+    }
+
+    /**
+     * Plays the matches in the subtree rooted at a given node, with the leaves of the sources
+     * numbered from k to 2k-1.
+     *
+     * @param node is the node.
+     * @return the winner of the subtree.
+     */
+    private int play(int node) {
+        if (node >= heads.length) {
+            return node - heads.length;
+        }
+        int left = play(2 * node);
+        int right = play(2 * node + 1);
+        if (beats(left, right)) {
+            tree[node] = right;
+            return left;
+        }
+        tree[node] = left;
+        return right;
+    }
+
+    /**
+     * Checks whether the head of one source should be output before that of another. An exhausted
+     * source loses to any other, and ties are broken by the source ID so that the merge is stable.
+     *
+     * @param a is the ID of one source.
+     * @param b is the ID of the other source.
+     * @return true if source a wins.
+     */
+    private boolean beats(int a, int b) {
+        if (heads[a] == null) {
+            return false;
+        }
+        if (heads[b] == null) {
+            return true;
+        }
+        int result = prefixes != null
+                ? sortKey.compare(prefixes[a], heads[a], prefixes[b], heads[b])
+                : comparator.compare(heads[a], heads[b]);
+        return result < 0 || result == 0 && a < b;
+    }
+
+    /**
+     * @return the ID of the source with the smallest head; -1 if all sources are exhausted.
+     */
+    public int getWinner() {
+        return heads.length == 0 || heads[tree[0]] == null ? -1 : tree[0];
+    }
+
+    /**
+     * @return the smallest head among all sources; null if all sources are exhausted.
+     */
+    public Tuple getWinnerTuple() {
+        return heads.length == 0 ? null : heads[tree[0]];
+    }
+
+    /**
+     * Replaces the head of the winning source by its next tuple, and replays the matches on the
+     * path from its leaf to the root.
+     *
+     * @param next is the next tuple of the winning source; null if the source is exhausted.
+     */
+    public void replaceWinner(Tuple next) {
+        int winner = tree[0];
+        heads[winner] = next;
+        if (prefixes != null && next != null) {
+            prefixes[winner] = sortKey.prefixOf(next);
+        }
+        for (int node = (winner + heads.length) / 2; node > 0; node /= 2) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+}
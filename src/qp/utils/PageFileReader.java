@@ -0,0 +1,492 @@
+package qp.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * Reads tuples from a page file written by {@link PageFileWriter}. A page file consists of
+ * fixed-size pages:
+ * - page 0 is the header, recording the page size, the width of each tuple, the number of tuples
+ *   and the ID of the first zone map page (0 if there is no zone map);
+ * - the following pages are data pages, filled with as many tuples as possible, each encoded by
+ *   {@link TupleCodec}. Only the last data page may be partially filled;
+ * - the remaining pages, if any, hold the {@link ZoneMap} of the data pages, which is encoded as
+ *   the minimum and the maximum tuple of each data page in turn.
+ * A page filter can be set to skip the data pages which cannot contain any tuple satisfying it,
+ * and a number of pages can be read ahead on a background thread while the current page is decoded.
+ * The reader reads one page at a time, and is independent of the batch size used by the caller.
+ * Pages read on demand are pinned in the {@link BufferPool}, if there is one, while being decoded.
+ * Alternatively, the whole file can be memory-mapped, such that tuples are decoded straight from
+ * the mapped region without copying each page into a separate buffer.
+ */
+public class PageFileReader {
+    // The magic number at the beginning of a page file.
+    static final int MAGIC = 0x50474632;
+    // The number of bytes used in the header page: magic, page size, tuple width, number of tuples,
+    // zone map page and sorted columns.
+    static final int HEADER_SIZE = 6 * Integer.BYTES;
+    // The maximum number of distinct strings in a dictionary before a new one is started.
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    // The name of the file being read.
+    private final String fileName;
+    // The file being read.
+    private final RandomAccessFile file;
+    // The channel used to read pages from the file.
+    private final FileChannel channel;
+    // The codec used to decode the tuples.
+    private final TupleCodec codec;
+
+    // The number of bytes in each page.
+    private final int pageSize;
+    // The maximum number of tuples in each data page.
+    private final int tuplesPerPage;
+    // The number of tuples in the file.
+    private final int numOfTuples;
+    // The ID of the first zone map page; 0 if there is no zone map.
+    private final int zoneMapPage;
+    // The bit set of the columns on which the tuples are in ascending order; 0 if unknown.
+    private final int sortedColumns;
+
+    // Whether the file is memory-mapped.
+    private final boolean mapped;
+    // The buffer holding the current data page, or the whole file if it is memory-mapped.
+    private ByteBuffer page;
+    // The buffer into which a data page is read if it is not held by the buffer pool.
+    private final ByteBuffer privatePage;
+    // The buffer pool caching the pages read on demand; null if they are read into the private page.
+    private final BufferPool pool;
+    // The frame of the buffer pool pinned for the current data page; -1 if none is pinned.
+    private int pinnedFrame = -1;
+    // The ID of the next data page to be read.
+    private int nextPage = 0;
+    // The number of tuples not yet read in the current data page.
+    private int tuplesLeftInPage = 0;
+    // The number of tuples read so far.
+    private int numOfTuplesRead = 0;
+    // The dictionaries shared by the columnar batches read so far.
+    private StringDictionary[] dictionaries;
+
+    // The zone map used to skip data pages; null if no page is skipped.
+    private ZoneMap zoneMap;
+    // The condition which must be possibly satisfied by a data page to be read.
+    private CompiledCondition pageFilter;
+    // The number of data pages skipped so far.
+    private int numOfPagesSkipped = 0;
+
+    // The maximum number of pages to be read ahead; 0 if pages are read on demand.
+    private int readAheadDepth = 0;
+    // The background reader of the data pages; null if it has not been started.
+    private PageReadAhead readAhead;
+
+    /**
+     * Opens an existing page file, which is read one page at a time.
+     *
+     * @param fileName is the name of the page file.
+     * @param schema   is the schema of the tuples in the file.
+     * @throws IOException if the file cannot be read or does not match the schema.
+     */
+    public PageFileReader(String fileName, Schema schema) throws IOException {
+        this(fileName, schema, false);
+    }
+
+    /**
+     * Opens an existing page file.
+     *
+     * @param fileName is the name of the page file.
+     * @param schema   is the schema of the tuples in the file.
+     * @param mapped   is true if the whole file should be memory-mapped.
+     * @throws IOException if the file cannot be read or does not match the schema.
+     */
+    public PageFileReader(String fileName, Schema schema, boolean mapped) throws IOException {
+        this.fileName = fileName;
+        this.mapped = mapped;
+        file = new RandomAccessFile(fileName, "r");
+        channel = file.getChannel();
+        codec = new TupleCodec(schema);
+
+        ByteBuffer header;
+        if (mapped) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                file.close();
+                throw new IOException("cannot map page file " + fileName + " of " + channel.size() + " bytes");
+            }
+            header = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        } else {
+            header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(header, 0);
+        }
+        if (header.getInt() != MAGIC) {
+            file.close();
+            throw new IOException(fileName + " is not a page file");
+        }
+        pageSize = header.getInt();
+        int tupleWidth = header.getInt();
+        numOfTuples = header.getInt();
+        int firstZoneMapPage = header.getInt();
+        sortedColumns = header.getInt();
+        if (tupleWidth != codec.getTupleWidth()) {
+            file.close();
+            throw new IOException(fileName + " does not match the given schema");
+        }
+        tuplesPerPage = pageSize / tupleWidth;
+        zoneMapPage = firstZoneMapPage == getNumOfPages() + 1 ? firstZoneMapPage : 0;
+        privatePage = mapped ? null : ByteBuffer.allocate(pageSize);
+        page = mapped ? header : privatePage;
+        pool = mapped ? null : BufferPool.getInstance();
+        if (mapped && channel.size() < (long) (getNumOfPages() + 1) * pageSize) {
+            file.close();
+            throw new IOException("unexpected end of page file " + fileName);
+        }
+    }
+
+    /**
+     * Reads the page size recorded in the header of a page file.
+     *
+     * @param fileName is the name of the page file.
+     * @return the number of bytes in each page of the file.
+     * @throws IOException if the file cannot be read or is not a page file.
+     */
+    public static int readPageSize(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            if (file.length() < HEADER_SIZE || file.readInt() != MAGIC) {
+                throw new IOException(fileName + " is not a page file");
+            }
+            return file.readInt();
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the next tuple from the file.
+     *
+     * @return the next tuple; null if all tuples have been read.
+     * @throws IOException if the page cannot be read.
+     */
+    public Tuple next() throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        return codec.decode(page);
+    }
+
+    /**
+     * Moves to the position of the next tuple, reading the next data page if necessary.
+     *
+     * @return true if there is a next tuple; false if all tuples have been read.
+     * @throws IOException if the page cannot be read.
+     */
+    private boolean advance() throws IOException {
+        if (numOfTuplesRead == numOfTuples) {
+            return false;
+        }
+        if (tuplesLeftInPage == 0) {
+            skipPages();
+            if (numOfTuplesRead == numOfTuples) {
+                return false;
+            }
+            long position = (long) (nextPage + 1) * pageSize;
+            if (mapped) {
+                page.position((int) position);
+            } else if (readAhead != null || readAheadDepth > 0 && startReadAhead()) {
+                page = readAhead.nextPage();
+            } else {
+                page = readPage(nextPage + 1);
+            }
+            nextPage++;
+            tuplesLeftInPage = Math.min(tuplesPerPage, numOfTuples - numOfTuplesRead);
+        }
+        tuplesLeftInPage--;
+        numOfTuplesRead++;
+        return true;
+    }
+
+    /**
+     * Reads a page on demand, through the buffer pool if possible.
+     *
+     * @param pageID is the ID of the page in the file.
+     * @return the buffer holding the page.
+     * @throws IOException if the page cannot be read.
+     */
+    private ByteBuffer readPage(int pageID) throws IOException {
+        unpinPage();
+        long position = (long) pageID * pageSize;
+        if (pool != null) {
+            pinnedFrame = pool.pin(fileName, pageID, pageSize, buffer -> readFully(buffer, position));
+            if (pinnedFrame >= 0) {
+                return pool.getPage(pinnedFrame);
+            }
+        }
+        privatePage.clear();
+        readFully(privatePage, position);
+        return privatePage;
+    }
+
+    /**
+     * Unpins the frame of the buffer pool holding the current data page, if any.
+     */
+    private void unpinPage() {
+        if (pinnedFrame >= 0) {
+            pool.unpin(pinnedFrame);
+            pinnedFrame = -1;
+        }
+    }
+
+    /**
+     * Skips the following data pages which cannot contain any tuple satisfying the page filter.
+     */
+    private void skipPages() {
+        if (pageFilter == null) {
+            return;
+        }
+        while (numOfTuplesRead < numOfTuples && !zoneMap.mayMatch(nextPage, pageFilter)) {
+            numOfTuplesRead += Math.min(tuplesPerPage, numOfTuples - numOfTuplesRead);
+            nextPage++;
+            numOfPagesSkipped++;
+        }
+    }
+
+    /**
+     * Moves to the beginning of a given data page, so that the next tuple read is the first one
+     * in that page. Any page read ahead in the background is discarded.
+     *
+     * @param pageID is the ID of the data page, counting from 0.
+     */
+    public void seekPage(int pageID) {
+        if (readAhead != null) {
+            readAhead.close();
+            readAhead = null;
+            page = privatePage;
+        }
+        unpinPage();
+        nextPage = pageID;
+        numOfTuplesRead = Math.min(pageID * tuplesPerPage, numOfTuples);
+        tuplesLeftInPage = 0;
+    }
+
+    /**
+     * Reads up to a given number of data pages ahead of the caller on a background thread, which
+     * starts when the first page is needed. This has no effect if the file is memory-mapped.
+     *
+     * @param numOfPages is the maximum number of pages to be read ahead, which occupy a buffer each.
+     */
+    public void setReadAhead(int numOfPages) {
+        if (!mapped && readAhead == null) {
+            readAheadDepth = Math.max(numOfPages, 0);
+        }
+    }
+
+    /**
+     * Starts reading the remaining data pages in the background, leaving out those to be skipped
+     * by the page filter. A single page is not worth a background thread, so it is read on demand.
+     *
+     * @return true if the background reader has been started.
+     */
+    private boolean startReadAhead() {
+        int[] pageIDs = new int[getNumOfPages() - nextPage];
+        int numOfPagesToRead = 0;
+        for (int pageID = nextPage; pageID < getNumOfPages(); pageID++) {
+            if (pageFilter == null || zoneMap.mayMatch(pageID, pageFilter)) {
+                pageIDs[numOfPagesToRead++] = pageID + 1;
+            }
+        }
+        if (numOfPagesToRead <= 1) {
+            readAheadDepth = 0;
+            return false;
+        }
+        readAhead = new PageReadAhead(fileName, channel, pageSize, Arrays.copyOf(pageIDs, numOfPagesToRead), readAheadDepth);
+        return true;
+    }
+
+    /**
+     * Sets a condition to skip the data pages which cannot contain any tuple satisfying it. The
+     * remaining pages are read as usual, so the tuples read must still be checked against the
+     * condition. This has no effect if the file has no zone map.
+     *
+     * @param condition is the compiled condition.
+     * @throws IOException if the zone map cannot be read.
+     */
+    public void setPageFilter(CompiledCondition condition) throws IOException {
+        if (zoneMapPage == 0 || readAhead != null) {
+            return;
+        }
+        if (zoneMap == null) {
+            zoneMap = readZoneMap();
+        }
+        pageFilter = condition;
+    }
+
+    /**
+     * Reads the zone map stored after the data pages.
+     *
+     * @return the zone map.
+     * @throws IOException if the pages cannot be read.
+     */
+    private ZoneMap readZoneMap() throws IOException {
+        ZoneMap result = new ZoneMap();
+        ByteBuffer buffer = mapped ? page.duplicate() : ByteBuffer.allocate(pageSize);
+        int numOfSummaries = 2 * getNumOfPages();
+        Tuple min = null;
+        for (int i = 0; i < numOfSummaries; i++) {
+            // Moves to the next zone map page if the current one has been fully read.
+            if (i % tuplesPerPage == 0) {
+                long position = (long) (zoneMapPage + i / tuplesPerPage) * pageSize;
+                if (mapped) {
+                    if (position + pageSize > buffer.capacity()) {
+                        throw new IOException("unexpected end of page file " + fileName);
+                    }
+                    buffer.position((int) position);
+                } else {
+                    buffer.clear();
+                    readFully(buffer, position);
+                }
+            }
+            Tuple tuple = codec.decode(buffer);
+            if (i % 2 == 0) {
+                min = tuple;
+            } else {
+                result.add(min, tuple);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the next batch of tuples from the file.
+     *
+     * @param batchSize is the maximum number of tuples in the batch.
+     * @return the next batch, which is full unless the end of file is reached; null if all tuples have been read or skipped.
+     * @throws IOException if the pages cannot be read.
+     */
+    public Batch nextBatch(int batchSize) throws IOException {
+        if (numOfTuplesRead == numOfTuples) {
+            return null;
+        }
+        Batch batch = new Batch(batchSize);
+        while (!batch.isFull()) {
+            Tuple tuple = next();
+            if (tuple == null) {
+                break;
+            }
+            batch.add(tuple);
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * Reads the next batch of tuples from the file into a columnar batch, decoding the values
+     * straight into the columns. The batches read from the same file share their dictionaries,
+     * until a dictionary grows too large.
+     *
+     * @param batchSize is the maximum number of tuples in the batch.
+     * @return the next batch, which is full unless the end of file is reached; null if all tuples have been read or skipped.
+     * @throws IOException if the pages cannot be read.
+     */
+    public ColumnBatch nextColumnBatch(int batchSize) throws IOException {
+        if (numOfTuplesRead == numOfTuples) {
+            return null;
+        }
+        if (dictionaries == null || isDictionaryFull()) {
+            dictionaries = ColumnBatch.newDictionaries(codec.getTypes());
+        }
+        ColumnBatch batch = new ColumnBatch(codec.getTypes(), batchSize, dictionaries);
+        while (!batch.isFull() && advance()) {
+            codec.decode(page, batch);
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * @return true if any dictionary shared by the columnar batches has grown too large.
+     */
+    private boolean isDictionaryFull() {
+        for (StringDictionary dictionary : dictionaries) {
+            if (dictionary != null && dictionary.size() > MAX_DICTIONARY_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fills a buffer with the content of the file starting from a given position.
+     *
+     * @param buffer   is the buffer to be filled.
+     * @param position is the position in the file.
+     * @throws IOException if the end of file is reached before the buffer is filled.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int numOfBytes = channel.read(buffer, position + buffer.position());
+            if (numOfBytes < 0) {
+                throw new IOException("unexpected end of page file " + fileName);
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @return the number of bytes in each page.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return the number of tuples in the file.
+     */
+    public int getNumOfTuples() {
+        return numOfTuples;
+    }
+
+    /**
+     * @return the number of data pages in the file.
+     */
+    public int getNumOfPages() {
+        return (numOfTuples + tuplesPerPage - 1) / tuplesPerPage;
+    }
+
+    /**
+     * Checks whether the tuples in the file are known to be in ascending order of a column, which
+     * is recorded for the files written with a zone map.
+     *
+     * @param index is the index of the column.
+     * @return true if the file is sorted on the column.
+     */
+    public boolean isSortedOn(int index) {
+        return index >= 0 && index < Integer.SIZE && (sortedColumns & (1 << index)) != 0;
+    }
+
+    /**
+     * @return the number of data pages skipped by the page filter so far.
+     */
+    public int getNumOfPagesSkipped() {
+        return numOfPagesSkipped;
+    }
+
+    /**
+     * @return the name of the page file.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException {
+        if (readAhead != null) {
+            readAhead.close();
+        }
+        unpinPage();
+        file.close();
+    }
+}
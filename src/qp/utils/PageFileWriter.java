@@ -0,0 +1,224 @@
+package qp.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes tuples into a page file, which can be read by {@link PageFileReader}. Tuples are
+ * collected in a single page buffer, and the buffer is written to the file whenever it is full.
+ * The header page is written when the file is closed. Optionally, a {@link ZoneMap} of the data
+ * pages is collected and written after the last data page, and the columns on which the tuples
+ * are in ascending order are recorded in the header.
+ */
+public class PageFileWriter {
+    // The file being written.
+    private final RandomAccessFile file;
+    // The channel used to write pages into the file.
+    private final FileChannel channel;
+    // The codec used to encode the tuples.
+    private final TupleCodec codec;
+
+    // The number of bytes in each page.
+    private final int pageSize;
+    // The maximum number of tuples in each data page.
+    private final int tuplesPerPage;
+
+    // The buffer holding the current data page.
+    private final ByteBuffer page;
+    // The number of tuples in the current data page.
+    private int tuplesInPage = 0;
+    // The number of data pages written so far.
+    private int numOfPages = 0;
+    // The number of tuples written so far.
+    private int numOfTuples = 0;
+    // The zone map of the data pages written so far; null if it is not collected.
+    private final ZoneMap zoneMap;
+
+    /**
+     * Creates a new page file, overwriting the existing one if any.
+     *
+     * @param fileName is the name of the page file.
+     * @param schema   is the schema of the tuples to be written.
+     * @param pageSize is the number of bytes in each page.
+     * @throws IOException if the file cannot be created, or the page size is too small.
+     */
+    public PageFileWriter(String fileName, Schema schema, int pageSize) throws IOException {
+        this(fileName, schema, pageSize, false);
+    }
+
+    /**
+     * Creates a new page file, overwriting the existing one if any.
+     *
+     * @param fileName   is the name of the page file.
+     * @param schema     is the schema of the tuples to be written.
+     * @param pageSize   is the number of bytes in each page.
+     * @param zoneMapped is true if a zone map of the data pages should be written.
+     * @throws IOException if the file cannot be created, or the page size is too small.
+     */
+    public PageFileWriter(String fileName, Schema schema, int pageSize, boolean zoneMapped) throws IOException {
+        codec = new TupleCodec(schema);
+        if (pageSize < PageFileReader.HEADER_SIZE || pageSize < codec.getTupleWidth()) {
+            throw new IOException("page size " + pageSize + " is too small for " + fileName);
+        }
+        this.pageSize = pageSize;
+        tuplesPerPage = pageSize / codec.getTupleWidth();
+
+        // Any page of the existing file cached in the buffer pool becomes stale.
+        BufferPool pool = BufferPool.getInstance();
+        if (pool != null) {
+            pool.invalidate(fileName);
+        }
+        file = new RandomAccessFile(fileName, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        page = ByteBuffer.allocate(pageSize);
+        zoneMap = zoneMapped ? new ZoneMap() : null;
+    }
+
+    /**
+     * Appends a tuple to the file.
+     *
+     * @param tuple is the tuple to be written.
+     * @throws IOException if the page cannot be written.
+     */
+    public void write(Tuple tuple) throws IOException {
+        if (zoneMap != null) {
+            zoneMap.include(numOfPages, tuple);
+        }
+        codec.encode(tuple, page);
+        endTuple();
+    }
+
+    /**
+     * Appends the tuple at a given index of a batch to the file. The tuple is encoded straight
+     * from the columns if the batch is a columnar batch.
+     *
+     * @param batch is the batch containing the tuple.
+     * @param index is the index of the tuple.
+     * @throws IOException if the page cannot be written.
+     */
+    public void write(Batch batch, int index) throws IOException {
+        if (batch instanceof ColumnBatch && zoneMap == null) {
+            codec.encode((ColumnBatch) batch, index, page);
+            endTuple();
+        } else {
+            write(batch.elementAt(index));
+        }
+    }
+
+    /**
+     * Appends all tuples in a batch to the file.
+     *
+     * @param batch is the batch to be written.
+     * @throws IOException if the pages cannot be written.
+     */
+    public void write(Batch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            write(batch, i);
+        }
+    }
+
+    /**
+     * Counts the tuple which has just been encoded, and flushes the page if it is full.
+     *
+     * @throws IOException if the page cannot be written.
+     */
+    private void endTuple() throws IOException {
+        tuplesInPage++;
+        numOfTuples++;
+        if (tuplesInPage == tuplesPerPage) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the current data page to the file. The whole page is written even if it is not full.
+     *
+     * @throws IOException if the page cannot be written.
+     */
+    private void flush() throws IOException {
+        writeFully(page, (long) (numOfPages + 1) * pageSize);
+        numOfPages++;
+        tuplesInPage = 0;
+    }
+
+    /**
+     * Writes the whole content of a buffer into the file, and clears the buffer afterwards.
+     *
+     * @param buffer   is the buffer to be written.
+     * @param position is the position in the file.
+     * @throws IOException if the buffer cannot be written.
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the last partially filled data page, the zone map and the header, and closes the file.
+     *
+     * @throws IOException if the pages cannot be written.
+     */
+    public void close() throws IOException {
+        if (tuplesInPage > 0) {
+            flush();
+        }
+
+        // The zone map is written as the minimum and the maximum tuple of each data page in turn.
+        int zoneMapPage = 0;
+        if (zoneMap != null && numOfPages > 0) {
+            zoneMapPage = numOfPages + 1;
+            int numOfZonePages = 0;
+            for (int i = 0; i < numOfPages; i++) {
+                for (Tuple tuple : new Tuple[] {zoneMap.getMinimum(i), zoneMap.getMaximum(i)}) {
+                    codec.encode(tuple, page);
+                    tuplesInPage++;
+                    if (tuplesInPage == tuplesPerPage) {
+                        writeFully(page, (long) (zoneMapPage + numOfZonePages) * pageSize);
+                        numOfZonePages++;
+                        tuplesInPage = 0;
+                    }
+                }
+            }
+            if (tuplesInPage > 0) {
+                writeFully(page, (long) (zoneMapPage + numOfZonePages) * pageSize);
+                tuplesInPage = 0;
+            }
+        }
+
+        page.putInt(PageFileReader.MAGIC);
+        page.putInt(pageSize);
+        page.putInt(codec.getTupleWidth());
+        page.putInt(numOfTuples);
+        page.putInt(zoneMapPage);
+        page.putInt(zoneMap == null ? 0 : zoneMap.getSortedColumns());
+        writeFully(page, 0);
+        file.close();
+    }
+
+    /**
+     * @return the number of data pages written so far, including the partially filled one.
+     */
+    public int getNumOfPages() {
+        return tuplesInPage > 0 ? numOfPages + 1 : numOfPages;
+    }
+
+    /**
+     * @return the maximum number of tuples in each data page.
+     */
+    public int getTuplesPerPage() {
+        return tuplesPerPage;
+    }
+
+    /**
+     * @return the number of tuples written so far.
+     */
+    public int getNumOfTuples() {
+        return numOfTuples;
+    }
+}
@@ -0,0 +1,134 @@
+package qp.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a given sequence of pages from a file on a background thread, so that the disk reads
+ * overlap with the processing of the pages already read. At most a fixed number of pages are
+ * read ahead of the consumer, and their buffers are recycled once the consumer moves on. The
+ * thread is stopped by a flag rather than an interrupt, since interrupting a read in progress
+ * would close the channel shared with the consumer.
+ */
+class PageReadAhead implements Runnable {
+    // The buffer passed to the consumer if the background thread fails.
+    private static final ByteBuffer FAILED = ByteBuffer.allocate(0);
+
+    // The name of the file being read.
+    private final String fileName;
+    // The channel used to read pages from the file.
+    private final FileChannel channel;
+    // The number of bytes in each page.
+    private final int pageSize;
+    // The IDs of the pages to be read, in order.
+    private final int[] pageIDs;
+
+    // The buffers available to the background thread.
+    private final BlockingQueue<ByteBuffer> freePages;
+    // The pages which have been read but not yet taken by the consumer.
+    private final BlockingQueue<ByteBuffer> filledPages;
+    // The page currently held by the consumer.
+    private ByteBuffer current;
+    // The background thread.
+    private final Thread thread;
+    // The exception encountered by the background thread.
+    private volatile IOException error;
+    // Whether the consumer has closed the file.
+    private volatile boolean closed = false;
+
+    /**
+     * Starts reading pages in the background.
+     *
+     * @param fileName is the name of the file, used in error messages.
+     * @param channel  is the channel used to read pages from the file.
+     * @param pageSize is the number of bytes in each page.
+     * @param pageIDs  is the IDs of the pages to be read, in order.
+     * @param depth    is the maximum number of pages read ahead of the consumer.
+     */
+    PageReadAhead(String fileName, FileChannel channel, int pageSize, int[] pageIDs, int depth) {
+        this.fileName = fileName;
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.pageIDs = pageIDs;
+
+        // One more buffer is needed for the page held by the consumer.
+        freePages = new ArrayBlockingQueue<>(depth + 1);
+        filledPages = new ArrayBlockingQueue<>(depth + 1);
+        for (int i = 0; i <= depth; i++) {
+            freePages.add(ByteBuffer.allocate(pageSize));
+        }
+
+        thread = new Thread(this, "read-ahead-" + fileName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads the pages one after another, waiting whenever no free buffer is left.
+     */
+    @Override
+    public void run() {
+        try {
+            for (int pageID : pageIDs) {
+                ByteBuffer buffer = freePages.take();
+                if (closed) {
+                    return;
+                }
+                buffer.clear();
+                long position = (long) pageID * pageSize;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("unexpected end of page file " + fileName);
+                    }
+                }
+                buffer.flip();
+                filledPages.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            // The thread is not expected to be interrupted, and simply stops.
+        } catch (IOException e) {
+            error = e;
+            filledPages.offer(FAILED);
+        }
+    }
+
+    /**
+     * Takes the next page, and releases the buffer of the previous page for reuse.
+     *
+     * @return the buffer holding the next page.
+     * @throws IOException if the page cannot be read.
+     */
+    ByteBuffer nextPage() throws IOException {
+        if (current != null) {
+            freePages.add(current);
+            current = null;
+        }
+        try {
+            current = filledPages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading " + fileName);
+        }
+        if (current == FAILED) {
+            throw error;
+        }
+        return current;
+    }
+
+    /**
+     * Stops the background thread, waiting for the read in progress (if any) to finish.
+     */
+    void close() {
+        closed = true;
+        // Wakes up the thread if it is waiting for a free buffer.
+        freePages.offer(ByteBuffer.allocate(0));
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
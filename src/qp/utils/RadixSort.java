@@ -0,0 +1,84 @@
+package qp.utils;
+
+import java.util.Arrays;
+
+/**
+ * Sorts tuples by the normalized prefixes of their sort keys (see {@link SortKey}) using a least
+ * significant digit radix sort, one byte per pass. A pass is skipped if all prefixes share the
+ * same byte, so an INT key only takes the passes over its own 4 bytes. Since the radix sort is
+ * stable, the tuples with equal prefixes are then sorted by their full keys only if the prefix
+ * does not hold the whole key.
+ */
+public class RadixSort {
+    // The number of bits in each digit.
+    private static final int DIGIT_BITS = Byte.SIZE;
+    // The number of distinct digits.
+    private static final int NUM_OF_DIGITS = 1 << DIGIT_BITS;
+
+    /**
+     * Checks whether a sort key is worth a radix sort, i.e., its leading attribute is an INT or a
+     * TIME, which is fully held in the prefix.
+     *
+     * @param sortKey is the sort key.
+     * @return true if the radix sort should be used.
+     */
+    public static boolean isApplicable(SortKey sortKey) {
+        int type = sortKey.getLeadingType();
+        return type == Attribute.INT || type == Attribute.TIME;
+    }
+
+    /**
+     * Sorts the tuples in the range [from, to) of an array by their sort keys.
+     *
+     * @param tuples  is the array of tuples, each with the prefix of its sort key.
+     * @param from    is the start of the range (inclusive).
+     * @param to      is the end of the range (exclusive).
+     * @param sortKey is the sort key.
+     */
+    public static void sort(TupleInRun[] tuples, int from, int to, SortKey sortKey) {
+        int size = to - from;
+        TupleInRun[] source = Arrays.copyOfRange(tuples, from, to);
+        TupleInRun[] target = new TupleInRun[size];
+        int[] counts = new int[NUM_OF_DIGITS];
+
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            // Counts the tuples with each digit, and skips the pass if they all have the same digit.
+            Arrays.fill(counts, 0);
+            for (TupleInRun tuple : source) {
+                counts[(int) (tuple.prefix >>> shift) & (NUM_OF_DIGITS - 1)]++;
+            }
+            if (counts[(int) (source[0].prefix >>> shift) & (NUM_OF_DIGITS - 1)] == size) {
+                continue;
+            }
+
+            // Computes the starting position of each digit, and distributes the tuples stably.
+            int position = 0;
+            for (int digit = 0; digit < NUM_OF_DIGITS; digit++) {
+                int count = counts[digit];
+                counts[digit] = position;
+                position += count;
+            }
+            for (TupleInRun tuple : source) {
+                target[counts[(int) (tuple.prefix >>> shift) & (NUM_OF_DIGITS - 1)]++] = tuple;
+            }
+            TupleInRun[] temp = source;
+            source = target;
+            target = temp;
+        }
+        System.arraycopy(source, 0, tuples, from, size);
+
+        // Breaks the ties between equal prefixes by the full keys.
+        if (sortKey.isExact()) {
+            return;
+        }
+        int start = from;
+        for (int i = from + 1; i <= to; i++) {
+            if (i == to || tuples[i].prefix != tuples[start].prefix) {
+                if (i - start > 1) {
+                    Arrays.sort(tuples, start, i, (o1, o2) -> sortKey.compare(o1.tuple, o2.tuple));
+                }
+                start = i;
+            }
+        }
+    }
+}
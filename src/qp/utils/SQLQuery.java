@@ -64,6 +64,19 @@ public class SQLQuery {
 
         for (int i = 0; i < tempVector.size(); i++) {
             Condition cn = (Condition) tempVector.elementAt(i);
+
+            // A compound condition is evaluated by a single select operator on a single table.
+            if (cn instanceof CompoundCondition) {
+                if (cn.getCondType() == Condition.JOIN) {
+                    System.err.println("SQLQuery: join condition cannot be combined by OR");
+                    System.exit(1);
+                }
+                if (!((CompoundCondition) cn).isSingleTable()) {
+                    System.err.println("SQLQuery: conditions combined by OR must refer to the same table");
+                    System.exit(1);
+                }
+            }
+
             if (cn.getCondType() == Condition.SELECT) {
                 selectionList.add(cn);
             } else {
@@ -121,10 +134,10 @@ public class SQLQuery {
             groupBySet.add(attr);
         }
 
-        // Checks whether each attribute in projectList is also in groupByList.
+        // Checks whether each attribute in projectList is either aggregated or also in groupByList.
         for (int i = 0; i < projectList.size(); i++) {
             Attribute attr = (Attribute) projectList.elementAt(i);
-            if (!groupBySet.contains(attr)) {
+            if (!attr.isAggregate() && !groupBySet.contains(attr)) {
                 System.err.printf("SQLQuery: attribute %s presented in project list, but not in groupBy list\n", attr.getColName());
                 System.exit(1);
             }
@@ -177,4 +190,27 @@ public class SQLQuery {
     public boolean isGroupby() {
         return groupByList != null && !groupByList.isEmpty();
     }
+
+    /**
+     * Gets the aggregates in the project list, e.g., SUM(CART.amount).
+     *
+     * @return the aggregated attributes, in the order of the project list.
+     */
+    public Vector<Attribute> getAggregates() {
+        Vector<Attribute> aggregates = new Vector<>();
+        for (int i = 0; i < projectList.size(); i++) {
+            Attribute attr = (Attribute) projectList.elementAt(i);
+            if (attr.isAggregate() && !aggregates.contains(attr)) {
+                aggregates.add(attr);
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * @return whether any aggregate is present in the project list.
+     */
+    public boolean hasAggregates() {
+        return !getAggregates().isEmpty();
+    }
 }
@@ -0,0 +1,163 @@
+package qp.utils;
+
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * Orders tuples by some sort attributes, and normalizes the leading attributes of each tuple into
+ * an order-preserving 64-bit prefix. Comparing two prefixes as unsigned longs gives the order of
+ * the two tuples unless the prefixes are equal, in which case the full key must be compared. The
+ * attributes are encoded one after another, until either 64 bits are used or a string is encoded:
+ * - INT and REAL take 32 bits each, and TIME takes 64 bits, with the sign bits flipped (and the
+ *   other bits as well for negative REAL values) so that they order as unsigned numbers;
+ * - STRING takes 16 bits for each of its leading characters, padded with zeros, and ends the
+ *   prefix since a string has a variable length.
+ * If all attributes fit in the prefix without a string, equal prefixes imply equal keys.
+ */
+public class SortKey implements Comparator<Tuple> {
+    // The number of bits in a prefix.
+    private static final int PREFIX_BITS = Long.SIZE;
+
+    // The indexes of the sort attributes.
+    private final int[] indexes;
+    // The types of the sort attributes.
+    private final int[] types;
+    // Whether the prefix holds the whole key.
+    private final boolean isExact;
+
+    /**
+     * Creates a new sort key.
+     *
+     * @param schema  is the schema of the tuples.
+     * @param indexes is the indexes of the sort attributes, in the order of their priorities.
+     */
+    public SortKey(Schema schema, int[] indexes) {
+        this.indexes = indexes;
+        types = new int[indexes.length];
+        int numOfBits = 0;
+        boolean hasString = false;
+        for (int i = 0; i < indexes.length; i++) {
+            types[i] = schema.typeOf(indexes[i]);
+            if (types[i] == Attribute.STRING) {
+                hasString = true;
+            }
+            numOfBits += types[i] == Attribute.TIME ? Long.SIZE : Integer.SIZE;
+        }
+        isExact = !hasString && numOfBits <= PREFIX_BITS;
+    }
+
+    /**
+     * @return true if the prefix holds the whole key, so that equal prefixes imply equal keys.
+     */
+    public boolean isExact() {
+        return isExact;
+    }
+
+    /**
+     * @return the type of the leading sort attribute; -1 if there is no sort attribute.
+     */
+    public int getLeadingType() {
+        return types.length == 0 ? -1 : types[0];
+    }
+
+    /**
+     * Computes the normalized prefix of a tuple.
+     *
+     * @param tuple is the tuple.
+     * @return the prefix, which should be compared as an unsigned long.
+     */
+    public long prefixOf(Tuple tuple) {
+        long prefix = 0;
+        int bitsLeft = PREFIX_BITS;
+        for (int i = 0; i < indexes.length && bitsLeft > 0; i++) {
+            Object value = tuple.dataAt(indexes[i]);
+            switch (types[i]) {
+                case Attribute.INT:
+                    prefix |= place(((Integer) value ^ Integer.MIN_VALUE) & 0xffffffffL, Integer.SIZE, bitsLeft);
+                    bitsLeft -= Integer.SIZE;
+                    break;
+                case Attribute.REAL:
+                    int bits = Float.floatToIntBits((Float) value);
+                    bits ^= (bits >> (Integer.SIZE - 1)) | Integer.MIN_VALUE;
+                    prefix |= place(bits & 0xffffffffL, Integer.SIZE, bitsLeft);
+                    bitsLeft -= Integer.SIZE;
+                    break;
+                case Attribute.TIME:
+                    prefix |= place(((Date) value).getTime() ^ Long.MIN_VALUE, Long.SIZE, bitsLeft);
+                    bitsLeft -= Long.SIZE;
+                    break;
+                default:
+                    String string = (String) value;
+                    for (int j = 0; j < string.length() && bitsLeft > 0; j++) {
+                        prefix |= place(string.charAt(j), Character.SIZE, bitsLeft);
+                        bitsLeft -= Character.SIZE;
+                    }
+                    bitsLeft = 0;
+            }
+        }
+        return prefix;
+    }
+
+    /**
+     * Places the bits of an encoded attribute right after the bits already used in a prefix,
+     * truncating the lowest bits which do not fit.
+     *
+     * @param bits     is the encoded attribute, in the lowest bits.
+     * @param width    is the number of bits of the encoded attribute.
+     * @param bitsLeft is the number of bits not yet used in the prefix.
+     * @return the bits to be added to the prefix.
+     */
+    private static long place(long bits, int width, int bitsLeft) {
+        return width <= bitsLeft ? bits << (bitsLeft - width) : bits >>> (width - bitsLeft);
+    }
+
+    /**
+     * Compares two tuples by their prefixes first, and by their full keys only on a tie.
+     *
+     * @param prefix1 is the prefix of the first tuple.
+     * @param tuple1  is the first tuple.
+     * @param prefix2 is the prefix of the second tuple.
+     * @param tuple2  is the second tuple.
+     * @return an integer indicating the comparison result.
+     */
+    public int compare(long prefix1, Tuple tuple1, long prefix2, Tuple tuple2) {
+        int result = Long.compareUnsigned(prefix1, prefix2);
+        if (result != 0 || isExact) {
+            return result;
+        }
+        return compare(tuple1, tuple2);
+    }
+
+    /**
+     * Compares two tuples by their full keys.
+     *
+     * @param tuple1 is the first tuple.
+     * @param tuple2 is the second tuple.
+     * @return an integer indicating the comparison result.
+     */
+    @Override
+    public int compare(Tuple tuple1, Tuple tuple2) {
+        for (int i = 0; i < indexes.length; i++) {
+            Object value1 = tuple1.dataAt(indexes[i]);
+            Object value2 = tuple2.dataAt(indexes[i]);
+            int result;
+            switch (types[i]) {
+                case Attribute.INT:
+                    result = Integer.compare((Integer) value1, (Integer) value2);
+                    break;
+                case Attribute.REAL:
+                    result = Float.compare((Float) value1, (Float) value2);
+                    break;
+                case Attribute.TIME:
+                    result = ((Date) value1).compareTo((Date) value2);
+                    break;
+                default:
+                    result = ((String) value1).compareTo((String) value2);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,118 @@
+package qp.utils;
+
+import java.io.File;
+import java.util.HashMap;
+
+/**
+ * Manages the temporary files spilled by the operators. New files are striped over the
+ * configured directories in a round-robin manner, so that the spill traffic is spread across
+ * their devices. The number of bytes spilled is tracked for each owner (i.e., an operator) when
+ * its files are released, and any file not yet released is deleted when the program exits.
+ */
+public class SpillManager {
+    // The directories over which the spill files are striped.
+    private static File[] directories = {new File(".")};
+    // The index of the directory in which the next spill file is allocated.
+    private static int nextDirectory = 0;
+    // The path of each live spill file, by its name.
+    private static final HashMap<String, String> paths = new HashMap<>();
+    // The owner of each live spill file, by its path.
+    private static final HashMap<String, String> owners = new HashMap<>();
+    // The number of bytes spilled by each owner, counted when its files are released.
+    private static final HashMap<String, Long> bytesSpilled = new HashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SpillManager::releaseAll, "spill-cleanup"));
+    }
+
+    /**
+     * Sets the directories over which the spill files are striped. A directory is created if it
+     * does not exist yet.
+     *
+     * @param dirNames is the names of the directories.
+     */
+    public static synchronized void setDirectories(String... dirNames) {
+        if (dirNames.length == 0) {
+            System.err.println("SpillManager: at least one spill directory is required");
+            System.exit(1);
+        }
+        File[] newDirectories = new File[dirNames.length];
+        for (int i = 0; i < dirNames.length; i++) {
+            newDirectories[i] = new File(dirNames[i]);
+            if (!newDirectories[i].isDirectory() && !newDirectories[i].mkdirs()) {
+                System.err.printf("SpillManager: cannot create spill directory %s\n", dirNames[i]);
+                System.exit(1);
+            }
+        }
+        directories = newDirectories;
+        nextDirectory = 0;
+    }
+
+    /**
+     * Provides the path of a spill file. A new file is allocated in the next directory if the
+     * name is not yet in use, and the same path is returned for the name until it is released.
+     *
+     * @param owner is the name of the operator which spills the file.
+     * @param name  is the name of the file, which should be unique among all operators.
+     * @return the path of the file.
+     */
+    public static synchronized String getPath(String owner, String name) {
+        String path = paths.get(name);
+        if (path == null) {
+            path = new File(directories[nextDirectory], name).getPath();
+            nextDirectory = (nextDirectory + 1) % directories.length;
+            paths.put(name, path);
+            owners.put(path, owner);
+        }
+        return path;
+    }
+
+    /**
+     * Releases a spill file, counting its size towards its owner and deleting it. Releasing a
+     * file which is not live has no effect.
+     *
+     * @param path is the path of the file.
+     */
+    public static synchronized void release(String path) {
+        String owner = owners.remove(path);
+        if (owner == null) {
+            return;
+        }
+        paths.values().remove(path);
+        File file = new File(path);
+        bytesSpilled.merge(owner, file.length(), Long::sum);
+        file.delete();
+        BufferPool pool = BufferPool.getInstance();
+        if (pool != null) {
+            pool.invalidate(path);
+        }
+    }
+
+    /**
+     * Releases all live spill files.
+     */
+    private static synchronized void releaseAll() {
+        for (String path : owners.keySet().toArray(new String[0])) {
+            release(path);
+        }
+    }
+
+    /**
+     * @param owner is the name of the operator.
+     * @return the number of bytes in the files released by the operator.
+     */
+    public static synchronized long getBytesSpilled(String owner) {
+        return bytesSpilled.getOrDefault(owner, 0L);
+    }
+
+    /**
+     * @return the number of bytes in the files released by all operators.
+     */
+    public static synchronized long getTotalBytesSpilled() {
+        long total = 0;
+        for (long bytes : bytesSpilled.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,64 @@
+package qp.utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Maps each distinct string to a dense integer code, so that a string column can be stored
+ * as an array of codes. Two strings encoded by the same dictionary are equal if and only if
+ * their codes are equal.
+ */
+public class StringDictionary implements Serializable {
+    // The version of the serialized form.
+    private static final long serialVersionUID = 1L;
+
+    // The code of each distinct string.
+    private final HashMap<String, Integer> codes = new HashMap<>();
+    // The distinct strings, indexed by their codes.
+    private final ArrayList<String> values = new ArrayList<>();
+
+    /**
+     * Finds the code of a string, and assigns a new code if the string has not been seen before.
+     *
+     * @param value is the string.
+     * @return the code of the string.
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Finds the code of a string without assigning a new code.
+     *
+     * @param value is the string.
+     * @return the code of the string; -1 if the string has not been seen before.
+     */
+    public int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Finds the string of a given code.
+     *
+     * @param code is the code.
+     * @return the string of the code.
+     */
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * @return the number of distinct strings in this dictionary.
+     */
+    public int size() {
+        return values.size();
+    }
+}
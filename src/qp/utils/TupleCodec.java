@@ -0,0 +1,230 @@
+package qp.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Vector;
+
+/**
+ * Encodes tuples of a given {@link Schema} into a fixed-width binary format, and decodes them back.
+ * The width of each attribute is driven by its data type and {@link Attribute#getAttrSize()}:
+ * - INT & REAL use 4 bytes;
+ * - TIME uses 8 bytes if its attribute size allows, otherwise 4 bytes;
+ * - STRING uses exactly its attribute size, i.e., a 2-byte length followed by its UTF-8 bytes.
+ */
+public class TupleCodec {
+    // The number of bytes used for the length of a string.
+    private static final int STRING_LENGTH_BYTES = 2;
+
+    // The attributes of the schema.
+    private final Attribute[] attributes;
+    // The data type of each attribute.
+    private final int[] types;
+    // The number of bytes used by each tuple.
+    private final int tupleWidth;
+
+    /**
+     * Creates a new codec for a given schema.
+     *
+     * @param schema is the schema of the tuples.
+     */
+    public TupleCodec(Schema schema) {
+        attributes = new Attribute[schema.getNumCols()];
+        types = new int[schema.getNumCols()];
+        int width = 0;
+        for (int i = 0; i < schema.getNumCols(); i++) {
+            attributes[i] = schema.getAttribute(i);
+            types[i] = attributes[i].getType();
+            width += widthOf(attributes[i]);
+        }
+        tupleWidth = width;
+    }
+
+    /**
+     * @return the number of bytes used by each encoded tuple.
+     */
+    public int getTupleWidth() {
+        return tupleWidth;
+    }
+
+    /**
+     * Writes a tuple at the current position of a buffer.
+     *
+     * @param tuple  is the tuple to be encoded.
+     * @param buffer is the buffer to write into.
+     */
+    public void encode(Tuple tuple, ByteBuffer buffer) {
+        for (int i = 0; i < attributes.length; i++) {
+            encodeValue(attributes[i], tuple.dataAt(i), buffer);
+        }
+    }
+
+    /**
+     * Reads a tuple from the current position of a buffer.
+     *
+     * @param buffer is the buffer to read from.
+     * @return the decoded tuple.
+     */
+    public Tuple decode(ByteBuffer buffer) {
+        Vector<Object> data = new Vector<>(attributes.length);
+        for (Attribute attribute : attributes) {
+            data.add(decodeValue(attribute, buffer));
+        }
+        return new Tuple(data);
+    }
+
+    /**
+     * Writes the tuple at a given index of a columnar batch at the current position of a buffer,
+     * reading the values straight from the columns.
+     *
+     * @param batch  is the batch containing the tuple.
+     * @param index  is the index of the tuple.
+     * @param buffer is the buffer to write into.
+     */
+    public void encode(ColumnBatch batch, int index, ByteBuffer buffer) {
+        for (int i = 0; i < attributes.length; i++) {
+            switch (attributes[i].getType()) {
+                case Attribute.INT:
+                    buffer.putInt(batch.getInt(i, index));
+                    break;
+                case Attribute.REAL:
+                    buffer.putFloat(batch.getFloat(i, index));
+                    break;
+                case Attribute.TIME:
+                    if (widthOf(attributes[i]) == 8) {
+                        buffer.putLong(batch.getTime(i, index));
+                    } else {
+                        buffer.putInt((int) batch.getTime(i, index));
+                    }
+                    break;
+                default:
+                    encodeValue(attributes[i], batch.getString(i, index), buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a tuple from the current position of a buffer, and appends it to a columnar batch
+     * without creating the tuple.
+     *
+     * @param buffer is the buffer to read from.
+     * @param batch  is the batch to append to.
+     */
+    public void decode(ByteBuffer buffer, ColumnBatch batch) {
+        for (int i = 0; i < attributes.length; i++) {
+            switch (attributes[i].getType()) {
+                case Attribute.INT:
+                    batch.setInt(i, buffer.getInt());
+                    break;
+                case Attribute.REAL:
+                    batch.setFloat(i, buffer.getFloat());
+                    break;
+                case Attribute.TIME:
+                    batch.setTime(i, widthOf(attributes[i]) == 8 ? buffer.getLong() : buffer.getInt());
+                    break;
+                default:
+                    batch.setString(i, (String) decodeValue(attributes[i], buffer));
+            }
+        }
+        batch.endRow();
+    }
+
+    /**
+     * @return the data type of each attribute.
+     */
+    public int[] getTypes() {
+        return types;
+    }
+
+    /**
+     * Calculates the number of bytes used by an attribute.
+     *
+     * @param attribute is the attribute.
+     * @return the width (in bytes) of the attribute.
+     */
+    public static int widthOf(Attribute attribute) {
+        switch (attribute.getType()) {
+            case Attribute.INT:
+            case Attribute.REAL:
+                return 4;
+            case Attribute.TIME:
+                return attribute.getAttrSize() >= 8 ? 8 : 4;
+            case Attribute.STRING:
+                return Math.max(attribute.getAttrSize(), STRING_LENGTH_BYTES);
+            default:
+                System.err.printf("TupleCodec: unknown type of attribute %s\n", attribute.getColName());
+                System.exit(1);
+                return 0;
+        }
+    }
+
+    /**
+     * Writes a single value at the current position of a buffer.
+     *
+     * @param attribute is the attribute which the value belongs to.
+     * @param value     is the value to be encoded.
+     * @param buffer    is the buffer to write into.
+     */
+    public static void encodeValue(Attribute attribute, Object value, ByteBuffer buffer) {
+        switch (attribute.getType()) {
+            case Attribute.INT:
+                buffer.putInt((Integer) value);
+                break;
+            case Attribute.REAL:
+                buffer.putFloat((Float) value);
+                break;
+            case Attribute.TIME:
+                long millis = ((Date) value).getTime();
+                if (widthOf(attribute) == 8) {
+                    buffer.putLong(millis);
+                } else {
+                    buffer.putInt((int) millis);
+                }
+                break;
+            case Attribute.STRING:
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                int width = widthOf(attribute);
+                if (bytes.length > width - STRING_LENGTH_BYTES) {
+                    System.err.printf("TupleCodec: string %s is too long for attribute %s\n", value, attribute.getColName());
+                    System.exit(1);
+                }
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+                // Pads the remaining bytes so that every value has the same width.
+                buffer.position(buffer.position() + width - STRING_LENGTH_BYTES - bytes.length);
+                break;
+            default:
+                System.err.printf("TupleCodec: unknown type of attribute %s\n", attribute.getColName());
+                System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a single value from the current position of a buffer.
+     *
+     * @param attribute is the attribute which the value belongs to.
+     * @param buffer    is the buffer to read from.
+     * @return the decoded value.
+     */
+    public static Object decodeValue(Attribute attribute, ByteBuffer buffer) {
+        switch (attribute.getType()) {
+            case Attribute.INT:
+                return buffer.getInt();
+            case Attribute.REAL:
+                return buffer.getFloat();
+            case Attribute.TIME:
+                long millis = widthOf(attribute) == 8 ? buffer.getLong() : buffer.getInt();
+                return new Date(millis);
+            case Attribute.STRING:
+                int width = widthOf(attribute);
+                byte[] bytes = new byte[buffer.getShort()];
+                buffer.get(bytes);
+                buffer.position(buffer.position() + width - STRING_LENGTH_BYTES - bytes.length);
+                return new String(bytes, StandardCharsets.UTF_8);
+            default:
+                System.err.printf("TupleCodec: unknown type of attribute %s\n", attribute.getColName());
+                System.exit(1);
+                return null;
+        }
+    }
+}
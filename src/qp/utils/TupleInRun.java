@@ -11,6 +11,8 @@ public class TupleInRun {
     public final int runID;
     // The ID of the tuple in its sorted run.
     public final int tupleID;
+    // The normalized prefix of the sort key of the tuple (see {@link SortKey}).
+    public final long prefix;
 
     /**
      * Creates a new {@link TupleInRun} object.
@@ -20,8 +22,21 @@ public class TupleInRun {
      * @param tupleID is the ID of the tuple.
      */
     public TupleInRun(Tuple tuple, int runID, int tupleID) {
+        this(tuple, runID, tupleID, 0);
+    }
+
+    /**
+     * Creates a new {@link TupleInRun} object with the prefix of its sort key.
+     *
+     * @param tuple is the tuple.
+     * @param runID is the ID of the sorted run.
+     * @param tupleID is the ID of the tuple.
+     * @param prefix is the normalized prefix of the sort key of the tuple.
+     */
+    public TupleInRun(Tuple tuple, int runID, int tupleID, long prefix) {
         this.tuple = tuple;
         this.runID = runID;
         this.tupleID = tupleID;
+        this.prefix = prefix;
     }
 }
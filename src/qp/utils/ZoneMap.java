@@ -0,0 +1,128 @@
+package qp.utils;
+
+import java.util.Vector;
+
+/**
+ * Summarises the data pages of a page file by the minimum and the maximum value of each column
+ * in each page. The summaries are kept as tuples of the same schema as the file, so a page can
+ * be skipped if a condition cannot be satisfied by any value between them.
+ */
+public class ZoneMap {
+    // The tuple of the minimum values of each page.
+    private final Vector<Tuple> minimums = new Vector<>();
+    // The tuple of the maximum values of each page.
+    private final Vector<Tuple> maximums = new Vector<>();
+    // The minimum values of the last page, which is still being summarised.
+    private Vector<Object> lastMinimum;
+    // The maximum values of the last page, which is still being summarised.
+    private Vector<Object> lastMaximum;
+    // The last tuple included; null if none.
+    private Tuple lastTuple = null;
+    // The bit set of the columns on which the tuples included so far are in ascending order.
+    private int sortedColumns = -1;
+
+    /**
+     * Widens the summary of a page to include a tuple. A new page is started if the page has
+     * not been summarised before.
+     *
+     * @param pageID is the ID of the data page, which is either the last page or the next one.
+     * @param tuple  is the tuple written into the page.
+     */
+    void include(int pageID, Tuple tuple) {
+        // Only the first 32 columns are tracked for their order.
+        if (lastTuple == null) {
+            int numOfCols = tuple.getData().size();
+            sortedColumns = numOfCols >= Integer.SIZE ? -1 : (1 << numOfCols) - 1;
+        }
+        for (int i = 0; i < Math.min(tuple.getData().size(), Integer.SIZE); i++) {
+            if ((sortedColumns & (1 << i)) != 0 && lastTuple != null && Tuple.compareTuples(lastTuple, tuple, i) > 0) {
+                sortedColumns &= ~(1 << i);
+            }
+        }
+        lastTuple = tuple;
+
+        if (pageID == minimums.size()) {
+            lastMinimum = copyOf(tuple);
+            lastMaximum = copyOf(tuple);
+            minimums.add(new Tuple(lastMinimum));
+            maximums.add(new Tuple(lastMaximum));
+            return;
+        }
+
+        Tuple min = minimums.elementAt(pageID);
+        Tuple max = maximums.elementAt(pageID);
+        for (int i = 0; i < tuple.getData().size(); i++) {
+            if (Tuple.compareTuples(tuple, min, i) < 0) {
+                lastMinimum.set(i, tuple.dataAt(i));
+            } else if (Tuple.compareTuples(tuple, max, i) > 0) {
+                lastMaximum.set(i, tuple.dataAt(i));
+            }
+        }
+    }
+
+    /**
+     * Copies the values of a tuple, which then bound the page as it grows.
+     *
+     * @param tuple is the tuple to be copied.
+     * @return the values of the tuple.
+     */
+    private static Vector<Object> copyOf(Tuple tuple) {
+        Vector<Object> values = new Vector<>();
+        for (int i = 0; i < tuple.getData().size(); i++) {
+            values.add(tuple.dataAt(i));
+        }
+        return values;
+    }
+
+    /**
+     * Adds the summary of the next page.
+     *
+     * @param min is the tuple of the minimum values in the page.
+     * @param max is the tuple of the maximum values in the page.
+     */
+    void add(Tuple min, Tuple max) {
+        minimums.add(min);
+        maximums.add(max);
+    }
+
+    /**
+     * @return the bit set of the columns on which the tuples included are in ascending order.
+     */
+    int getSortedColumns() {
+        return sortedColumns;
+    }
+
+    /**
+     * @return the number of pages summarised.
+     */
+    public int getNumOfPages() {
+        return minimums.size();
+    }
+
+    /**
+     * @param pageID is the ID of the data page.
+     * @return the tuple of the minimum values in the page.
+     */
+    public Tuple getMinimum(int pageID) {
+        return minimums.elementAt(pageID);
+    }
+
+    /**
+     * @param pageID is the ID of the data page.
+     * @return the tuple of the maximum values in the page.
+     */
+    public Tuple getMaximum(int pageID) {
+        return maximums.elementAt(pageID);
+    }
+
+    /**
+     * Checks whether a page may contain a tuple satisfying a condition.
+     *
+     * @param pageID    is the ID of the data page.
+     * @param condition is the compiled condition.
+     * @return false if no tuple in the page can satisfy the condition.
+     */
+    public boolean mayMatch(int pageID, CompiledCondition condition) {
+        return condition.mayMatch(minimums.elementAt(pageID), maximums.elementAt(pageID));
+    }
+}
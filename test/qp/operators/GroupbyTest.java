@@ -0,0 +1,143 @@
+package qp.operators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import qp.utils.Attribute;
+import qp.utils.Batch;
+import qp.utils.Schema;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+public class GroupbyTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Attribute group = new Attribute("T", "g", Attribute.INT, 0, 4);
+    private final Attribute value = new Attribute("T", "v", Attribute.INT, 0, 4);
+    private final Attribute real = new Attribute("T", "r", Attribute.REAL, 0, 4);
+
+    @Before
+    public void setUp() throws IOException {
+        Batch.setPageSize(64);
+        SpillManager.setDirectories(folder.newFolder().getPath());
+    }
+
+    @Test
+    public void sortAndHashAgreeOnOverflowingSums() {
+        Random random = new Random(3223);
+        List<Tuple> tuples = new ArrayList<>();
+        Map<Integer, Long> sums = new HashMap<>();
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            int key = random.nextInt(40);
+            int v = Integer.MAX_VALUE - random.nextInt(1000);
+            tuples.add(tuple(key, v, 0.5f));
+            sums.merge(key, (long) v, Long::sum);
+            counts.merge(key, 1, Integer::sum);
+        }
+
+        Map<Integer, Tuple> sorted = byGroup(run(makeGroupby(tuples, true), false));
+        Map<Integer, Tuple> hashed = byGroup(run(makeGroupby(tuples, true), true));
+        assertEquals(sums.size(), sorted.size());
+        assertEquals(sums.size(), hashed.size());
+        for (int key : sums.keySet()) {
+            for (Map<Integer, Tuple> result : Arrays.asList(sorted, hashed)) {
+                Tuple tuple = result.get(key);
+                assertEquals((int) (long) sums.get(key), tuple.dataAt(1));
+                assertEquals((float) (1.0 * sums.get(key) / counts.get(key)), (Float) tuple.dataAt(2), 0);
+                assertEquals(counts.get(key), tuple.dataAt(3));
+                assertEquals(0.5f * counts.get(key), (Float) tuple.dataAt(4), 0);
+            }
+        }
+    }
+
+    @Test
+    public void emptyInputWithoutGroupbyGivesOneRow() {
+        for (boolean hashed : new boolean[]{false, true}) {
+            List<Tuple> result = run(makeGroupby(new ArrayList<>(), false), hashed);
+            assertEquals(1, result.size());
+            Tuple tuple = result.get(0);
+            assertNull(tuple.dataAt(0));
+            assertNull(tuple.dataAt(1));
+            assertEquals(0, tuple.dataAt(2));
+            assertNull(tuple.dataAt(3));
+        }
+    }
+
+    private Groupby makeGroupby(List<Tuple> tuples, boolean grouped) {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(group);
+        attributes.add(value);
+        attributes.add(real);
+        Schema schema = new Schema(attributes);
+        schema.setTupleSize(12);
+
+        Vector<Attribute> groupbyList = new Vector<>();
+        if (grouped) {
+            groupbyList.add(group);
+        }
+        Vector<Attribute> aggregates = new Vector<>();
+        aggregates.add(aggregate(value, Attribute.SUM));
+        aggregates.add(aggregate(value, Attribute.AVG));
+        aggregates.add(aggregate(value, Attribute.COUNT));
+        aggregates.add(aggregate(real, Attribute.SUM));
+
+        Groupby groupby = new Groupby(new TupleSource(schema, tuples), groupbyList, aggregates);
+        groupby.setSchema(groupby.computeSchema(schema));
+        groupby.setNumOfBuffer(3);
+        return groupby;
+    }
+
+    private Attribute aggregate(Attribute attribute, int aggType) {
+        Attribute aggregate = (Attribute) attribute.clone();
+        aggregate.setAggType(aggType);
+        return aggregate;
+    }
+
+    private List<Tuple> run(Groupby groupby, boolean hashed) {
+        Operator operator = groupby;
+        if (hashed) {
+            HashGroupby hashGroupby = new HashGroupby(groupby);
+            hashGroupby.setNumOfGroupPages(10);
+            operator = hashGroupby;
+        }
+        List<Tuple> result = new ArrayList<>();
+        operator.open();
+        for (Batch batch = operator.next(); batch != null; batch = operator.next()) {
+            result.addAll(batch.getTuples());
+        }
+        operator.close();
+        return result;
+    }
+
+    private Map<Integer, Tuple> byGroup(List<Tuple> tuples) {
+        Map<Integer, Tuple> result = new HashMap<>();
+        for (Tuple tuple : tuples) {
+            result.put((Integer) tuple.dataAt(0), tuple);
+        }
+        return result;
+    }
+
+    private Tuple tuple(int key, int v, float r) {
+        Vector<Object> data = new Vector<>();
+        data.add(key);
+        data.add(v);
+        data.add(r);
+        return new Tuple(data);
+    }
+}
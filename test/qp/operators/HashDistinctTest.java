@@ -0,0 +1,106 @@
+package qp.operators;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import qp.utils.Attribute;
+import qp.utils.Batch;
+import qp.utils.Schema;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+public class HashDistinctTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Attribute first = new Attribute("T", "a", Attribute.INT, 0, 4);
+    private final Attribute second = new Attribute("T", "b", Attribute.INT, 0, 4);
+    private final Attribute id = new Attribute("T", "x", Attribute.INT, 0, 4);
+
+    @Before
+    public void setUp() throws IOException {
+        Batch.setPageSize(64);
+        SpillManager.setDirectories(folder.newFolder().getPath());
+    }
+
+    @Test
+    public void spilledPartitionsMatchSortedDistinct() {
+        // With 64-byte pages, the 1000 distinct keys take 200 pages, far more than the buffers.
+        List<Tuple> tuples = randomTuples(new Random(3223), 4000, 50, 20);
+        List<String> expected = run(makeDistinct(tuples, 3));
+        assertEquals(1000, expected.size());
+
+        // The estimates are far too small, right and far too large.
+        for (int numOfDistinctPages : new int[]{1, 200, 5000}) {
+            for (int numOfBuffer : new int[]{3, 4, 10}) {
+                HashDistinct distinct = new HashDistinct(makeDistinct(tuples, numOfBuffer));
+                distinct.setNumOfDistinctPages(numOfDistinctPages);
+                assertEquals(numOfDistinctPages + " pages, " + numOfBuffer + " buffers", expected, run(distinct));
+            }
+        }
+    }
+
+    @Test
+    public void singleKeyBeyondRepartitioning() {
+        // Every tuple has the same key, so it stays in the table however small the estimate is.
+        List<Tuple> tuples = randomTuples(new Random(3223), 500, 1, 1);
+        HashDistinct distinct = new HashDistinct(makeDistinct(tuples, 3));
+        distinct.setNumOfDistinctPages(1);
+        assertEquals(run(makeDistinct(tuples, 3)), run(distinct));
+    }
+
+    private Distinct makeDistinct(List<Tuple> tuples, int numOfBuffer) {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(first);
+        attributes.add(second);
+        attributes.add(id);
+        Schema schema = new Schema(attributes);
+        schema.setTupleSize(12);
+
+        Vector<Attribute> projectList = new Vector<>();
+        projectList.add(first);
+        projectList.add(second);
+        Distinct distinct = new Distinct(new TupleSource(schema, tuples), projectList);
+        distinct.setSchema(schema);
+        distinct.setNumOfBuffer(numOfBuffer);
+        return distinct;
+    }
+
+    private List<Tuple> randomTuples(Random random, int numOfTuples, int numOfFirstKeys, int numOfSecondKeys) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < numOfTuples; i++) {
+            Vector<Object> data = new Vector<>();
+            data.add(i % numOfFirstKeys);
+            data.add(i / numOfFirstKeys % numOfSecondKeys);
+            data.add(i);
+            tuples.add(new Tuple(data));
+        }
+        // Each key occurs several times, scattered over the input.
+        Collections.shuffle(tuples, random);
+        return tuples;
+    }
+
+    private List<String> run(Distinct distinct) {
+        List<String> result = new ArrayList<>();
+        distinct.open();
+        for (Batch batch = distinct.next(); batch != null; batch = distinct.next()) {
+            for (Tuple tuple : batch.getTuples()) {
+                result.add(tuple.dataAt(0) + "-" + tuple.dataAt(1));
+            }
+        }
+        distinct.close();
+        Collections.sort(result);
+        return result;
+    }
+}
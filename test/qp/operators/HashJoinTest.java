@@ -0,0 +1,128 @@
+package qp.operators;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import qp.utils.Attribute;
+import qp.utils.Batch;
+import qp.utils.Condition;
+import qp.utils.Schema;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+public class HashJoinTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Attribute leftKey = new Attribute("L", "a", Attribute.INT, 0, 4);
+    private final Attribute leftId = new Attribute("L", "x", Attribute.INT, 0, 4);
+    private final Attribute rightKey = new Attribute("R", "b", Attribute.INT, 0, 4);
+    private final Attribute rightId = new Attribute("R", "y", Attribute.INT, 0, 4);
+
+    @Before
+    public void setUp() throws IOException {
+        Batch.setPageSize(64);
+        SpillManager.setDirectories(folder.newFolder().getPath());
+    }
+
+    @Test
+    public void spilledPartitionsMatchNestedLoops() {
+        Random random = new Random(3223);
+        List<Tuple> leftTuples = randomTuples(random, 2000, 300);
+        List<Tuple> rightTuples = randomTuples(random, 1500, 300);
+        List<String> expected = nestedLoops(leftTuples, rightTuples);
+
+        // With 64-byte pages, the left input has 250 pages, far more than the buffers.
+        for (int numOfBuffer : new int[]{3, 5, 20}) {
+            assertEquals("grace, " + numOfBuffer + " buffers", expected,
+                    run(new HashJoin(makeJoin(leftTuples, rightTuples, numOfBuffer))));
+            HybridHashJoin hybrid = new HybridHashJoin(makeJoin(leftTuples, rightTuples, numOfBuffer));
+            hybrid.setNumOfLeftPages(250);
+            assertEquals("hybrid, " + numOfBuffer + " buffers", expected, run(hybrid));
+        }
+    }
+
+    @Test
+    public void skewedKeyBeyondRepartitioning() {
+        // Every tuple has the same key, so re-partitioning never shrinks the partition.
+        Random random = new Random(3223);
+        List<Tuple> leftTuples = randomTuples(random, 300, 1);
+        List<Tuple> rightTuples = randomTuples(random, 40, 1);
+        List<String> expected = nestedLoops(leftTuples, rightTuples);
+        assertEquals(12000, expected.size());
+
+        assertEquals(expected, run(new HashJoin(makeJoin(leftTuples, rightTuples, 3))));
+        HybridHashJoin hybrid = new HybridHashJoin(makeJoin(leftTuples, rightTuples, 3));
+        hybrid.setNumOfLeftPages(38);
+        assertEquals(expected, run(hybrid));
+    }
+
+    private Join makeJoin(List<Tuple> leftTuples, List<Tuple> rightTuples, int numOfBuffer) {
+        Schema leftSchema = schema(leftKey, leftId);
+        Schema rightSchema = schema(rightKey, rightId);
+        Join join = new Join(new TupleSource(leftSchema, leftTuples), new TupleSource(rightSchema, rightTuples),
+                new Condition(leftKey, Condition.EQUAL, rightKey), OpType.JOIN);
+        join.setSchema(leftSchema.joinWith(rightSchema));
+        join.setJoinType(JoinType.HASH_JOIN);
+        join.setNumOfBuffer(numOfBuffer);
+        return join;
+    }
+
+    private Schema schema(Attribute key, Attribute id) {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(key);
+        attributes.add(id);
+        Schema schema = new Schema(attributes);
+        schema.setTupleSize(8);
+        return schema;
+    }
+
+    private List<Tuple> randomTuples(Random random, int numOfTuples, int numOfKeys) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < numOfTuples; i++) {
+            Vector<Object> data = new Vector<>();
+            data.add(random.nextInt(numOfKeys));
+            data.add(i);
+            tuples.add(new Tuple(data));
+        }
+        return tuples;
+    }
+
+    private List<String> nestedLoops(List<Tuple> leftTuples, List<Tuple> rightTuples) {
+        List<String> result = new ArrayList<>();
+        for (Tuple leftTuple : leftTuples) {
+            for (Tuple rightTuple : rightTuples) {
+                if (leftTuple.dataAt(0).equals(rightTuple.dataAt(0))) {
+                    result.add(leftTuple.dataAt(1) + "-" + rightTuple.dataAt(1));
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private List<String> run(Join join) {
+        List<String> result = new ArrayList<>();
+        join.open();
+        for (Batch batch = join.next(); batch != null; batch = join.next()) {
+            for (Tuple tuple : batch.getTuples()) {
+                assertEquals(tuple.dataAt(0), tuple.dataAt(2));
+                result.add(tuple.dataAt(1) + "-" + tuple.dataAt(3));
+            }
+        }
+        join.close();
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,154 @@
+package qp.operators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import qp.utils.Attribute;
+import qp.utils.Batch;
+import qp.utils.Schema;
+import qp.utils.SpillManager;
+import qp.utils.Tuple;
+
+public class SortTest {
+    // The numbers of buffers, from many runs merged in several passes to a few runs merged at once.
+    private static final int[] NUM_OF_BUFFERS = {3, 4, 5, 10, 50, 200};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Attribute key = new Attribute("T", "k", Attribute.INT, 0, 4);
+    private final Attribute value = new Attribute("T", "v", Attribute.INT, 0, 4);
+
+    @Before
+    public void setUp() throws IOException {
+        Batch.setPageSize(64);
+        SpillManager.setDirectories(folder.newFolder().getPath());
+    }
+
+    @After
+    public void tearDown() {
+        Sort.setParallelism(1);
+    }
+
+    @Test
+    public void parallelMergeMatchesSequentialMerge() {
+        // Few distinct keys, such that many splitters coincide and equal keys span the key ranges.
+        for (int numOfKeys : new int[]{1, 3, 40, 100000}) {
+            List<Tuple> tuples = randomTuples(new Random(numOfKeys), 3000, numOfKeys);
+            for (int numOfBuffers : NUM_OF_BUFFERS) {
+                Sort.setParallelism(1);
+                List<Tuple> sequential = run(makeSort(tuples, numOfBuffers, false));
+                Sort.setParallelism(4);
+                List<Tuple> parallel = run(makeSort(tuples, numOfBuffers, false));
+
+                String message = numOfKeys + " keys, " + numOfBuffers + " buffers";
+                assertEquals(message, tuples.size(), parallel.size());
+                assertSorted(message, parallel);
+                assertEquals(message, keysOf(sequential), keysOf(parallel));
+                assertEquals(message, valuesOf(tuples), valuesOf(parallel));
+            }
+        }
+    }
+
+    @Test
+    public void parallelMergeCombinesEqualKeys() {
+        List<Tuple> tuples = randomTuples(new Random(3223), 3000, 40);
+        Map<Integer, Integer> sums = new HashMap<>();
+        for (Tuple tuple : tuples) {
+            sums.merge((Integer) tuple.dataAt(0), (Integer) tuple.dataAt(1), Integer::sum);
+        }
+
+        for (int numOfThreads : new int[]{1, 4}) {
+            Sort.setParallelism(numOfThreads);
+            for (int numOfBuffers : NUM_OF_BUFFERS) {
+                String message = numOfThreads + " threads, " + numOfBuffers + " buffers";
+                List<Tuple> result = run(makeSort(tuples, numOfBuffers, true));
+                assertEquals(message, sums.size(), result.size());
+                assertSorted(message, result);
+                for (Tuple tuple : result) {
+                    assertEquals(message, sums.get(tuple.dataAt(0)), tuple.dataAt(1));
+                }
+            }
+        }
+    }
+
+    private Sort makeSort(List<Tuple> tuples, int numOfBuffers, boolean combined) {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(key);
+        attributes.add(value);
+        Schema schema = new Schema(attributes);
+        schema.setTupleSize(8);
+
+        Vector<Attribute> sortKey = new Vector<>();
+        sortKey.add(key);
+        Sort sort = new Sort(new TupleSource(schema, tuples), sortKey, numOfBuffers);
+        if (combined) {
+            sort.setCombiner((tuple1, tuple2) -> {
+                Vector<Object> data = new Vector<>();
+                data.add(tuple1.dataAt(0));
+                data.add((Integer) tuple1.dataAt(1) + (Integer) tuple2.dataAt(1));
+                return new Tuple(data);
+            });
+        }
+        return sort;
+    }
+
+    private List<Tuple> run(Sort sort) {
+        List<Tuple> result = new ArrayList<>();
+        sort.open();
+        for (Batch batch = sort.next(); batch != null; batch = sort.next()) {
+            result.addAll(batch.getTuples());
+        }
+        sort.close();
+        return result;
+    }
+
+    private List<Tuple> randomTuples(Random random, int numOfTuples, int numOfKeys) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < numOfTuples; i++) {
+            Vector<Object> data = new Vector<>();
+            data.add(random.nextInt(numOfKeys));
+            data.add(i);
+            tuples.add(new Tuple(data));
+        }
+        return tuples;
+    }
+
+    private void assertSorted(String message, List<Tuple> tuples) {
+        for (int i = 1; i < tuples.size(); i++) {
+            assertTrue(message, (Integer) tuples.get(i - 1).dataAt(0) <= (Integer) tuples.get(i).dataAt(0));
+        }
+    }
+
+    private List<Integer> keysOf(List<Tuple> tuples) {
+        List<Integer> keys = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            keys.add((Integer) tuple.dataAt(0));
+        }
+        return keys;
+    }
+
+    private List<String> valuesOf(List<Tuple> tuples) {
+        List<String> values = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            values.add(tuple.dataAt(0) + "-" + tuple.dataAt(1));
+        }
+        Collections.sort(values);
+        return values;
+    }
+}
@@ -0,0 +1,41 @@
+package qp.operators;
+
+import java.util.List;
+
+import qp.utils.Batch;
+import qp.utils.Schema;
+import qp.utils.Tuple;
+
+/**
+ * Provides a list of tuples as the input of an operator under test.
+ */
+class TupleSource extends Operator {
+    // The tuples to output.
+    private final List<Tuple> tuples;
+    // The index of the next tuple to output.
+    private int index;
+
+    TupleSource(Schema schema, List<Tuple> tuples) {
+        super(OpType.SELECT);
+        this.schema = schema;
+        this.tuples = tuples;
+    }
+
+    @Override
+    public boolean open() {
+        index = 0;
+        return true;
+    }
+
+    @Override
+    public Batch next() {
+        if (index == tuples.size()) {
+            return null;
+        }
+        Batch batch = new Batch(Batch.getPageSize() / schema.getTupleSize());
+        while (!batch.isFull() && index < tuples.size()) {
+            batch.add(tuples.get(index++));
+        }
+        return batch;
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Vector;
 import org.junit.Test;
 
 import qp.utils.Attribute;
+import qp.utils.CompoundCondition;
 import qp.utils.Condition;
 import qp.utils.SQLQuery;
 
@@ -161,6 +162,50 @@ public class ParserTest {
         assertTrue(query.getIsDistinct());
     }
 
+    @Test
+    public void selectWithWhereAnd() throws Exception {
+        SQLQuery query = parseString("SELECT * FROM customers WHERE customers.age > \"25\" && customers.name = \"Ann\"");
+        assertEquals(2, query.getSelectionList().size());
+        assertSelectCondition(query.getSelectionList(), 0, "age", "25", Condition.GREATER_THAN);
+        assertSelectCondition(query.getSelectionList(), 1, "name", "Ann", Condition.EQUAL);
+    }
+
+    @Test
+    public void selectWithWhereOr() throws Exception {
+        SQLQuery query = parseString("SELECT * FROM customers WHERE customers.age > \"25\" || customers.age < \"5\" && customers.name = \"Ann\"");
+        assertEquals(1, query.getSelectionList().size());
+        Condition condition = (Condition) query.getSelectionList().elementAt(0);
+        assertTrue(condition instanceof CompoundCondition);
+        assertEquals(Condition.OR, condition.getOperator());
+        Vector<Condition> operands = ((CompoundCondition) condition).getOperands();
+        assertEquals(2, operands.size());
+        assertSelectCondition(operands, 0, "age", "25", Condition.GREATER_THAN);
+        assertEquals(Condition.AND, operands.elementAt(1).getOperator());
+    }
+
+    @Test
+    public void selectAggregatesWithGroupBy() throws Exception {
+        SQLQuery query = parseString("SELECT carts.cid, COUNT(carts.id), SUM(carts.amount) FROM carts GROUPBY carts.cid");
+        assertEquals(3, query.getProjectList().size());
+        assertAttributeName(query.getProjectList(), 1, "id");
+        assertEquals(Attribute.NONE, ((Attribute) query.getProjectList().elementAt(0)).getAggType());
+        assertEquals(Attribute.COUNT, ((Attribute) query.getProjectList().elementAt(1)).getAggType());
+        assertEquals(Attribute.SUM, ((Attribute) query.getProjectList().elementAt(2)).getAggType());
+        assertEquals(2, query.getAggregates().size());
+        assertEquals(1, query.getGroupByList().size());
+    }
+
+    @Test
+    public void selectAggregatesWithoutGroupBy() throws Exception {
+        SQLQuery query = parseString("SELECT MIN(carts.amount), MAX(carts.amount), AVG(carts.amount) FROM carts WHERE carts.cid = \"1\"");
+        assertEquals(1, query.getSelectionList().size());
+        assertEquals(Attribute.MIN, ((Attribute) query.getProjectList().elementAt(0)).getAggType());
+        assertEquals(Attribute.MAX, ((Attribute) query.getProjectList().elementAt(1)).getAggType());
+        assertEquals(Attribute.AVG, ((Attribute) query.getProjectList().elementAt(2)).getAggType());
+        assertTrue(query.hasAggregates());
+        assertTrue(!query.isGroupby());
+    }
+
     private SQLQuery parseString(String input) throws Exception {
         StringReader reader = new StringReader(input);
         Scanner scanner = new Scanner(reader);
@@ -0,0 +1,103 @@
+package qp.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Vector;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BPlusTreeTest {
+    // Small enough for only 2 tuples per leaf and 2 keys per internal node.
+    private static final int NODE_SIZE = 33;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Schema schema = new Schema(attributes());
+
+    @Test
+    public void searchFindsKeysAcrossNodeSplits() throws IOException {
+        // Each key is repeated, such that the runs of equal keys span several leaves.
+        String fileName = build(0, 300, 5);
+        BPlusTree tree = new BPlusTree(fileName, schema);
+        assertEquals(2, tree.getLeafCapacity());
+        assertEquals(750, tree.getNumOfLeaves());
+        assertEquals(1500, tree.getNumOfEntries());
+        assertTrue("the tree should have several internal levels", tree.getHeight() > 3);
+
+        for (int key = 0; key < 300; key++) {
+            Vector<Tuple> result = tree.search(key);
+            assertEquals(5, result.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(key, result.elementAt(i).dataAt(0));
+                assertEquals("v" + key + "-" + i, result.elementAt(i).dataAt(1));
+            }
+        }
+        tree.close();
+    }
+
+    @Test
+    public void searchMissesAbsentKeys() throws IOException {
+        // Only the even keys from 0 to 198 are indexed.
+        String fileName = folder.newFile().getPath();
+        BPlusTreeBuilder builder = new BPlusTreeBuilder(fileName, schema, 0, NODE_SIZE);
+        for (int key = 0; key < 200; key += 2) {
+            builder.add(tuple(key, "v" + key));
+        }
+        builder.close();
+
+        BPlusTree tree = new BPlusTree(fileName, schema);
+        for (int key = -3; key < 203; key++) {
+            int expected = key >= 0 && key < 200 && key % 2 == 0 ? 1 : 0;
+            assertEquals("key " + key, expected, tree.search(key).size());
+        }
+        tree.close();
+    }
+
+    @Test
+    public void emptyTreeFindsNothing() throws IOException {
+        String fileName = build(0, 0, 1);
+        BPlusTree tree = new BPlusTree(fileName, schema);
+        assertEquals(0, tree.getNumOfEntries());
+        assertEquals(0, tree.search(0).size());
+        tree.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builderRejectsUnorderedKeys() throws IOException {
+        BPlusTreeBuilder builder = new BPlusTreeBuilder(new File(folder.getRoot(), "t.idx").getPath(), schema, 0, NODE_SIZE);
+        builder.add(tuple(2, "a"));
+        builder.add(tuple(1, "b"));
+    }
+
+    private String build(int from, int to, int copies) throws IOException {
+        String fileName = folder.newFile().getPath();
+        BPlusTreeBuilder builder = new BPlusTreeBuilder(fileName, schema, 0, NODE_SIZE);
+        for (int key = from; key < to; key++) {
+            for (int i = 0; i < copies; i++) {
+                builder.add(tuple(key, "v" + key + "-" + i));
+            }
+        }
+        builder.close();
+        return fileName;
+    }
+
+    private static Vector<Attribute> attributes() {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(new Attribute("T", "k", Attribute.INT, 0, 4));
+        attributes.add(new Attribute("T", "v", Attribute.STRING, 0, 8));
+        return attributes;
+    }
+
+    private static Tuple tuple(int key, String value) {
+        Vector<Object> data = new Vector<>();
+        data.add(key);
+        data.add(value);
+        return new Tuple(data);
+    }
+}
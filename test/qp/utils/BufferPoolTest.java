@@ -0,0 +1,89 @@
+package qp.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+    private static final int PAGE_SIZE = 16;
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() throws IOException {
+        BufferPool pool = new BufferPool(2, BufferPool.LRU);
+        read(pool, 0, 1, 0, 2, 0);
+        // Page 1 is evicted by page 2, while page 0 stays cached.
+        assertEquals(2, pool.getNumOfHits());
+        assertEquals(3, pool.getNumOfMisses());
+    }
+
+    @Test
+    public void mruKeepsPagesOfRepeatedScans() throws IOException {
+        BufferPool lru = new BufferPool(3, BufferPool.LRU);
+        BufferPool mru = new BufferPool(3, BufferPool.MRU);
+        for (int scan = 0; scan < 3; scan++) {
+            read(lru, 0, 1, 2, 3);
+            read(mru, 0, 1, 2, 3);
+        }
+        assertEquals(0, lru.getNumOfHits());
+        assertEquals(6, mru.getNumOfHits());
+    }
+
+    @Test
+    public void clockGivesSecondChance() throws IOException {
+        BufferPool pool = new BufferPool(2, BufferPool.CLOCK);
+        read(pool, 0, 1, 2, 1, 2);
+        assertEquals(2, pool.getNumOfHits());
+    }
+
+    @Test
+    public void pinnedPagesAreNotReplaced() throws IOException {
+        BufferPool pool = new BufferPool(1, BufferPool.LRU);
+        int frame = pool.pin("f", 0, PAGE_SIZE, buffer -> fill(buffer, 0));
+        assertEquals(-1, pool.pin("f", 1, PAGE_SIZE, buffer -> fill(buffer, 1)));
+        assertEquals(0, pool.getPage(frame).get());
+        pool.unpin(frame);
+        assertEquals(frame, pool.pin("f", 1, PAGE_SIZE, buffer -> fill(buffer, 1)));
+        assertEquals(1, pool.getPage(frame).get());
+    }
+
+    @Test
+    public void reservedFramesDoNotCache() throws IOException {
+        BufferPool pool = new BufferPool(2, BufferPool.LRU);
+        read(pool, 0, 1);
+        assertEquals(2, pool.reserve(5) + pool.reserve(1));
+        read(pool, 0);
+        assertEquals(0, pool.getNumOfHits());
+        pool.release(1);
+        read(pool, 0, 0);
+        assertEquals(1, pool.getNumOfHits());
+    }
+
+    @Test
+    public void invalidatedPagesAreReadAgain() throws IOException {
+        BufferPool pool = new BufferPool(2, BufferPool.LRU);
+        read(pool, 0);
+        pool.invalidate("f");
+        read(pool, 0);
+        assertEquals(0, pool.getNumOfHits());
+    }
+
+    private void read(BufferPool pool, int... pageIDs) throws IOException {
+        for (int pageID : pageIDs) {
+            int frame = pool.pin("f", pageID, PAGE_SIZE, buffer -> fill(buffer, pageID));
+            if (frame >= 0) {
+                assertEquals(pageID, pool.getPage(frame).get());
+                pool.unpin(frame);
+            }
+        }
+    }
+
+    private void fill(ByteBuffer buffer, int pageID) {
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) pageID);
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,51 @@
+package qp.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+public class LoserTreeTest {
+    @Test
+    public void mergeSortedSources() {
+        Random random = new Random(3223);
+        for (int numOfSources : new int[] {1, 2, 3, 7, 8, 13}) {
+            int[][] sources = new int[numOfSources][];
+            int total = 0;
+            for (int i = 0; i < numOfSources; i++) {
+                sources[i] = random.ints(random.nextInt(20), 0, 50).sorted().toArray();
+                total += sources[i].length;
+            }
+
+            Tuple[] heads = new Tuple[numOfSources];
+            int[] positions = new int[numOfSources];
+            for (int i = 0; i < numOfSources; i++) {
+                heads[i] = sources[i].length == 0 ? null : tupleOf(sources[i][0]);
+            }
+            LoserTree tree = new LoserTree(heads, (t1, t2) -> Tuple.compareTuples(t1, t2, 0));
+
+            int numOfOutput = 0;
+            int previous = Integer.MIN_VALUE;
+            for (int i = tree.getWinner(); i >= 0; i = tree.getWinner()) {
+                int value = (Integer) tree.getWinnerTuple().dataAt(0);
+                assertEquals(sources[i][positions[i]], value);
+                assertTrue("output should be sorted", value >= previous);
+                previous = value;
+                numOfOutput++;
+
+                positions[i]++;
+                tree.replaceWinner(positions[i] == sources[i].length ? null : tupleOf(sources[i][positions[i]]));
+            }
+            assertEquals(total, numOfOutput);
+        }
+    }
+
+    private Tuple tupleOf(int value) {
+        Vector<Object> data = new Vector<>();
+        data.add(value);
+        return new Tuple(data);
+    }
+}
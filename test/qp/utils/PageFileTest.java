@@ -0,0 +1,150 @@
+package qp.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PageFileTest {
+    // Holds 4 tuples of 16 bytes per page.
+    private static final int PAGE_SIZE = 64;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Attribute key = new Attribute("T", "k", Attribute.INT, 0, 4);
+    private final Attribute real = new Attribute("T", "r", Attribute.REAL, 0, 4);
+    private final Attribute string = new Attribute("T", "s", Attribute.STRING, 0, 8);
+    private final Schema schema = new Schema(new Vector<>(Arrays.asList(key, real, string)));
+
+    @After
+    public void tearDown() {
+        BufferPool.setInstance(null);
+    }
+
+    @Test
+    public void roundTripKeepsTuplesInOrder() throws IOException {
+        Random random = new Random(3223);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            tuples.add(tuple(random.nextInt(), random.nextFloat(), "s" + random.nextInt(1000)));
+        }
+        String fileName = write(tuples, false);
+
+        // Reads on demand, through a buffer pool, ahead in the background and memory-mapped.
+        for (int mode = 0; mode < 4; mode++) {
+            BufferPool.setInstance(mode == 1 ? new BufferPool(4, BufferPool.LRU) : null);
+            PageFileReader reader = new PageFileReader(fileName, schema, mode == 3);
+            if (mode == 2) {
+                reader.setReadAhead(3);
+            }
+            assertEquals(1001, reader.getNumOfTuples());
+            assertEquals(251, reader.getNumOfPages());
+            for (Tuple expected : tuples) {
+                assertEquals("mode " + mode, expected.getData(), reader.next().getData());
+            }
+            assertNull(reader.next());
+            reader.close();
+        }
+    }
+
+    @Test
+    public void batchesFollowTheTuples() throws IOException {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tuples.add(tuple(i, i / 2.0f, "s" + i));
+        }
+        PageFileReader reader = new PageFileReader(write(tuples, false), schema);
+        List<Tuple> result = new ArrayList<>();
+        for (Batch batch = reader.nextBatch(7); batch != null; batch = reader.nextBatch(7)) {
+            result.addAll(batch.getTuples());
+        }
+        reader.close();
+        assertEquals(50, result.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(tuples.get(i).getData(), result.get(i).getData());
+        }
+    }
+
+    @Test
+    public void zoneMapSkipsPagesWhichCannotMatch() throws IOException {
+        Random random = new Random(3223);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            tuples.add(tuple(i, random.nextFloat(), "s" + i));
+        }
+        String fileName = write(tuples, true);
+
+        // Each condition is given with the number of tuples satisfying it and the pages which may hold them.
+        Object[][] cases = {{Condition.LESS_THAN, "100", 100, 25}, {Condition.EQUAL, "500", 1, 1},
+                {Condition.GTOE, "998", 2, 1}, {Condition.NOTEQUAL, "3", 999, 250}, {Condition.GREATER_THAN, "999", 0, 0}};
+        for (Object[] c : cases) {
+            CompiledCondition condition = CompiledCondition.compile(new Condition(key, (Integer) c[0], c[1]), schema);
+            for (boolean mapped : new boolean[]{false, true}) {
+                PageFileReader reader = new PageFileReader(fileName, schema, mapped);
+                assertTrue(reader.isSortedOn(0));
+                assertFalse(reader.isSortedOn(1));
+                reader.setPageFilter(condition);
+                int numOfTuplesRead = 0;
+                int numOfMatches = 0;
+                for (Tuple tuple = reader.next(); tuple != null; tuple = reader.next()) {
+                    numOfTuplesRead++;
+                    numOfMatches += condition.evaluate(tuple) ? 1 : 0;
+                }
+                assertEquals(c[2], numOfMatches);
+                assertEquals(4 * (int) c[3], numOfTuplesRead);
+                assertEquals(250 - (int) c[3], reader.getNumOfPagesSkipped());
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void zoneMapKeepsNegativeZeroPages() throws IOException {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tuples.add(tuple(i, i < 4 ? -0.0f : 1.0f, "s" + i));
+        }
+        PageFileReader reader = new PageFileReader(write(tuples, true), schema);
+        CompiledCondition condition = CompiledCondition.compile(new Condition(real, Condition.EQUAL, "0"), schema);
+        reader.setPageFilter(condition);
+        int numOfMatches = 0;
+        for (Tuple tuple = reader.next(); tuple != null; tuple = reader.next()) {
+            numOfMatches += condition.evaluate(tuple) ? 1 : 0;
+        }
+        reader.close();
+        assertEquals(4, numOfMatches);
+        assertEquals(1, reader.getNumOfPagesSkipped());
+    }
+
+    private String write(List<Tuple> tuples, boolean zoneMapped) throws IOException {
+        String fileName = folder.newFile().getPath();
+        PageFileWriter writer = new PageFileWriter(fileName, schema, PAGE_SIZE, zoneMapped);
+        for (Tuple tuple : tuples) {
+            writer.write(tuple);
+        }
+        assertEquals(tuples.size(), writer.getNumOfTuples());
+        writer.close();
+        return fileName;
+    }
+
+    private static Tuple tuple(int k, float r, String s) {
+        Vector<Object> data = new Vector<>();
+        data.add(k);
+        data.add(r);
+        data.add(s);
+        return new Tuple(data);
+    }
+}
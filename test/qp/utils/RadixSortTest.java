@@ -0,0 +1,60 @@
+package qp.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+public class RadixSortTest {
+    @Test
+    public void sortsLikeComparisonSort() {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(new Attribute("T", "i", Attribute.INT));
+        attributes.add(new Attribute("T", "t", Attribute.TIME));
+        attributes.add(new Attribute("T", "s", Attribute.STRING));
+        Schema schema = new Schema(attributes);
+
+        Random random = new Random(3223);
+        int[][] orders = {{0}, {1}, {0, 2}, {1, 0}, {0, 1, 2}};
+        for (int[] order : orders) {
+            SortKey sortKey = new SortKey(schema, order);
+            TupleInRun[] tuples = new TupleInRun[3000];
+            for (int i = 0; i < tuples.length; i++) {
+                Tuple tuple = randomTuple(random);
+                tuples[i] = new TupleInRun(tuple, 0, i, sortKey.prefixOf(tuple));
+            }
+            TupleInRun[] expected = tuples.clone();
+            Arrays.sort(expected, 100, 2900, (o1, o2) -> sortKey.compare(o1.tuple, o2.tuple));
+
+            RadixSort.sort(tuples, 100, 2900, sortKey);
+            for (int i = 0; i < tuples.length; i++) {
+                assertSame("sort should be stable and leave the rest untouched", expected[i], tuples[i]);
+            }
+        }
+    }
+
+    @Test
+    public void appliesToIntAndTimeKeys() {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(new Attribute("T", "i", Attribute.INT));
+        attributes.add(new Attribute("T", "s", Attribute.STRING));
+        Schema schema = new Schema(attributes);
+
+        assertTrue(RadixSort.isApplicable(new SortKey(schema, new int[]{0, 1})));
+        assertFalse(RadixSort.isApplicable(new SortKey(schema, new int[]{1, 0})));
+    }
+
+    private Tuple randomTuple(Random random) {
+        Vector<Object> data = new Vector<>();
+        data.add(random.nextInt(50) - 25 + (random.nextBoolean() ? 0 : Integer.MIN_VALUE / 2));
+        data.add(new Date(random.nextInt(7) - 3 + (random.nextBoolean() ? 0 : Long.MIN_VALUE / 2)));
+        data.add(Integer.toString(random.nextInt(20)));
+        return new Tuple(data);
+    }
+}
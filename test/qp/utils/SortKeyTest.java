@@ -0,0 +1,51 @@
+package qp.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+public class SortKeyTest {
+    private static final String[] STRINGS = {"", "a", "a\0", "ab", "abcd", "abcde", "abcdf", "b", "\uffff"};
+    private static final float[] REALS = {Float.NEGATIVE_INFINITY, -2.5f, -0.0f, 0.0f, 1e-30f, 3.0f, Float.NaN};
+
+    @Test
+    public void prefixPreservesOrder() {
+        Vector<Attribute> attributes = new Vector<>();
+        attributes.add(new Attribute("T", "i", Attribute.INT));
+        attributes.add(new Attribute("T", "r", Attribute.REAL));
+        attributes.add(new Attribute("T", "t", Attribute.TIME));
+        attributes.add(new Attribute("T", "s", Attribute.STRING));
+        Schema schema = new Schema(attributes);
+
+        Random random = new Random(3223);
+        int[][] orders = {{0}, {1}, {2}, {3}, {0, 1}, {1, 0, 3}, {3, 0}, {0, 2}, {2, 3}};
+        for (int[] order : orders) {
+            SortKey sortKey = new SortKey(schema, order);
+            for (int i = 0; i < 2000; i++) {
+                Tuple tuple1 = randomTuple(random);
+                Tuple tuple2 = randomTuple(random);
+                long prefix1 = sortKey.prefixOf(tuple1);
+                long prefix2 = sortKey.prefixOf(tuple2);
+
+                int expected = Integer.signum(sortKey.compare(tuple1, tuple2));
+                int prefixResult = Integer.signum(Long.compareUnsigned(prefix1, prefix2));
+                assertTrue("prefix should not contradict the full key", prefixResult == 0 || prefixResult == expected);
+                assertEquals(expected, Integer.signum(sortKey.compare(prefix1, tuple1, prefix2, tuple2)));
+            }
+        }
+    }
+
+    private Tuple randomTuple(Random random) {
+        Vector<Object> data = new Vector<>();
+        data.add(random.nextInt(5) - 2 + (random.nextBoolean() ? 0 : Integer.MIN_VALUE / 2));
+        data.add(REALS[random.nextInt(REALS.length)]);
+        data.add(new Date(random.nextInt(5) - 2 + (random.nextBoolean() ? 0 : Long.MIN_VALUE / 2)));
+        data.add(STRINGS[random.nextInt(STRINGS.length)]);
+        return new Tuple(data);
+    }
+}
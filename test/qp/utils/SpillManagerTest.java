@@ -0,0 +1,43 @@
+package qp.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillManagerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stripesAndReleasesFiles() throws IOException {
+        File dir1 = folder.newFolder("a");
+        File dir2 = folder.newFolder("b");
+        SpillManager.setDirectories(dir1.getPath(), dir2.getPath());
+
+        String path1 = SpillManager.getPath("op", "spill-test-1");
+        String path2 = SpillManager.getPath("op", "spill-test-2");
+        assertEquals(dir1, new File(path1).getParentFile());
+        assertEquals(dir2, new File(path2).getParentFile());
+        assertEquals(path1, SpillManager.getPath("op", "spill-test-1"));
+
+        try (FileOutputStream out = new FileOutputStream(path1)) {
+            out.write(new byte[100]);
+        }
+        SpillManager.release(path1);
+        SpillManager.release(path1);
+        assertFalse(new File(path1).exists());
+        assertEquals(100, SpillManager.getBytesSpilled("op"));
+        assertTrue(SpillManager.getTotalBytesSpilled() >= 100);
+
+        SpillManager.release(path2);
+        SpillManager.setDirectories(".");
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Vector;
+
+import qp.operators.Scan;
+import qp.operators.Sort;
+import qp.utils.Attribute;
+import qp.utils.BPlusTree;
+import qp.utils.BPlusTreeBuilder;
+import qp.utils.Batch;
+import qp.utils.PageFileReader;
+import qp.utils.Schema;
+
+/**
+ * Builds a B+ tree index on a given column of a table, stored in the file <tablename>.<colname>.idx. The
+ * table is sorted on the column using external sort, and the index is then bulk loaded from the sorted tuples.
+ * Each index node takes a page of the table file by default.
+ */
+public class BuildIndex {
+    // The default number of buffers used for sorting.
+    private static final int DEFAULT_NUM_BUFFERS = 10;
+
+    /**
+     * The entry point of this BuildIndex class.
+     *
+     * @param args are the CLI arguments supplied by the user.
+     * @throws IOException if there is an exception caused by file I/O.
+     */
+    public static void main(String[] args) throws IOException {
+        // Premature exit if the number of supplied arguments is wrong.
+        if (args.length < 2 || args.length > 4) {
+            System.out.println("usage: java BuildIndex <tablename> <colname> [pagesize] [numbuffers] \n creates <tablename>.<colname>.idx files");
+            System.exit(1);
+        }
+
+        String tblName = args[0];
+        String colName = args[1];
+        int pageSize = args.length > 2 ? Integer.parseInt(args[2]) : PageFileReader.readPageSize(tblName + ".tbl");
+        int numOfBuffers = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_NUM_BUFFERS;
+        String metaFile = tblName + ".md";
+
+        // Reads the schema from the metadata file.
+        Schema schema = null;
+        try {
+            ObjectInputStream ins = new ObjectInputStream(new FileInputStream(metaFile));
+            schema = (Schema) ins.readObject();
+            ins.close();
+        } catch (ClassNotFoundException ce) {
+            System.out.println("class not found exception --- error in schema object file");
+            System.exit(1);
+        }
+
+        // Finds the column to be indexed.
+        Attribute keyAttr = new Attribute(tblName, colName);
+        int keyIndex = schema.indexOf(keyAttr);
+        if (keyIndex < 0) {
+            System.out.printf("column %s does not exist in table %s\n", colName, tblName);
+            System.exit(1);
+        }
+
+        // Sorts the table on the key column.
+        Batch.setPageSize(pageSize);
+        Scan scan = new Scan(tblName);
+        scan.setSchema(schema);
+        Vector<Attribute> sortKey = new Vector<>();
+        sortKey.add(schema.getAttribute(keyIndex));
+        Sort sort = new Sort(scan, sortKey, numOfBuffers);
+        if (!sort.open()) {
+            System.out.println("error in sorting table " + tblName);
+            System.exit(1);
+        }
+
+        // Bulk loads the index from the sorted tuples.
+        BPlusTreeBuilder builder = new BPlusTreeBuilder(BPlusTree.getFileName(tblName, colName), schema, keyIndex, pageSize);
+        Batch batch = sort.next();
+        while (batch != null) {
+            for (int i = 0; i < batch.size(); i++) {
+                builder.add(batch.elementAt(i));
+            }
+            batch = sort.next();
+        }
+
+        // Closes all streams gracefully.
+        sort.close();
+        builder.close();
+    }
+}
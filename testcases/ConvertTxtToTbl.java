@@ -1,22 +1,23 @@
 import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.sql.Time;
 import java.util.Date;
 import java.util.StringTokenizer;
 import java.util.Vector;
 
 import qp.utils.Attribute;
+import qp.utils.PageFileWriter;
 import qp.utils.Schema;
 import qp.utils.Tuple;
 
 /**
  * Assume that the first line of the file contain the names of the attributes of the relation, and each subsequent line
  * represents 1 tuple of the relation. We also assume that the fields of each line is delimited by tabs ("\t").
+ * The tuples are written into a page file (see {@link PageFileWriter}) with the given page size, together with
+ * the zone map of its pages. The page size must be the one later entered to QueryMain, which counts the pages
+ * of the table in its cost estimates and buffer budget.
  */
 public class ConvertTxtToTbl {
     /**
@@ -27,19 +28,16 @@ public class ConvertTxtToTbl {
      */
     public static void main(String[] args) throws IOException {
         // Premature exit if the number of supplied arguments is wrong.
-        if (args.length != 1) {
-            System.out.println("usage: java ConvertTxtToTbl <tablename> \n creats <tablename>.tbl files");
+        if (args.length != 2) {
+            System.out.println("usage: java ConvertTxtToTbl <tablename> <pagesize> \n creats <tablename>.tbl files");
             System.exit(1);
         }
 
         String tblName = args[0];
+        int pageSize = Integer.parseInt(args[1]);
         String tblFile = tblName + ".tbl";
         String metaFile = tblName + ".md";
 
-        // Opens the input & output stream.
-        BufferedReader in = new BufferedReader(new FileReader(tblName + ".txt"));
-        ObjectOutputStream outTbl = new ObjectOutputStream(new FileOutputStream(tblFile));
-
         // Reads the schema from the metadata file.
         Schema schema = null;
         try {
@@ -50,6 +48,10 @@ public class ConvertTxtToTbl {
             System.exit(1);
         }
 
+        // Opens the input & output stream.
+        BufferedReader in = new BufferedReader(new FileReader(tblName + ".txt"));
+        PageFileWriter outTbl = new PageFileWriter(tblFile, schema, pageSize, true);
+
         // Reads each line in the txt file.
         String line = in.readLine();
         while (line != null) {
@@ -80,7 +82,7 @@ public class ConvertTxtToTbl {
 
             // Writes out the attributes in the current row.
             Tuple tuple = new Tuple(data);
-            outTbl.writeObject(tuple);
+            outTbl.write(tuple);
             line = in.readLine();
         }
 
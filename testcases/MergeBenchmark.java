@@ -0,0 +1,147 @@
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Vector;
+
+import qp.utils.LoserTree;
+import qp.utils.Tuple;
+import qp.utils.TupleInRun;
+
+/**
+ * Compares the k-way merge by a {@link PriorityQueue} of {@link TupleInRun} with the merge by a
+ * {@link LoserTree}, at fan-ins from 8 to 256. The runs are kept in memory, so only the cost of
+ * the merge itself is measured. Both the elapsed time and the number of comparisons are reported,
+ * and the two merges are checked to output the same values.
+ */
+public class MergeBenchmark {
+    // The default number of tuples to be merged at each fan-in.
+    private static final int DEFAULT_NUM_OF_TUPLES = 1 << 20;
+    // The number of repetitions at each fan-in, of which the fastest one is reported.
+    private static final int NUM_OF_REPETITIONS = 5;
+
+    // The number of comparisons made so far.
+    private static long numOfComparisons;
+
+    /**
+     * The entry point of this MergeBenchmark class.
+     *
+     * @param args are the CLI arguments supplied by the user.
+     */
+    public static void main(String[] args) {
+        if (args.length > 1) {
+            System.out.println("usage: java MergeBenchmark [numOfTuples]");
+            System.exit(1);
+        }
+        int numOfTuples = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUM_OF_TUPLES;
+
+        Comparator<Tuple> comparator = (t1, t2) -> {
+            numOfComparisons++;
+            return Tuple.compareTuples(t1, t2, 0);
+        };
+
+        System.out.println("fan-in\theap(ms)\theap(cmp/tuple)\tloser(ms)\tloser(cmp/tuple)");
+        for (int fanIn = 8; fanIn <= 256; fanIn *= 2) {
+            Tuple[][] runs = generateRuns(fanIn, numOfTuples / fanIn, new Random(fanIn));
+
+            long heapTime = Long.MAX_VALUE;
+            long loserTime = Long.MAX_VALUE;
+            long heapComparisons = 0;
+            long loserComparisons = 0;
+            for (int i = 0; i < NUM_OF_REPETITIONS; i++) {
+                numOfComparisons = 0;
+                long startTime = System.nanoTime();
+                long heapChecksum = mergeByHeap(runs, comparator);
+                heapTime = Math.min(heapTime, System.nanoTime() - startTime);
+                heapComparisons = numOfComparisons;
+
+                numOfComparisons = 0;
+                startTime = System.nanoTime();
+                long loserChecksum = mergeByLoserTree(runs, comparator);
+                loserTime = Math.min(loserTime, System.nanoTime() - startTime);
+                loserComparisons = numOfComparisons;
+
+                // Both merges must output the same sequence of values.
+                if (heapChecksum != loserChecksum) {
+                    System.err.printf("MergeBenchmark: the merges differ at fan-in %d\n", fanIn);
+                    System.exit(1);
+                }
+            }
+
+            long total = (long) fanIn * runs[0].length;
+            System.out.printf("%d\t%.1f\t%.2f\t%.1f\t%.2f\n", fanIn,
+                    heapTime / 1e6, 1.0 * heapComparisons / total,
+                    loserTime / 1e6, 1.0 * loserComparisons / total);
+        }
+    }
+
+    /**
+     * Generates sorted runs of random integers.
+     *
+     * @param numOfRuns    is the number of runs.
+     * @param tuplesPerRun is the number of tuples in each run.
+     * @param random       is the random generator.
+     * @return the runs.
+     */
+    private static Tuple[][] generateRuns(int numOfRuns, int tuplesPerRun, Random random) {
+        Tuple[][] runs = new Tuple[numOfRuns][];
+        for (int i = 0; i < numOfRuns; i++) {
+            int[] values = random.ints(tuplesPerRun).sorted().toArray();
+            runs[i] = new Tuple[tuplesPerRun];
+            for (int j = 0; j < tuplesPerRun; j++) {
+                Vector<Object> data = new Vector<>();
+                data.add(values[j]);
+                runs[i][j] = new Tuple(data);
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Merges the runs by a priority queue, which is how Sort used to merge its runs.
+     *
+     * @param runs       is the sorted runs.
+     * @param comparator is the comparator used to order the tuples.
+     * @return a checksum of the output, which is compared with the other merge.
+     */
+    private static long mergeByHeap(Tuple[][] runs, Comparator<Tuple> comparator) {
+        PriorityQueue<TupleInRun> heap = new PriorityQueue<>(runs.length, (o1, o2) -> comparator.compare(o1.tuple, o2.tuple));
+        for (int i = 0; i < runs.length; i++) {
+            heap.add(new TupleInRun(runs[i][0], i, 0));
+        }
+
+        long checksum = 0;
+        while (!heap.isEmpty()) {
+            TupleInRun outTuple = heap.poll();
+            checksum = 31 * checksum + (Integer) outTuple.tuple.dataAt(0);
+            int nextIndex = outTuple.tupleID + 1;
+            if (nextIndex < runs[outTuple.runID].length) {
+                heap.add(new TupleInRun(runs[outTuple.runID][nextIndex], outTuple.runID, nextIndex));
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Merges the runs by a loser tree, which is how Sort merges its runs.
+     *
+     * @param runs       is the sorted runs.
+     * @param comparator is the comparator used to order the tuples.
+     * @return a checksum of the output, which is compared with the other merge.
+     */
+    private static long mergeByLoserTree(Tuple[][] runs, Comparator<Tuple> comparator) {
+        Tuple[] heads = new Tuple[runs.length];
+        int[] indexes = new int[runs.length];
+        for (int i = 0; i < runs.length; i++) {
+            heads[i] = runs[i][0];
+        }
+        LoserTree tree = new LoserTree(heads, comparator);
+
+        long checksum = 0;
+        for (int i = tree.getWinner(); i >= 0; i = tree.getWinner()) {
+            checksum = 31 * checksum + (Integer) tree.getWinnerTuple().dataAt(0);
+            indexes[i]++;
+            tree.replaceWinner(indexes[i] < runs[i].length ? runs[i][indexes[i]] : null);
+        }
+        return checksum;
+    }
+}